@@ -0,0 +1,110 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector;
+
+import com.google.common.collect.Lists;
+import org.spongepowered.despector.ast.SourceSet;
+import org.spongepowered.despector.ast.members.MethodEntry;
+import org.spongepowered.despector.ast.type.ClassEntry;
+import org.spongepowered.despector.ast.type.TypeEntry;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * An index of the synthetic accessor methods of a set of types, which is all
+ * that the {@link org.spongepowered.despector.ast.io.emitter.SourceEmitter}
+ * needs from types other than the one being emitted.
+ *
+ * <p>The index holds a source set containing a stub for each type which
+ * declares accessors with only those methods present. Types loaded against
+ * this source set can then be emitted one at a time without the rest of the
+ * source set being loaded.</p>
+ */
+public class AccessorIndex {
+
+    private static final String ACCESSOR_PREFIX = "access$";
+    private static final byte[] ACCESSOR_BYTES = ACCESSOR_PREFIX.getBytes(StandardCharsets.UTF_8);
+
+    private final SourceSet source = new SourceSet();
+
+    /**
+     * Gets the source set containing the indexed accessors.
+     */
+    public SourceSet getSource() {
+        return this.source;
+    }
+
+    /**
+     * Gets if the given class data may declare an accessor, that is if the
+     * accessor prefix appears anywhere within it. Used as a class filter to
+     * avoid parsing classes which cannot contribute to the index.
+     */
+    public boolean accept(String name, byte[] data, int length) {
+        return mentionsAccessors(data, length);
+    }
+
+    /**
+     * Gets if the accessor prefix appears anywhere within the given class
+     * data, which is the case for all classes declaring or calling accessors.
+     */
+    public static boolean mentionsAccessors(byte[] data, int length) {
+        outer: for (int i = 0; i <= length - ACCESSOR_BYTES.length; i++) {
+            for (int j = 0; j < ACCESSOR_BYTES.length; j++) {
+                if (data[i + j] != ACCESSOR_BYTES[j]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Adds the accessors declared by the given type to the index, building
+     * their bodies if they were loaded lazily. The type itself is not
+     * retained.
+     */
+    public void add(TypeEntry type) {
+        List<MethodEntry> accessors = Lists.newArrayList();
+        for (MethodEntry method : type.getStaticMethods()) {
+            if (method.getName().startsWith(ACCESSOR_PREFIX)) {
+                method.getInstructions();
+                accessors.add(method);
+            }
+        }
+        if (accessors.isEmpty()) {
+            return;
+        }
+        ClassEntry stub = new ClassEntry(this.source);
+        stub.setName(type.getName());
+        stub.setAccessModifier(type.getAccessModifier());
+        for (MethodEntry method : accessors) {
+            stub.addMethod(method);
+        }
+        this.source.add(stub);
+    }
+
+}
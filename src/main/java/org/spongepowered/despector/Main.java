@@ -24,81 +24,314 @@
  */
 package org.spongepowered.despector;
 
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.objectweb.asm.ClassReader;
 import org.spongepowered.despector.ast.SourceSet;
+import org.spongepowered.despector.ast.io.ClassFilter;
 import org.spongepowered.despector.ast.io.DirectoryWalker;
 import org.spongepowered.despector.ast.io.JarWalker;
 import org.spongepowered.despector.ast.io.SingularClassLoader;
+import org.spongepowered.despector.ast.io.SingularClassLoader.LoadMode;
+import org.spongepowered.despector.ast.io.TypeConsumer;
 import org.spongepowered.despector.ast.io.emitter.SourceEmitter;
+import org.spongepowered.despector.ast.io.insn.InstructionTreeBuilder;
+import org.spongepowered.despector.ast.io.insn.MethodBudget;
+import org.spongepowered.despector.ast.io.insn.StructuringEngine;
+import org.spongepowered.despector.ast.members.MethodEntry;
 import org.spongepowered.despector.ast.type.TypeEntry;
+import org.spongepowered.despector.output.DirectoryOutputSink;
+import org.spongepowered.despector.output.JarOutputSink;
+import org.spongepowered.despector.output.OutputSink;
 
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.CodeSource;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class Main {
 
+    /**
+     * The version of the decompiler, taken from the jar manifest.
+     */
+    public static final String VERSION = MoreObjects.firstNonNull(Main.class.getPackage().getImplementationVersion(), "dev");
+
+    private static final String USAGE = "Usage: java -jar Despector.jar [--threads=n] [--largest-first] [--cache=dir] [--stream]"
+            + " [--method-timeout=ms] [--method-limit=n] [--listing] [--cfg] [sources...] [destination]";
+
     public static void main(String[] args) throws IOException {
         if (args.length < 2) {
-            System.out.println("Usage: java -jar Despector.jar [sources...] [destination]");
+            System.out.println(USAGE);
             return;
         }
         List<String> sources = Lists.newArrayList();
+        int threads = 1;
+        boolean largest_first = false;
+        Path cache_dir = null;
+        boolean stream = false;
+        long method_timeout = 0;
+        int method_limit = 0;
+        boolean listing = false;
+        StructuringEngine engine = StructuringEngine.RANGE;
         for (int i = 0; i < args.length - 1; i++) {
             if (args[i].startsWith("-")) {
-                // TODO parse flags
+                if (args[i].startsWith("--threads=")) {
+                    try {
+                        threads = Integer.parseInt(args[i].substring("--threads=".length()));
+                    } catch (NumberFormatException e) {
+                        threads = 0;
+                    }
+                    if (threads < 1) {
+                        System.err.println("Invalid thread count: " + args[i]);
+                        System.out.println(USAGE);
+                        return;
+                    }
+                } else if (args[i].equals("--largest-first")) {
+                    largest_first = true;
+                } else if (args[i].startsWith("--cache=")) {
+                    cache_dir = Paths.get(args[i].substring("--cache=".length())).toAbsolutePath();
+                } else if (args[i].equals("--stream")) {
+                    stream = true;
+                } else if (args[i].startsWith("--method-timeout=")) {
+                    try {
+                        method_timeout = Long.parseLong(args[i].substring("--method-timeout=".length()));
+                    } catch (NumberFormatException e) {
+                        method_timeout = -1;
+                    }
+                    if (method_timeout < 0) {
+                        System.err.println("Invalid method timeout: " + args[i]);
+                        System.out.println(USAGE);
+                        return;
+                    }
+                } else if (args[i].startsWith("--method-limit=")) {
+                    try {
+                        method_limit = Integer.parseInt(args[i].substring("--method-limit=".length()));
+                    } catch (NumberFormatException e) {
+                        method_limit = -1;
+                    }
+                    if (method_limit < 0) {
+                        System.err.println("Invalid method limit: " + args[i]);
+                        System.out.println(USAGE);
+                        return;
+                    }
+                } else if (args[i].equals("--listing")) {
+                    listing = true;
+                } else if (args[i].equals("--cfg")) {
+                    engine = StructuringEngine.CFG;
+                } else {
+                    System.err.println("Unknown flag: " + args[i]);
+                }
             } else {
                 sources.add(args[i]);
             }
         }
+        InstructionTreeBuilder.setBudget(new MethodBudget(method_timeout, method_limit, listing));
+        InstructionTreeBuilder.setEngine(engine);
         String destination = args[args.length - 1];
         Path output = Paths.get(destination).toAbsolutePath();
-        if (!Files.exists(output)) {
-            Files.createDirectories(output);
+        try (OutputSink sink = createSink(output, threads)) {
+            decompile(sources, threads, largest_first, cache_dir, stream, sink);
+        }
+    }
+
+    private static OutputSink createSink(Path output, int threads) throws IOException {
+        String name = output.getFileName().toString();
+        if (name.endsWith(".jar") || name.endsWith(".zip")) {
+            Files.createDirectories(output.getParent());
+            return new JarOutputSink(output, threads);
+        }
+        return new DirectoryOutputSink(output);
+    }
+
+    /**
+     * Gets the version which cached sources are keyed by, which differs
+     * between structuring engines as they may emit different sources.
+     */
+    private static String cacheVersion() throws IOException {
+        String version = VERSION + "-" + buildHash();
+        if (InstructionTreeBuilder.getEngine() == StructuringEngine.RANGE) {
+            return version;
+        }
+        return version + "-" + InstructionTreeBuilder.getEngine().name().toLowerCase();
+    }
+
+    /**
+     * Gets the hash of the classes of the decompiler itself, so that cached
+     * sources are not shared between builds even if the version was not
+     * changed, as is the case for all unpackaged builds.
+     */
+    private static String buildHash() throws IOException {
+        CodeSource code = Main.class.getProtectionDomain().getCodeSource();
+        if (code == null || code.getLocation() == null) {
+            throw new IOException("Unable to locate the decompiler classes");
+        }
+        Path location;
+        try {
+            location = Paths.get(code.getLocation().toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            throw new IOException("Unable to locate the decompiler classes", e);
+        }
+        Hasher hasher = Hashing.sha256().newHasher();
+        if (Files.isRegularFile(location)) {
+            hasher.putBytes(Files.readAllBytes(location));
+        } else {
+            List<Path> classes;
+            try (Stream<Path> files = Files.walk(location)) {
+                classes = files.filter((p) -> p.toString().endsWith(".class")).sorted().collect(Collectors.toList());
+            }
+            for (Path cls : classes) {
+                hasher.putString(location.relativize(cls).toString(), StandardCharsets.UTF_8);
+                hasher.putBytes(Files.readAllBytes(cls));
+            }
+        }
+        return hasher.hash().toString().substring(0, 16);
+    }
+
+    private static SourceCache openCache(Path cache_dir) {
+        try {
+            return new SourceCache(cache_dir, cacheVersion());
+        } catch (IOException e) {
+            System.err.println("Unable to open the cache, sources will not be cached: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void decompile(List<String> sources, int threads, boolean largest_first, Path cache_dir, boolean stream, OutputSink sink)
+            throws IOException {
+        SourceCache cache = cache_dir == null ? null : openCache(cache_dir);
+        // The cache keys of all classes which were not found in the cache
+        Map<String, String> cache_keys = Maps.newConcurrentMap();
+        AtomicInteger restored = new AtomicInteger();
+        ClassFilter filter = null;
+        if (cache != null) {
+            filter = (name, data, length) -> {
+                if (!SourceCache.isCacheable(data, length)) {
+                    return true;
+                }
+                String key = cache.key(data, length);
+                try {
+                    byte[] cached = cache.get(key);
+                    if (cached != null) {
+                        sink.write(name + ".java", cached);
+                        restored.incrementAndGet();
+                        return false;
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error restoring " + name + " from cache");
+                    e.printStackTrace();
+                }
+                cache_keys.put(name, key);
+                return true;
+            };
+        }
+
+        int decompiled;
+        if (stream) {
+            // The only information needed from other types when emitting a
+            // type are the bodies of synthetic accessors, so these are indexed
+            // by a first pass which only decompiles the accessors. Each type is
+            // then emitted and released as soon as it has been decompiled.
+            AccessorIndex index = new AccessorIndex();
+            walk(sources, index.getSource(), threads, false, LoadMode.LAZY, index::accept, index::add);
+            AtomicInteger emitted = new AtomicInteger();
+            walk(sources, index.getSource(), threads, largest_first, LoadMode.FULL, filter, (type) -> {
+                emit(type, sink, cache, cache_keys);
+                emitted.incrementAndGet();
+            });
+            decompiled = emitted.get();
+        } else {
+            SourceSet source = new SourceSet();
+            walk(sources, source, threads, largest_first, LoadMode.FULL, filter, source::add);
+            for (TypeEntry type : source.getAllClasses()) {
+                emit(type, sink, cache, cache_keys);
+            }
+            decompiled = source.getAllClasses().size();
+        }
+
+        if (cache != null) {
+            System.out.println("Restored " + restored.get() + " classes from cache, decompiled " + decompiled);
         }
+        if (decompiled == 0 && restored.get() == 0) {
+            System.err.println("No sources found.");
+        }
+    }
 
-        SourceSet source = new SourceSet();
+    private static void walk(List<String> sources, SourceSet src, int threads, boolean largest_first, LoadMode mode, ClassFilter filter,
+            TypeConsumer consumer) throws IOException {
         for (String s : sources) {
             Path path = Paths.get(s);
             if (!Files.exists(path)) {
                 System.err.println("Unknown source: " + path.toAbsolutePath().toString());
             } else if (s.endsWith(".jar")) {
                 JarWalker walker = new JarWalker(path);
-                walker.walk(source);
+                walker.setThreadCount(threads);
+                walker.setLoadMode(mode);
+                walker.setClassFilter(filter);
+                walker.setLargestFirst(largest_first);
+                try {
+                    walker.walk(src, consumer);
+                } catch (IOException e) {
+                    System.err.println("Error while walking jar: " + path.toAbsolutePath().toString());
+                    e.printStackTrace();
+                }
             } else if (Files.isDirectory(path)) {
                 DirectoryWalker walker = new DirectoryWalker(path);
+                walker.setThreadCount(threads);
+                walker.setLoadMode(mode);
+                walker.setClassFilter(filter);
+                walker.setLargestFirst(largest_first);
                 try {
-                    walker.walk(source);
+                    walker.walk(src, consumer);
                 } catch (IOException e) {
                     System.err.println("Error while walking directory: " + path.toAbsolutePath().toString());
                     e.printStackTrace();
                 }
             } else if (s.endsWith(".class")) {
-                SingularClassLoader.instance.load(path, source);
+                byte[] data = Files.readAllBytes(path);
+                ClassReader reader = new ClassReader(data);
+                if (filter == null || filter.accept(reader.getClassName(), data, data.length)) {
+                    consumer.accept(SingularClassLoader.instance.build(reader, src, mode));
+                }
             } else {
                 System.err.println("Unknown source type: " + path.toAbsolutePath().toString() + " must be jar or directory");
             }
         }
+    }
 
-        if (source.getAllClasses().isEmpty()) {
-            System.err.println("No sources found.");
-            return;
+    private static void emit(TypeEntry type, OutputSink sink, SourceCache cache, Map<String, String> cache_keys) throws IOException {
+        StringWriter writer = new StringWriter();
+        SourceEmitter emitter = new SourceEmitter(writer);
+        emitter.emitType(type);
+        byte[] source = writer.toString().getBytes(StandardCharsets.UTF_8);
+        sink.write(type.getName() + ".java", source);
+        String key = cache_keys.remove(type.getName());
+        if (key != null && !hasPlaceholders(type)) {
+            cache.store(key, source);
         }
+    }
 
-        for (TypeEntry type : source.getAllClasses()) {
-            Path out = output.resolve(type.getName() + ".java");
-            if (!Files.exists(out.getParent())) {
-                Files.createDirectories(out.getParent());
-            }
-            try (FileWriter writer = new FileWriter(out.toFile())) {
-                SourceEmitter emitter = new SourceEmitter(writer);
-                emitter.emitType(type);
+    // Abandoned methods depend on the budget and the load of the machine, so
+    // a later run may well be able to decompile them.
+    private static boolean hasPlaceholders(TypeEntry type) {
+        for (MethodEntry method : Iterables.concat(type.getMethods(), type.getStaticMethods())) {
+            if (InstructionTreeBuilder.isPlaceholder(method.getInstructions())) {
+                return true;
             }
         }
-
+        return false;
     }
 
 }
@@ -0,0 +1,123 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A persistent cache of decompiled sources keyed by the hash of the class
+ * data they were produced from and the version of the decompiler.
+ *
+ * <p>Sources are stored as {@code <root>/<ab>/<hash>.java} where {@code ab}
+ * are the first two characters of the hash. Entries are written atomically so
+ * a cache may be shared by concurrent runs.</p>
+ */
+public class SourceCache {
+
+    private final Path root;
+    private final String version;
+
+    /**
+     * Creates a new cache in the given directory for outputs of the given
+     * decompiler version.
+     */
+    public SourceCache(Path root, String version) throws IOException {
+        this.root = checkNotNull(root, "root");
+        this.version = checkNotNull(version, "version");
+        Files.createDirectories(root);
+    }
+
+    /**
+     * Gets the cache key for the class data in the first {@code length} bytes
+     * of the given array.
+     */
+    public String key(byte[] data, int length) {
+        return Hashing.sha256().newHasher()
+                .putString(this.version, Charsets.UTF_8)
+                .putBytes(data, 0, length)
+                .hash().toString();
+    }
+
+    /**
+     * Gets if the source of the given class depends only on the class data
+     * itself. Synthetic accessors are inlined into the classes calling them
+     * when emitted, so neither the classes declaring accessors nor those
+     * calling them are cached. A cached declaring class would not be loaded
+     * and so its accessors would not be available to the callers.
+     */
+    public static boolean isCacheable(byte[] data, int length) {
+        return !AccessorIndex.mentionsAccessors(data, length);
+    }
+
+    private Path path(String key) {
+        return this.root.resolve(key.substring(0, 2)).resolve(key + ".java");
+    }
+
+    /**
+     * Gets the cached source for the given key, or null if there is no source
+     * cached for the key.
+     */
+    public byte[] get(String key) throws IOException {
+        Path cached = path(key);
+        if (!Files.isRegularFile(cached)) {
+            return null;
+        }
+        try {
+            return Files.readAllBytes(cached);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stores the given source under the given key.
+     */
+    public void store(String key, byte[] source) throws IOException {
+        Path cached = path(key);
+        Files.createDirectories(cached.getParent());
+        Path tmp = Files.createTempFile(cached.getParent(), key, ".tmp");
+        try {
+            Files.write(tmp, source);
+            try {
+                Files.move(tmp, cached, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, cached, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+}
@@ -26,24 +26,43 @@ package org.spongepowered.despector.ast;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.common.collect.Maps;
 import org.spongepowered.despector.ast.type.ArrayTypeEntry;
 import org.spongepowered.despector.ast.type.EnumEntry;
 import org.spongepowered.despector.ast.type.InterfaceEntry;
 import org.spongepowered.despector.ast.type.TypeEntry;
+import org.spongepowered.despector.util.MethodDescriptor;
 
 import java.util.Collection;
-import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A source set for types which are part of the obfuscated source being mapped.
+ *
+ * <p>A source set may be shared between any number of threads, types may be
+ * added while others are being looked up or iterated. Reads never block.</p>
  */
 public class SourceSet {
 
-    private final Map<String, TypeEntry> classes = Maps.newHashMap();
-    private final Map<String, EnumEntry> enums = Maps.newHashMap();
-    private final Map<String, InterfaceEntry> interfaces = Maps.newHashMap();
-    private final Map<String, ArrayTypeEntry> array_types = Maps.newHashMap();
+    private final ConcurrentMap<String, TypeEntry> classes = Maps.newConcurrentMap();
+    private final ConcurrentMap<String, EnumEntry> enums = Maps.newConcurrentMap();
+    private final ConcurrentMap<String, InterfaceEntry> interfaces = Maps.newConcurrentMap();
+    private final ConcurrentMap<String, ArrayTypeEntry> array_types = Maps.newConcurrentMap();
+    // Names and descriptors are shared by all types of the source set for as
+    // long as any of them is still referenced, types which are released as
+    // they are emitted take their strings with them.
+    private final Interner<String> strings = Interners.newWeakInterner();
+    // Method descriptors are looked up again for every invoke of the method
+    // so they are held for the life of the source set rather than weakly,
+    // there are far fewer distinct descriptors than there are types.
+    private final ConcurrentMap<String, MethodDescriptor> method_descriptors = Maps.newConcurrentMap();
+    // Counts the types added so that the hierarchy is only rebuilt once it is
+    // queried again after the source set changed.
+    private final AtomicInteger generation = new AtomicInteger();
+    private volatile TypeHierarchy hierarchy;
 
 //    private final Map<String, TypeEntry> unique_string_constants = Maps.newHashMap();
 //    private final Set<String> non_unique_string_constants = Sets.newHashSet();
@@ -62,6 +81,48 @@ public class SourceSet {
             this.interfaces.put(e.getName(), (InterfaceEntry) e);
         }
         this.classes.put(e.getName(), e);
+        this.generation.incrementAndGet();
+    }
+
+    /**
+     * Gets the pooled copy of the given string, which is equal to it and
+     * shared with all other users of an equal string in this source set.
+     */
+    public String intern(String str) {
+        return this.strings.intern(str);
+    }
+
+    /**
+     * Gets the parsed form of the given method descriptor, which is parsed
+     * only once for this source set.
+     */
+    public MethodDescriptor getMethodDescriptor(String desc) {
+        MethodDescriptor method = this.method_descriptors.get(desc);
+        if (method == null) {
+            method = this.method_descriptors.computeIfAbsent(desc, MethodDescriptor::of);
+        }
+        return method;
+    }
+
+    /**
+     * Gets the hierarchy of the types in this source set. The hierarchy is
+     * built when first requested and rebuilt if types were added since.
+     */
+    public TypeHierarchy getHierarchy() {
+        TypeHierarchy current = this.hierarchy;
+        if (current != null && current.generation == this.generation.get()) {
+            return current;
+        }
+        synchronized (this) {
+            int gen = this.generation.get();
+            current = this.hierarchy;
+            if (current == null || current.generation != gen) {
+                current = new TypeHierarchy(this);
+                current.generation = gen;
+                this.hierarchy = current;
+            }
+            return current;
+        }
     }
 
     public TypeEntry get(String name) {
@@ -72,9 +133,10 @@ public class SourceSet {
         if (name.endsWith("[]")) {
             ArrayTypeEntry entry = this.array_types.get(name);
             if (entry == null) {
+                // The component is resolved outside of the insertion as it may
+                // itself be an array type being inserted into the same map.
                 TypeEntry comp = get(name.substring(0, name.length() - 2));
-                entry = new ArrayTypeEntry(this, comp.getName());
-                this.array_types.put(name, entry);
+                entry = this.array_types.computeIfAbsent(name, (n) -> new ArrayTypeEntry(this, comp.getName()));
             }
             return entry;
         }
@@ -101,6 +163,11 @@ public class SourceSet {
     /**
      * Gets all classes in the source set. This also includes all interfaces and
      * enums.
+     *
+     * <p>The returned collection is a live view which may be iterated while
+     * types are still being added. Iteration never fails and visits each type
+     * at most once, types added after the iteration began may or may not be
+     * visited.</p>
      */
     public Collection<TypeEntry> getAllClasses() {
         return this.classes.values();
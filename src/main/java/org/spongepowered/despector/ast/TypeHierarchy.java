@@ -0,0 +1,266 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.ast;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.spongepowered.despector.ast.type.ClassEntry;
+import org.spongepowered.despector.ast.type.EnumEntry;
+import org.spongepowered.despector.ast.type.InterfaceEntry;
+import org.spongepowered.despector.ast.type.TypeEntry;
+import org.spongepowered.despector.util.TypeHelper;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An index of the super types of all types in a source set.
+ *
+ * <p>Each type, including the super types from outside of the source set, is
+ * given a dense id. Ids are assigned so that a type's super types always have
+ * lower ids than the type itself, and the ancestors and descendants of each
+ * type are kept as bit sets of ids. Types outside of the source set are only
+ * known to extend {@code java/lang/Object}.</p>
+ *
+ * <p>A hierarchy is a snapshot of the source set at the time it was built and
+ * is immutable, it may be shared between any number of threads.</p>
+ */
+public class TypeHierarchy {
+
+    private static final String OBJECT = "java/lang/Object";
+    private static final BitSet EMPTY = new BitSet(0);
+
+    private final Map<String, Integer> ids = Maps.newHashMap();
+    private final List<String> names = Lists.newArrayList();
+    private final List<TypeEntry> types = Lists.newArrayList();
+    private int[] superclasses;
+    private boolean[] interfaces;
+    private BitSet[] ancestors;
+    private BitSet[] descendants;
+    // the generation of the source set this hierarchy was built from
+    int generation = -1;
+
+    /**
+     * Builds the hierarchy of the types currently in the given source set.
+     */
+    public TypeHierarchy(SourceSet src) {
+        Map<String, TypeEntry> entries = Maps.newHashMap();
+        for (TypeEntry type : src.getAllClasses()) {
+            entries.put(type.getName(), type);
+        }
+        // ids are given in post order of the super types so that every type
+        // is numbered after all of its ancestors
+        Map<String, List<String>> supertypes = Maps.newHashMap();
+        for (TypeEntry type : entries.values()) {
+            number(type.getName(), entries, supertypes);
+        }
+        int count = this.names.size();
+        this.superclasses = new int[count];
+        this.interfaces = new boolean[count];
+        this.ancestors = new BitSet[count];
+        this.descendants = new BitSet[count];
+        for (int id = 0; id < count; id++) {
+            TypeEntry type = this.types.get(id);
+            this.interfaces[id] = type instanceof InterfaceEntry;
+            List<String> direct = supertypes.get(this.names.get(id));
+            this.superclasses[id] = direct.isEmpty() || this.interfaces[id] ? -1 : this.ids.get(direct.get(0));
+            BitSet ancestors = null;
+            for (String sup : direct) {
+                int sup_id = this.ids.get(sup);
+                if (ancestors == null) {
+                    ancestors = new BitSet(sup_id + 1);
+                }
+                ancestors.set(sup_id);
+                ancestors.or(this.ancestors[sup_id]);
+            }
+            this.ancestors[id] = ancestors == null ? EMPTY : ancestors;
+        }
+        for (int id = 0; id < count; id++) {
+            BitSet ancestors = this.ancestors[id];
+            for (int a = ancestors.nextSetBit(0); a >= 0; a = ancestors.nextSetBit(a + 1)) {
+                if (this.descendants[a] == null) {
+                    this.descendants[a] = new BitSet(count);
+                }
+                this.descendants[a].set(id);
+            }
+        }
+        for (int id = 0; id < count; id++) {
+            if (this.descendants[id] == null) {
+                this.descendants[id] = EMPTY;
+            }
+        }
+    }
+
+    private void number(String name, Map<String, TypeEntry> entries, Map<String, List<String>> supertypes) {
+        if (supertypes.containsKey(name)) {
+            // either already numbered or a cycle in malformed input, which is
+            // broken at this point
+            return;
+        }
+        TypeEntry type = entries.get(name);
+        List<String> direct = Lists.newArrayList();
+        supertypes.put(name, direct);
+        if (type instanceof ClassEntry) {
+            ClassEntry cls = (ClassEntry) type;
+            if (cls.getGenericSuperclass() != null) {
+                direct.add(cls.getSuperclassName());
+            }
+        } else if (type instanceof EnumEntry) {
+            direct.add("java/lang/Enum");
+        }
+        if (type != null) {
+            for (String inter : type.getInterfaces()) {
+                direct.add(TypeHelper.descToType(inter));
+            }
+        }
+        if ((direct.isEmpty() || type instanceof InterfaceEntry) && !name.equals(OBJECT) && !direct.contains(OBJECT)) {
+            // interfaces and types from outside of the source set still
+            // extend object
+            direct.add(OBJECT);
+        }
+        for (String sup : direct) {
+            number(sup, entries, supertypes);
+        }
+        // a super type which is part of a cycle is not numbered yet
+        direct.removeIf((sup) -> !this.ids.containsKey(sup));
+        this.ids.put(name, this.names.size());
+        this.names.add(name);
+        this.types.add(type);
+    }
+
+    /**
+     * Gets the number of types in this hierarchy.
+     */
+    public int getTypeCount() {
+        return this.names.size();
+    }
+
+    /**
+     * Gets the id of the type with the given internal name, or -1 if the type
+     * is not part of this hierarchy.
+     */
+    public int getId(String name) {
+        Integer id = this.ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Gets the internal name of the type with the given id.
+     */
+    public String getName(int id) {
+        return this.names.get(id);
+    }
+
+    /**
+     * Gets the type with the given id, or null if it is not part of the source
+     * set.
+     */
+    public TypeEntry getType(int id) {
+        return this.types.get(id);
+    }
+
+    /**
+     * Gets if the type with the first id is the same type as, or a subtype of,
+     * the type with the second id.
+     */
+    public boolean isSubtypeOf(int type, int sup) {
+        return type == sup || this.ancestors[type].get(sup);
+    }
+
+    /**
+     * Gets if the first type is the same type as, or a subtype of, the second
+     * type. Types which are not part of this hierarchy are only subtypes of
+     * themselves.
+     */
+    public boolean isSubtypeOf(String type, String sup) {
+        if (type.equals(sup)) {
+            return true;
+        }
+        int type_id = getId(type);
+        int sup_id = getId(sup);
+        return type_id != -1 && sup_id != -1 && this.ancestors[type_id].get(sup_id);
+    }
+
+    /**
+     * Gets the ids of all super types of the given type, not including the
+     * type itself. The returned set must not be modified.
+     */
+    public BitSet getAncestors(int id) {
+        return this.ancestors[id];
+    }
+
+    /**
+     * Gets the ids of all subtypes of the given type, not including the type
+     * itself. The returned set must not be modified.
+     */
+    public BitSet getDescendants(int id) {
+        return this.descendants[id];
+    }
+
+    /**
+     * Gets all types of the source set which are subtypes of, or implement,
+     * the given type.
+     */
+    public Collection<TypeEntry> getSubtypes(String name) {
+        int id = getId(name);
+        if (id == -1) {
+            return Lists.newArrayList();
+        }
+        BitSet descendants = this.descendants[id];
+        List<TypeEntry> found = Lists.newArrayListWithCapacity(descendants.cardinality());
+        for (int d = descendants.nextSetBit(0); d >= 0; d = descendants.nextSetBit(d + 1)) {
+            TypeEntry type = this.types.get(d);
+            if (type != null) {
+                found.add(type);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Gets the closest common super class of the two given types. As with the
+     * verifier, if either type is an interface the common super class is
+     * object.
+     */
+    public String getCommonSuperclass(String a, String b) {
+        int a_id = getId(a);
+        int b_id = getId(b);
+        if (a_id == -1 || b_id == -1) {
+            return a.equals(b) ? a : OBJECT;
+        }
+        if (this.interfaces[a_id] || this.interfaces[b_id]) {
+            return OBJECT;
+        }
+        for (int sup = a_id; sup != -1; sup = this.superclasses[sup]) {
+            if (isSubtypeOf(b_id, sup)) {
+                return this.names.get(sup);
+            }
+        }
+        return OBJECT;
+    }
+
+}
@@ -24,41 +24,164 @@
  */
 package org.spongepowered.despector.ast.io;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.tree.ClassNode;
 import org.spongepowered.despector.ast.SourceSet;
+import org.spongepowered.despector.ast.io.SingularClassLoader.LoadMode;
+import org.spongepowered.despector.ast.type.TypeEntry;
 
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
 
+/**
+ * Walks a directory of class files to produce an ast.
+ */
 public class DirectoryWalker {
 
     private final Path directory;
+    private int threads = 1;
+    private LoadMode mode = LoadMode.FULL;
+    private ClassFilter filter = null;
+    private boolean largest_first = false;
 
     public DirectoryWalker(Path dir) {
         this.directory = dir;
     }
 
+    /**
+     * Gets the number of threads used to load classes.
+     */
+    public int getThreadCount() {
+        return this.threads;
+    }
+
+    /**
+     * Sets the number of threads used to load classes. If more than one thread
+     * is used then the class files are read, parsed and decompiled by a pool
+     * of workers while the directory is being walked. Types are still given to
+     * the consumer in the order that they were found, unless scheduling
+     * largest first.
+     */
+    public void setThreadCount(int threads) {
+        checkArgument(threads > 0, "Thread count must be positive");
+        this.threads = threads;
+    }
+
+    public LoadMode getLoadMode() {
+        return this.mode;
+    }
+
+    /**
+     * Sets how much of each class is loaded, defaults to
+     * {@link LoadMode#FULL}.
+     */
+    public void setLoadMode(LoadMode mode) {
+        this.mode = checkNotNull(mode, "mode");
+    }
+
+    /**
+     * Sets a filter which decides which classes from the directory are
+     * loaded, or null to load all classes.
+     */
+    public void setClassFilter(ClassFilter filter) {
+        this.filter = filter;
+    }
+
+    public boolean isLargestFirst() {
+        return this.largest_first;
+    }
+
+    /**
+     * Sets if classes are loaded from the largest to the smallest when loading
+     * with multiple threads, so that a large class does not finish long after
+     * the rest. Classes are ordered by the size of their files, and types are
+     * given to the consumer in the order that they finish loading. Disabled by
+     * default.
+     */
+    public void setLargestFirst(boolean largest_first) {
+        this.largest_first = largest_first;
+    }
+
     public void walk(SourceSet src) throws IOException {
-        File dir = this.directory.toFile();
-        visit(dir, src);
+        walk(src, src::add);
     }
 
-    private void visit(File file, SourceSet src) throws IOException {
-        if (file.isDirectory()) {
-            for (File f : file.listFiles()) {
-                visit(f, src);
+    /**
+     * Loads the types in the directory against the given source set, but
+     * gives them to the consumer rather than inserting them into the source
+     * set.
+     */
+    public void walk(SourceSet src, TypeConsumer consumer) throws IOException {
+        checkNotNull(consumer, "consumer");
+        if (this.threads == 1) {
+            visit((file, size) -> {
+                TypeEntry type = scanClassFile(file, src);
+                if (type != null) {
+                    consumer.accept(type);
+                }
+            });
+            return;
+        }
+        try (LoaderPool pool = new LoaderPool(this.threads, consumer, !this.largest_first)) {
+            if (this.largest_first) {
+                List<Path> files = Lists.newArrayList();
+                Map<Path, Long> sizes = Maps.newHashMap();
+                visit((file, size) -> {
+                    files.add(file);
+                    sizes.put(file, size);
+                });
+                files.sort(Comparator.comparingLong(sizes::get).reversed());
+                for (Path file : files) {
+                    pool.submit(() -> scanClassFile(file, src));
+                }
+            } else {
+                visit((file, size) -> pool.submit(() -> scanClassFile(file, src)));
             }
-        } else {
-            if (file.getName().endsWith(".class")) {
-                ClassReader reader = new ClassReader(new FileInputStream(file));
-                ClassNode cn = new ClassNode();
-                reader.accept(cn, 0);
-                SingularClassLoader.instance.load(cn, src);
+            pool.finish();
+        }
+    }
+
+    private void visit(ClassFileVisitor visitor) throws IOException {
+        Files.walkFileTree(this.directory, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (attrs.isRegularFile() && file.getFileName().toString().endsWith(".class")) {
+                    visitor.visit(file, attrs.size());
+                }
+                return FileVisitResult.CONTINUE;
             }
+
+        });
+    }
+
+    private TypeEntry scanClassFile(Path file, SourceSet src) throws IOException {
+        byte[] data = Files.readAllBytes(file);
+        ClassReader reader = new ClassReader(data);
+        if (this.filter != null && !this.filter.accept(reader.getClassName(), data, data.length)) {
+            return null;
         }
+        return SingularClassLoader.instance.build(reader, src, this.mode);
+    }
+
+    /**
+     * A visitor for the class files found within the directory.
+     */
+    private static interface ClassFileVisitor {
+
+        void visit(Path file, long size) throws IOException;
+
     }
 
 }
@@ -24,15 +24,25 @@
  */
 package org.spongepowered.despector.ast.io;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
 import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.tree.ClassNode;
 import org.spongepowered.despector.ast.SourceSet;
+import org.spongepowered.despector.ast.io.SingularClassLoader.LoadMode;
+import org.spongepowered.despector.ast.type.TypeEntry;
 
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Set;
 import java.util.jar.JarInputStream;
 import java.util.zip.ZipEntry;
@@ -40,6 +50,10 @@ import java.util.zip.ZipEntry;
 /**
  * Walks a jar file to produce an ast. Steps such as associating overriding methods and finding string
  * constants are also during this traversal.
+ *
+ * <p>The jar is memory mapped and read from its central directory, see
+ * {@link MappedJarFile}. A jar which is too large to be mapped is instead read
+ * as a stream in the order of its entries.</p>
  */
 public class JarWalker {
 
@@ -74,6 +88,10 @@ public class JarWalker {
     }
 
     private final Path jar;
+    private int threads = 1;
+    private LoadMode mode = LoadMode.FULL;
+    private ClassFilter filter = null;
+    private boolean largest_first = false;
 
     /**
      * Creates a new jar walker.
@@ -82,45 +100,185 @@ public class JarWalker {
         this.jar = jar;
     }
 
+    /**
+     * Gets the number of threads used to load classes.
+     */
+    public int getThreadCount() {
+        return this.threads;
+    }
+
+    /**
+     * Sets the number of threads used to load classes. If more than one thread
+     * is used then the entries of the jar are split between a pool of workers
+     * which read, parse and decompile them. Types are still inserted into the
+     * source set in jar order, unless scheduling largest first.
+     */
+    public void setThreadCount(int threads) {
+        checkArgument(threads > 0, "Thread count must be positive");
+        this.threads = threads;
+    }
+
+    public LoadMode getLoadMode() {
+        return this.mode;
+    }
+
+    /**
+     * Sets how much of each class is loaded, defaults to
+     * {@link LoadMode#FULL}.
+     */
+    public void setLoadMode(LoadMode mode) {
+        this.mode = checkNotNull(mode, "mode");
+    }
+
+    /**
+     * Sets a filter which decides which classes from the jar are loaded, or
+     * null to load all classes.
+     */
+    public void setClassFilter(ClassFilter filter) {
+        this.filter = filter;
+    }
+
+    public boolean isLargestFirst() {
+        return this.largest_first;
+    }
+
+    /**
+     * Sets if classes are loaded from the largest to the smallest when loading
+     * with multiple threads, so that a large class does not finish long after
+     * the rest. Classes are ordered by the uncompressed size recorded in the
+     * central directory, and types are given to the consumer in the order that
+     * they finish loading. Disabled by default.
+     */
+    public void setLargestFirst(boolean largest_first) {
+        this.largest_first = largest_first;
+    }
+
     /**
      * Produces a new obfuscated source set for this version.
      */
     public void walk(SourceSet sources) {
-        scanJar(this.jar, sources);
+        try {
+            scanJar(this.jar, sources, sources::add);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
 
-    private void scanJar(Path path, SourceSet src) {
-        try (JarInputStream jar = new JarInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
-            ZipEntry entry = jar.getNextEntry();
-            if (entry == null) {
+    /**
+     * Loads the types of the jar against the given source set, but gives them
+     * to the consumer rather than inserting them into the source set. At most
+     * a few types per thread are held by the walker at once so the consumer
+     * may release each type once it has been used.
+     */
+    public void walk(SourceSet src, TypeConsumer consumer) throws IOException {
+        checkNotNull(consumer, "consumer");
+        scanJar(this.jar, src, consumer);
+    }
+
+    private void scanJar(Path path, SourceSet src, TypeConsumer consumer) throws IOException {
+        if (!MappedJarFile.canMap(path)) {
+            scanJarStream(path, src, consumer);
+            return;
+        }
+        try (MappedJarFile jar = new MappedJarFile(path)) {
+            if (this.threads > 1) {
+                scanJarParallel(jar, src, consumer);
                 return;
             }
-            do {
-                if (entry.isDirectory()) {
+            try (MappedJarFile.Reader reader = jar.newReader()) {
+                for (MappedJarFile.Entry entry : jar.getEntries()) {
+                    if (!isClassFile(entry)) {
+                        continue;
+                    }
+                    TypeEntry type = scanClassFile(reader, entry, src);
+                    if (type != null) {
+                        consumer.accept(type);
+                    }
+                }
+            }
+        }
+    }
+
+    private void scanJarStream(Path path, SourceSet src, TypeConsumer consumer) throws IOException {
+        // Entry sizes are not known up front so classes are always loaded in
+        // jar order
+        try (JarInputStream jar = new JarInputStream(new BufferedInputStream(Files.newInputStream(path)));
+                LoaderPool pool = this.threads > 1 ? new LoaderPool(this.threads, consumer) : null) {
+            for (ZipEntry entry = jar.getNextEntry(); entry != null; entry = jar.getNextEntry()) {
+                if (entry.isDirectory() || !entry.getName().endsWith(".class")) {
                     continue;
                 }
-                final String name = entry.getName();
-                if (!name.endsWith(".class")) {
+                byte[] data = ByteStreams.toByteArray(jar);
+                if (pool != null) {
+                    pool.submit(() -> scanClass(data, data.length, src));
                     continue;
                 }
-                scanClassFile(jar, src);
-            } while ((entry = jar.getNextEntry()) != null);
-        } catch (IOException e) {
-            e.printStackTrace();
-            return;
+                TypeEntry type = scanClass(data, data.length, src);
+                if (type != null) {
+                    consumer.accept(type);
+                }
+            }
+            if (pool != null) {
+                pool.finish();
+            }
         }
     }
 
-    private void scanClassFile(JarInputStream input, SourceSet src) throws IOException {
-        ClassReader reader = new ClassReader(input);
-        ClassNode cn = new ClassNode();
-        reader.accept(cn, 0);
+    private void scanJarParallel(MappedJarFile jar, SourceSet src, TypeConsumer consumer) throws IOException {
+        // Each worker reads and inflates its own entries into a reused buffer
+        List<MappedJarFile.Reader> readers = Collections.synchronizedList(Lists.newArrayList());
+        ThreadLocal<MappedJarFile.Reader> local_reader = ThreadLocal.withInitial(() -> {
+            MappedJarFile.Reader reader = jar.newReader();
+            readers.add(reader);
+            return reader;
+        });
+        try (LoaderPool pool = new LoaderPool(this.threads, consumer, !this.largest_first)) {
+            List<MappedJarFile.Entry> entries = Lists.newArrayList();
+            for (MappedJarFile.Entry entry : jar.getEntries()) {
+                if (isClassFile(entry)) {
+                    entries.add(entry);
+                }
+            }
+            if (this.largest_first) {
+                entries.sort(Comparator.comparingLong(MappedJarFile.Entry::getSize).reversed());
+            }
+            for (MappedJarFile.Entry entry : entries) {
+                pool.submit(() -> scanClassFile(local_reader.get(), entry, src));
+            }
+            pool.finish();
+        } finally {
+            for (MappedJarFile.Reader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    private static boolean isClassFile(MappedJarFile.Entry entry) {
+        return !entry.isDirectory() && entry.getName().endsWith(".class");
+    }
+
+    private TypeEntry scanClassFile(MappedJarFile.Reader reader, MappedJarFile.Entry entry, SourceSet src) throws IOException {
+        byte[] data = reader.read(entry);
+        if (this.mode == LoadMode.LAZY) {
+            // lazy method bodies keep the class data alive so it must not be
+            // the reader's shared buffer
+            data = Arrays.copyOf(data, entry.getSize());
+        }
+        return scanClass(data, entry.getSize(), src);
+    }
+
+    private TypeEntry scanClass(byte[] data, int length, SourceSet src) {
+        ClassReader cr = new ClassReader(data, 0, length);
+        String name = cr.getClassName();
         for (String ex : EXCLUDES) {
-            if (cn.name.startsWith(ex)) {
-                return;
+            if (name.startsWith(ex)) {
+                return null;
             }
         }
-        SingularClassLoader.instance.load(cn, src);
+        if (this.filter != null && !this.filter.accept(name, data, length)) {
+            return null;
+        }
+        return SingularClassLoader.instance.build(cr, src, this.mode);
     }
 
 }
@@ -0,0 +1,99 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.ast.io;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.spongepowered.despector.ast.io.insn.InstructionRecorder;
+import org.spongepowered.despector.ast.members.MethodEntry;
+import org.spongepowered.despector.ast.members.insn.StatementBlock;
+
+import java.util.function.Supplier;
+
+/**
+ * A deferred method body which decompiles the method when first requested.
+ *
+ * <p>The bodies of a class share the reader of the original class data. A
+ * body reads only the code of its own method, which is found by its index in
+ * the class, the code of every other method is skipped by the reader. The
+ * reference to the reader is dropped once the body has been built.</p>
+ */
+class LazyMethodBody implements Supplier<StatementBlock> {
+
+    private final String owner;
+    private final MethodEntry method;
+    private final int index;
+    private ClassReader reader;
+
+    LazyMethodBody(ClassReader reader, String owner, MethodEntry method, int index) {
+        this.reader = reader;
+        this.owner = owner;
+        this.method = method;
+        this.index = index;
+    }
+
+    @Override
+    public StatementBlock get() {
+        if (this.reader == null) {
+            throw new IllegalStateException("Body of " + this.method + " in " + this.owner + " was already built");
+        }
+        MethodFilter filter = new MethodFilter(this.index);
+        this.reader.accept(filter, 0);
+        this.reader = null;
+        if (filter.found == null) {
+            throw new IllegalStateException("Method " + this.method + " no longer present in " + this.owner);
+        }
+        return SingularClassLoader.buildBody(this.owner, this.method, filter.found);
+    }
+
+    /**
+     * A class visitor which records the code of the method at the given index
+     * and skips all others.
+     */
+    private static class MethodFilter extends ClassVisitor {
+
+        private final int index;
+        private int next = 0;
+        InstructionRecorder found;
+
+        public MethodFilter(int index) {
+            super(Opcodes.ASM5);
+            this.index = index;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+            if (this.next++ != this.index) {
+                return null;
+            }
+            this.found = new InstructionRecorder(access, desc);
+            return this.found;
+        }
+
+    }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.ast.io;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Queues;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.spongepowered.despector.ast.type.TypeEntry;
+
+import java.io.IOException;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A pool of worker threads which load classes for a walker. Loaded types are
+ * given to the consumer on the thread which submitted them, either in the
+ * order that they were submitted or in the order that they finished loading.
+ *
+ * <p>Idle workers always take the oldest submitted task, so submitting the
+ * most expensive classes first keeps any one class from finishing long after
+ * the others.</p>
+ */
+class LoaderPool implements AutoCloseable {
+
+    // The number of loaded classes which may be waiting to be given to the
+    // consumer per worker thread before submitting blocks.
+    private static final int PENDING_PER_THREAD = 4;
+
+    private final ExecutorService workers;
+    private final TypeConsumer consumer;
+    private final Deque<Future<TypeEntry>> pending = Queues.newArrayDeque();
+    private final CompletionService<TypeEntry> completed;
+    private final int max_pending;
+    private int in_flight = 0;
+
+    LoaderPool(int threads, TypeConsumer consumer) {
+        this(threads, consumer, true);
+    }
+
+    /**
+     * Creates a new pool. If the pool is not ordered then types are given to
+     * the consumer as soon as they are loaded, so that a slow class does not
+     * hold back the classes submitted after it.
+     */
+    LoaderPool(int threads, TypeConsumer consumer, boolean ordered) {
+        this.workers = Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setNameFormat("despector-loader-%d").setDaemon(true).build());
+        this.consumer = consumer;
+        this.completed = ordered ? null : new ExecutorCompletionService<>(this.workers);
+        this.max_pending = threads * PENDING_PER_THREAD;
+    }
+
+    /**
+     * Submits a task which loads a type, or returns null if there is nothing
+     * to load. If too many types are pending then the next type is waited for
+     * and given to the consumer first.
+     */
+    public void submit(Callable<TypeEntry> task) throws IOException {
+        if (this.completed == null) {
+            this.pending.add(this.workers.submit(task));
+            if (this.pending.size() >= this.max_pending) {
+                insert(this.pending.poll());
+            }
+            return;
+        }
+        this.completed.submit(task);
+        this.in_flight++;
+        if (this.in_flight >= this.max_pending) {
+            insertCompleted();
+        }
+    }
+
+    /**
+     * Waits for all pending types and gives them to the consumer.
+     */
+    public void finish() throws IOException {
+        while (!this.pending.isEmpty()) {
+            insert(this.pending.poll());
+        }
+        while (this.in_flight > 0) {
+            insertCompleted();
+        }
+    }
+
+    private void insertCompleted() throws IOException {
+        Future<TypeEntry> next;
+        try {
+            next = this.completed.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading classes", e);
+        }
+        this.in_flight--;
+        insert(next);
+    }
+
+    private void insert(Future<TypeEntry> loaded) throws IOException {
+        TypeEntry type = get(loaded);
+        if (type != null) {
+            this.consumer.accept(type);
+        }
+    }
+
+    private static <V> V get(Future<V> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading classes", e);
+        } catch (ExecutionException e) {
+            Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * Stops the workers, abandoning any pending types.
+     */
+    @Override
+    public void close() {
+        this.workers.shutdownNow();
+        try {
+            this.workers.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,390 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.ast.io;
+
+import com.google.common.collect.Maps;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * A read only view of a jar file which is memory mapped and indexed from its
+ * central directory, allowing random access to entries by name.
+ *
+ * <p>Zip64 jars are supported, however the whole jar is mapped at once so it
+ * may be no larger than {@link Integer#MAX_VALUE} bytes, see
+ * {@link #canMap(Path)}.</p>
+ *
+ * <p>Entries are read through a {@link Reader}, which are not thread safe but
+ * any number of readers may be used on the same jar at once.</p>
+ */
+public class MappedJarFile implements Closeable {
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_HEADER = 0x06054b50;
+    private static final int ZIP64_END_HEADER = 0x06064b50;
+    private static final int ZIP64_END_LOCATOR = 0x07064b50;
+    private static final int ZIP64_EXTRA = 0x0001;
+
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    private static final int END_HEADER_SIZE = 22;
+    private static final int ZIP64_END_HEADER_SIZE = 56;
+    private static final int ZIP64_END_LOCATOR_SIZE = 20;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer data;
+    private final Map<String, Entry> entries;
+
+    /**
+     * Gets if the given jar is small enough to be mapped.
+     */
+    public static boolean canMap(Path path) throws IOException {
+        return Files.size(path) <= Integer.MAX_VALUE;
+    }
+
+    /**
+     * Maps the given jar and reads its central directory.
+     */
+    public MappedJarFile(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = this.channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Jar is too large to be mapped: " + path);
+            }
+            this.data = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            this.data.order(ByteOrder.LITTLE_ENDIAN);
+            this.entries = Collections.unmodifiableMap(readCentralDirectory(path));
+        } catch (IOException | RuntimeException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    private Map<String, Entry> readCentralDirectory(Path path) throws IOException {
+        int end = findEndHeader();
+        if (end == -1) {
+            throw new IOException("No central directory found in " + path);
+        }
+        long count = this.data.getShort(end + 10) & 0xFFFF;
+        long offset = this.data.getInt(end + 16) & 0xFFFFFFFFL;
+        int locator = end - ZIP64_END_LOCATOR_SIZE;
+        if (locator >= 0 && this.data.getInt(locator) == ZIP64_END_LOCATOR) {
+            // the counts and offset in the end header may be markers, the
+            // real values are in the zip64 end header
+            long zip64_end = this.data.getLong(locator + 8);
+            if (zip64_end < 0 || zip64_end > locator - ZIP64_END_HEADER_SIZE || this.data.getInt((int) zip64_end) != ZIP64_END_HEADER) {
+                throw new IOException("Malformed zip64 end header in " + path);
+            }
+            count = this.data.getLong((int) zip64_end + 32);
+            offset = this.data.getLong((int) zip64_end + 48);
+        }
+        if (count < 0 || offset < 0 || offset > end) {
+            throw new IOException("Malformed central directory in " + path);
+        }
+        Map<String, Entry> found = Maps.newLinkedHashMap();
+        int pos = (int) offset;
+        for (long i = 0; i < count; i++) {
+            if (pos + CENTRAL_HEADER_SIZE > this.data.limit() || this.data.getInt(pos) != CENTRAL_HEADER) {
+                throw new IOException("Malformed central directory in " + path);
+            }
+            int method = this.data.getShort(pos + 10) & 0xFFFF;
+            long compressed = this.data.getInt(pos + 20) & 0xFFFFFFFFL;
+            long size = this.data.getInt(pos + 24) & 0xFFFFFFFFL;
+            int name_length = this.data.getShort(pos + 28) & 0xFFFF;
+            int extra_length = this.data.getShort(pos + 30) & 0xFFFF;
+            int comment_length = this.data.getShort(pos + 32) & 0xFFFF;
+            long header = this.data.getInt(pos + 42) & 0xFFFFFFFFL;
+            int extra = pos + CENTRAL_HEADER_SIZE + name_length;
+            if (extra + extra_length > this.data.limit()) {
+                throw new IOException("Malformed central directory in " + path);
+            }
+            if (size == 0xFFFFFFFFL || compressed == 0xFFFFFFFFL || header == 0xFFFFFFFFL) {
+                // the zip64 extra field holds only the values which are
+                // markers, in this order
+                int field = findExtra(extra, extra_length, ZIP64_EXTRA);
+                if (field == -1) {
+                    throw new IOException("Missing zip64 extra field in " + path);
+                }
+                int field_end = field + 4 + (this.data.getShort(field + 2) & 0xFFFF);
+                field += 4;
+                if (size == 0xFFFFFFFFL) {
+                    size = readExtra(field, field_end, path);
+                    field += 8;
+                }
+                if (compressed == 0xFFFFFFFFL) {
+                    compressed = readExtra(field, field_end, path);
+                    field += 8;
+                }
+                if (header == 0xFFFFFFFFL) {
+                    header = readExtra(field, field_end, path);
+                }
+            }
+            // values from the zip64 extra field are unsigned
+            if (compressed < 0 || size < 0 || header < 0
+                    || compressed > Integer.MAX_VALUE || size > Integer.MAX_VALUE || header > Integer.MAX_VALUE) {
+                throw new IOException("Entry is too large to be read from " + path);
+            }
+            byte[] name = new byte[name_length];
+            ByteBuffer view = this.data.duplicate();
+            view.position(pos + CENTRAL_HEADER_SIZE);
+            view.get(name);
+            Entry entry = new Entry(new String(name, StandardCharsets.UTF_8), method, (int) compressed, (int) size, (int) header);
+            found.put(entry.getName(), entry);
+            pos += CENTRAL_HEADER_SIZE + name_length + extra_length + comment_length;
+        }
+        return found;
+    }
+
+    private int findExtra(int start, int length, int id) {
+        int pos = start;
+        while (pos + 4 <= start + length) {
+            int size = this.data.getShort(pos + 2) & 0xFFFF;
+            if ((this.data.getShort(pos) & 0xFFFF) == id) {
+                return pos + 4 + size <= start + length ? pos : -1;
+            }
+            pos += 4 + size;
+        }
+        return -1;
+    }
+
+    private long readExtra(int pos, int end, Path path) throws IOException {
+        if (pos + 8 > end) {
+            throw new IOException("Malformed zip64 extra field in " + path);
+        }
+        return this.data.getLong(pos);
+    }
+
+    private int findEndHeader() {
+        int min = Math.max(0, this.data.limit() - END_HEADER_SIZE - MAX_COMMENT_SIZE);
+        for (int i = this.data.limit() - END_HEADER_SIZE; i >= min; i--) {
+            if (this.data.getInt(i) == END_HEADER) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets all entries in this jar, in central directory order.
+     */
+    public Collection<Entry> getEntries() {
+        return this.entries.values();
+    }
+
+    /**
+     * Gets the entry with the given name, or null if there is no such entry.
+     */
+    public Entry getEntry(String name) {
+        return this.entries.get(name);
+    }
+
+    /**
+     * Gets the raw, possibly compressed, contents of the given entry as a
+     * slice of the mapped jar. No data is copied.
+     */
+    public ByteBuffer getRawData(Entry entry) throws IOException {
+        int start = dataOffset(entry);
+        ByteBuffer view = this.data.duplicate();
+        view.position(start);
+        view.limit(start + entry.getCompressedSize());
+        return view.slice();
+    }
+
+    private int dataOffset(Entry entry) throws IOException {
+        int offset = entry.data_offset;
+        if (offset == -1) {
+            int header = entry.header_offset;
+            if (header + LOCAL_HEADER_SIZE > this.data.limit() || this.data.getInt(header) != LOCAL_HEADER) {
+                throw new IOException("Malformed local header for " + entry.getName());
+            }
+            int name_length = this.data.getShort(header + 26) & 0xFFFF;
+            int extra_length = this.data.getShort(header + 28) & 0xFFFF;
+            offset = header + LOCAL_HEADER_SIZE + name_length + extra_length;
+            if (offset + entry.getCompressedSize() > this.data.limit()) {
+                throw new IOException("Truncated entry " + entry.getName());
+            }
+            entry.data_offset = offset;
+        }
+        return offset;
+    }
+
+    /**
+     * Creates a new reader for the entries of this jar.
+     */
+    public Reader newReader() {
+        return new Reader();
+    }
+
+    /**
+     * Closes the underlying file. The mapping itself is released once it is
+     * garbage collected.
+     */
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    /**
+     * An entry in the central directory of the jar.
+     */
+    public static class Entry {
+
+        private final String name;
+        private final int method;
+        private final int compressed_size;
+        private final int size;
+        final int header_offset;
+        volatile int data_offset = -1;
+
+        Entry(String name, int method, int compressed, int size, int header) {
+            this.name = name;
+            this.method = method;
+            this.compressed_size = compressed;
+            this.size = size;
+            this.header_offset = header;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public boolean isDirectory() {
+            return this.name.endsWith("/");
+        }
+
+        /**
+         * Gets the compression method, either {@link ZipEntry#STORED} or
+         * {@link ZipEntry#DEFLATED}.
+         */
+        public int getMethod() {
+            return this.method;
+        }
+
+        public int getCompressedSize() {
+            return this.compressed_size;
+        }
+
+        /**
+         * Gets the uncompressed size of the entry.
+         */
+        public int getSize() {
+            return this.size;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry " + this.name;
+        }
+
+    }
+
+    /**
+     * Reads entries into a buffer which is reused between reads. A reader
+     * must only be used by one thread at a time.
+     */
+    public class Reader implements Closeable {
+
+        private final Inflater inflater = new Inflater(true);
+        private byte[] input = new byte[0];
+        private byte[] buffer = new byte[0];
+
+        Reader() {
+        }
+
+        /**
+         * Reads the uncompressed contents of the given entry. The returned
+         * array is owned by this reader and is only valid until the next read,
+         * the contents of the entry occupy the first {@link Entry#getSize()}
+         * bytes.
+         */
+        public byte[] read(Entry entry) throws IOException {
+            ByteBuffer raw = getRawData(entry);
+            byte[] out = buffer(entry.getSize());
+            if (entry.getMethod() == ZipEntry.STORED) {
+                raw.get(out, 0, entry.getSize());
+                return out;
+            } else if (entry.getMethod() != ZipEntry.DEFLATED) {
+                throw new IOException("Unsupported compression method " + entry.getMethod() + " for " + entry.getName());
+            }
+            // The java 8 inflater only accepts arrays so the compressed data
+            // is staged in a reused array rather than inflated from the
+            // mapping directly.
+            if (this.input.length < entry.getCompressedSize()) {
+                this.input = new byte[entry.getCompressedSize()];
+            }
+            raw.get(this.input, 0, entry.getCompressedSize());
+            this.inflater.reset();
+            this.inflater.setInput(this.input, 0, entry.getCompressedSize());
+            try {
+                int read = 0;
+                while (read < entry.getSize()) {
+                    int n = this.inflater.inflate(out, read, entry.getSize() - read);
+                    if (n == 0 && (this.inflater.finished() || this.inflater.needsInput() || this.inflater.needsDictionary())) {
+                        break;
+                    }
+                    read += n;
+                }
+                if (read != entry.getSize()) {
+                    throw new IOException("Unexpected end of deflated data for " + entry.getName());
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Malformed deflated data for " + entry.getName(), e);
+            }
+            return out;
+        }
+
+        private byte[] buffer(int size) {
+            if (this.buffer.length < size) {
+                this.buffer = new byte[Math.max(size, this.buffer.length * 2)];
+            }
+            return this.buffer;
+        }
+
+        @Override
+        public void close() {
+            this.inflater.end();
+        }
+
+    }
+
+}
@@ -28,16 +28,21 @@ import static org.objectweb.asm.Opcodes.ACC_ABSTRACT;
 import static org.objectweb.asm.Opcodes.ACC_ENUM;
 import static org.objectweb.asm.Opcodes.ACC_FINAL;
 import static org.objectweb.asm.Opcodes.ACC_INTERFACE;
+import static org.objectweb.asm.Opcodes.ACC_NATIVE;
 import static org.objectweb.asm.Opcodes.ACC_STATIC;
 import static org.objectweb.asm.Opcodes.ACC_SYNTHETIC;
 
+import com.google.common.collect.Lists;
 import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.AbstractInsnNode;
 import org.objectweb.asm.tree.ClassNode;
-import org.objectweb.asm.tree.FieldNode;
-import org.objectweb.asm.tree.MethodNode;
 import org.spongepowered.despector.ast.AccessModifier;
 import org.spongepowered.despector.ast.SourceSet;
+import org.spongepowered.despector.ast.io.insn.InstructionRecorder;
 import org.spongepowered.despector.ast.io.insn.InstructionTreeBuilder;
 import org.spongepowered.despector.ast.members.FieldEntry;
 import org.spongepowered.despector.ast.members.MethodEntry;
@@ -48,116 +53,350 @@ import org.spongepowered.despector.ast.members.insn.assign.StaticFieldAssign;
 import org.spongepowered.despector.ast.type.ClassEntry;
 import org.spongepowered.despector.ast.type.EnumEntry;
 import org.spongepowered.despector.ast.type.InterfaceEntry;
+import org.spongepowered.despector.ast.type.SignatureParser;
+import org.spongepowered.despector.ast.type.SignatureParser.ClassSignature;
 import org.spongepowered.despector.ast.type.TypeEntry;
 import org.spongepowered.despector.util.AstUtil;
 import org.spongepowered.despector.util.TypeHelper;
 
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class SingularClassLoader {
 
+    /**
+     * How much of a class is loaded.
+     */
+    public static enum LoadMode {
+        /**
+         * All method bodies are decompiled while the class is loaded.
+         */
+        FULL,
+        /**
+         * Method bodies are decompiled the first time that they are requested
+         * from their {@link MethodEntry}.
+         */
+        LAZY,
+        /**
+         * Only the type, field and method declarations are loaded, code, debug
+         * info and frames are skipped entirely by the reader. Methods will have
+         * no instructions.
+         */
+        HEADERS
+    }
+
+    /**
+     * Classes with at least this many methods have their method bodies
+     * decompiled in parallel when fully loaded.
+     */
+    public static final int PARALLEL_METHOD_THRESHOLD = 32;
+
     public static final SingularClassLoader instance = new SingularClassLoader();
 
+    // Buffers larger than this are not kept for the next class built on the
+    // thread.
+    private static final int RETAINED_CODE_CAPACITY = 65536;
+
+    // The method code of each class is recorded into a buffer which is reused
+    // between the classes built on each thread. A buffer is removed while in
+    // use so that a nested build gets its own.
+    private static final ThreadLocal<List<AbstractInsnNode>> CODE_BUFFERS = ThreadLocal.withInitial(Lists::newArrayList);
+
     private SingularClassLoader() {
     }
 
     public TypeEntry load(Path file) throws IOException {
-        ClassReader reader = new ClassReader(new FileInputStream(file.toFile()));
-        ClassNode cn = new ClassNode();
-
-        reader.accept(cn, 0);
-        return load(cn, null);
+        return load(file, null, LoadMode.FULL);
     }
 
     public TypeEntry load(Path file, SourceSet src) throws IOException {
-        ClassReader reader = new ClassReader(new FileInputStream(file.toFile()));
-        ClassNode cn = new ClassNode();
+        return load(file, src, LoadMode.FULL);
+    }
+
+    /**
+     * Loads the given class file and inserts the resulting type into the
+     * source set, if one is given.
+     */
+    public TypeEntry load(Path file, SourceSet src, LoadMode mode) throws IOException {
+        ClassReader reader;
+        try (InputStream in = Files.newInputStream(file)) {
+            reader = new ClassReader(in);
+        }
+        return load(reader, src, mode);
+    }
+
+    /**
+     * Loads the class read by the given reader and inserts the resulting type
+     * into the source set, if one is given.
+     */
+    public TypeEntry load(ClassReader reader, SourceSet src, LoadMode mode) {
+        TypeEntry entry = build(reader, src, mode);
+        if (src != null) {
+            src.add(entry);
+        }
+        return entry;
+    }
 
-        reader.accept(cn, 0);
-        return load(cn, src);
+    /**
+     * Builds the type entry for the class read by the given reader without
+     * inserting it into the source set.
+     *
+     * <p>When loading lazily the reader is retained by the method entries
+     * until their bodies are built and must therefore not be modified.</p>
+     */
+    public TypeEntry build(ClassReader reader, SourceSet src, LoadMode mode) {
+        if (mode == LoadMode.HEADERS) {
+            TypeBuilder builder = new TypeBuilder(src, null, false);
+            reader.accept(builder, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+            return builder.finish();
+        } else if (mode == LoadMode.LAZY) {
+            TypeBuilder builder = new TypeBuilder(src, reader, false);
+            reader.accept(builder, ClassReader.SKIP_CODE);
+            return builder.finish();
+        }
+        TypeBuilder builder = new TypeBuilder(src, null, true);
+        reader.accept(builder, 0);
+        return builder.finish();
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Loads the given class node and inserts the resulting type into the
+     * source set, if one is given.
+     */
     public TypeEntry load(ClassNode cn, SourceSet src) {
-        int acc = cn.access;
-        TypeEntry entry = null;
-        if ((acc & ACC_ENUM) != 0) {
-            entry = new EnumEntry(src);
-        } else if ((acc & ACC_INTERFACE) != 0) {
-            entry = new InterfaceEntry(src);
-        } else {
-            entry = new ClassEntry(src);
-            ((ClassEntry) entry).setSuperclass("L" + cn.superName + ";");
+        TypeEntry entry = build(cn, src);
+        if (src != null) {
+            src.add(entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Builds the type entry for the given class node without inserting it into
+     * the source set. This does not modify the source set and is therefore
+     * safe to call from multiple threads at once.
+     */
+    public TypeEntry build(ClassNode cn, SourceSet src) {
+        TypeBuilder builder = new TypeBuilder(src, null, true);
+        cn.accept(builder);
+        return builder.finish();
+    }
+
+    /**
+     * Decompiles the body of the given method, returning null and logging the
+     * offending bytecode if it cannot be decompiled.
+     */
+    static StatementBlock buildBody(String owner, MethodEntry m, InstructionRecorder body) {
+        try {
+            return InstructionTreeBuilder.build(body, m.getSource());
+        } catch (Exception ex) {
+            System.err.println("Error decompiling method body for " + owner + " " + m.toString());
+            ex.printStackTrace();
+            System.err.println("Offending method bytecode:");
+            for (String line : AstUtil.insnListToLines(body.getInstructions())) {
+                System.err.println(line);
+            }
         }
-        entry.setName(cn.name);
-        entry.setAccessModifier(AccessModifier.fromModifiers(cn.access));
-        entry.setFinal((cn.access & ACC_FINAL) != 0);
-        entry.setSynthetic((cn.access & ACC_SYNTHETIC) != 0);
-        entry.getGenericArgs().addAll(TypeHelper.getGenericArgs(cn.signature));
-
-        // Find all fields
-        for (FieldNode fn : (List<FieldNode>) cn.fields) {
-            FieldEntry f = new FieldEntry(src);
-            f.setAccessModifier(AccessModifier.fromModifiers(fn.access));
-            f.setFinal((fn.access & ACC_FINAL) != 0);
-            f.setName(fn.name);
-            f.setOwner(cn.name);
-            f.setStatic((fn.access & ACC_STATIC) != 0);
-            f.setType(fn.desc);
-            entry.addField(f);
+        return null;
+    }
+
+    /**
+     * Decompiles the bodies of a range of the methods of a class, splitting
+     * the range in half until it is small enough to be decompiled directly.
+     * The methods have already been added to their type so declaration order
+     * is unaffected by the order that their bodies are completed in.
+     */
+    private static class MethodBodyTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private static final int LEAF_SIZE = 4;
+
+        private final String owner;
+        private final MethodEntry[] entries;
+        private final List<InstructionRecorder> bodies;
+        private final int start;
+        private final int end;
+
+        MethodBodyTask(String owner, MethodEntry[] entries, List<InstructionRecorder> bodies, int start, int end) {
+            this.owner = owner;
+            this.entries = entries;
+            this.bodies = bodies;
+            this.start = start;
+            this.end = end;
         }
 
-        // Find all methods
-        for (MethodNode mn : (List<MethodNode>) cn.methods) {
-            MethodEntry m = new MethodEntry(src);
-            m.setAbstract((mn.access & ACC_ABSTRACT) != 0);
-            m.setAccessModifier(AccessModifier.fromModifiers(mn.access));
-            m.setFinal((mn.access & ACC_FINAL) != 0);
-            m.setName(mn.name);
-            m.setOwner(cn.name);
-            m.setSignature(mn.desc);
-            m.setStatic((mn.access & ACC_STATIC) != 0);
-            m.setSynthetic((mn.access & ACC_SYNTHETIC) != 0);
-            try {
-                StatementBlock insns = InstructionTreeBuilder.build(mn);
-                m.setInstructions(insns);
-            } catch (Exception ex) {
-                System.err.println("Error decompiling method body for " + cn.name + " " + m.toString());
-                ex.printStackTrace();
-                System.err.println("Offending method bytecode:");
-                Iterator<AbstractInsnNode> it = mn.instructions.iterator();
-                while (it.hasNext()) {
-                    System.err.println(AstUtil.insnToString(it.next()));
+        @Override
+        protected void compute() {
+            if (this.end - this.start <= LEAF_SIZE) {
+                for (int i = this.start; i < this.end; i++) {
+                    this.entries[i].setInstructions(buildBody(this.owner, this.entries[i], this.bodies.get(i)));
                 }
+                return;
             }
-            entry.addMethod(m);
+            int mid = (this.start + this.end) >>> 1;
+            invokeAll(new MethodBodyTask(this.owner, this.entries, this.bodies, this.start, mid),
+                    new MethodBodyTask(this.owner, this.entries, this.bodies, mid, this.end));
         }
 
-        if (entry instanceof EnumEntry) {
-            MethodEntry clinit = entry.getStaticMethod("<clinit>");
-            if (clinit != null) {
-                Iterator<Statement> initializers = clinit.getInstructions().getStatements().iterator();
-                while (initializers.hasNext()) {
-                    Statement next = initializers.next();
-                    if (!(next instanceof StaticFieldAssign)) {
-                        break;
-                    }
-                    StaticFieldAssign assign = (StaticFieldAssign) next;
-                    if (!TypeHelper.descToType(assign.getOwner()).equals(entry.getName()) || !(assign.getValue() instanceof NewRefArg)) {
-                        break;
-                    }
-                    ((EnumEntry) entry).addEnumConstant(assign.getFieldName());
+    }
+
+    /**
+     * Builds a type entry from the events of a class reader, or of a class
+     * node being replayed. The code of each method is recorded straight from
+     * the reader and decompiled once the whole class has been read.
+     */
+    private static class TypeBuilder extends ClassVisitor {
+
+        private final SourceSet src;
+        private final ClassReader lazy_source;
+        private final boolean code;
+        private final List<MethodEntry> methods = Lists.newArrayList();
+        private final List<InstructionRecorder> bodies = Lists.newArrayList();
+        private List<AbstractInsnNode> code_buffer;
+        private int method_index = 0;
+        private String name;
+        private TypeEntry entry;
+
+        /**
+         * Creates a builder which records method code if code is set, or
+         * otherwise gives each method a lazy body which reads its code from
+         * the lazy source if one is given.
+         */
+        TypeBuilder(SourceSet src, ClassReader lazy_source, boolean code) {
+            super(Opcodes.ASM5);
+            this.src = src;
+            this.lazy_source = lazy_source;
+            this.code = code;
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            ClassSignature generics = null;
+            if (signature != null) {
+                try {
+                    generics = SignatureParser.parseClass(signature);
+                } catch (IllegalArgumentException e) {
+                    // obfuscators may leave behind signatures which do not
+                    // match the class, these are ignored
+                }
+            }
+            if (generics != null && generics.getInterfaces().size() != (interfaces == null ? 0 : interfaces.length)) {
+                generics = null;
+            }
+            if ((access & ACC_ENUM) != 0) {
+                this.entry = new EnumEntry(this.src);
+            } else if ((access & ACC_INTERFACE) != 0) {
+                this.entry = new InterfaceEntry(this.src);
+            } else {
+                this.entry = new ClassEntry(this.src);
+                ((ClassEntry) this.entry).setSuperclass(intern("L" + superName + ";"), generics == null ? null : generics.getSuperclass().getParams());
+            }
+            if (interfaces != null) {
+                for (int i = 0; i < interfaces.length; i++) {
+                    this.entry.addInterface(intern("L" + interfaces[i] + ";"), generics == null ? null : generics.getInterfaces().get(i).getParams());
                 }
             }
+            this.name = intern(name);
+            this.entry.setName(this.name);
+            this.entry.setAccessModifier(AccessModifier.fromModifiers(access));
+            this.entry.setFinal((access & ACC_FINAL) != 0);
+            this.entry.setSynthetic((access & ACC_SYNTHETIC) != 0);
+            if (generics != null) {
+                this.entry.getGenericArgs().addAll(generics.getTypeParameters());
+            }
         }
-        if (src != null) {
-            src.add(entry);
+
+        @Override
+        public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+            FieldEntry f = new FieldEntry(this.src);
+            f.setAccessModifier(AccessModifier.fromModifiers(access));
+            f.setFinal((access & ACC_FINAL) != 0);
+            f.setName(intern(name));
+            f.setOwner(this.name);
+            f.setStatic((access & ACC_STATIC) != 0);
+            f.setType(intern(desc));
+            this.entry.addField(f);
+            return null;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+            MethodEntry m = new MethodEntry(this.src);
+            m.setAbstract((access & ACC_ABSTRACT) != 0);
+            m.setAccessModifier(AccessModifier.fromModifiers(access));
+            m.setFinal((access & ACC_FINAL) != 0);
+            m.setName(intern(name));
+            m.setOwner(this.name);
+            m.setSignature(intern(desc));
+            m.setStatic((access & ACC_STATIC) != 0);
+            m.setSynthetic((access & ACC_SYNTHETIC) != 0);
+            this.entry.addMethod(m);
+            int index = this.method_index++;
+            if (this.lazy_source != null && (access & (ACC_ABSTRACT | ACC_NATIVE)) == 0) {
+                m.setLazyInstructions(new LazyMethodBody(this.lazy_source, this.name, m, index));
+                return null;
+            }
+            if (!this.code) {
+                return null;
+            }
+            if (this.code_buffer == null) {
+                this.code_buffer = CODE_BUFFERS.get();
+                CODE_BUFFERS.remove();
+            }
+            InstructionRecorder body = new InstructionRecorder(access, desc, this.code_buffer);
+            this.methods.add(m);
+            this.bodies.add(body);
+            return body;
+        }
+
+        private String intern(String str) {
+            return this.src == null ? str : this.src.intern(str);
+        }
+
+        /**
+         * Decompiles the recorded method bodies and finishes the type.
+         */
+        TypeEntry finish() {
+            MethodEntry[] built = this.methods.toArray(new MethodEntry[this.methods.size()]);
+            if (built.length >= PARALLEL_METHOD_THRESHOLD) {
+                ForkJoinPool.commonPool().invoke(new MethodBodyTask(this.name, built, this.bodies, 0, built.length));
+            } else {
+                for (int i = 0; i < built.length; i++) {
+                    built[i].setInstructions(buildBody(this.name, built[i], this.bodies.get(i)));
+                }
+            }
+            if (this.code_buffer != null && this.code_buffer.size() <= RETAINED_CODE_CAPACITY) {
+                this.code_buffer.clear();
+                CODE_BUFFERS.set(this.code_buffer);
+            }
+            this.code_buffer = null;
+
+            if (this.entry instanceof EnumEntry) {
+                MethodEntry clinit = this.entry.getStaticMethod("<clinit>");
+                if (clinit != null && clinit.getInstructions() != null) {
+                    Iterator<Statement> initializers = clinit.getInstructions().getStatements().iterator();
+                    while (initializers.hasNext()) {
+                        Statement next = initializers.next();
+                        if (!(next instanceof StaticFieldAssign)) {
+                            break;
+                        }
+                        StaticFieldAssign assign = (StaticFieldAssign) next;
+                        if (!TypeHelper.descToType(assign.getOwner()).equals(this.entry.getName())
+                                || !(assign.getValue() instanceof NewRefArg)) {
+                            break;
+                        }
+                        ((EnumEntry) this.entry).addEnumConstant(assign.getFieldName());
+                    }
+                }
+            }
+            return this.entry;
         }
-        return entry;
 
     }
 
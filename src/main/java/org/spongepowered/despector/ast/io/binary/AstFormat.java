@@ -0,0 +1,127 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.ast.io.binary;
+
+/**
+ * Constants for the binary ast format shared by the {@link AstWriter} and
+ * {@link AstReader}.
+ *
+ * <p>A stream begins with the {@link #MAGIC} and {@link #VERSION} followed by
+ * any number of type records, each starting with one of the type tags, and is
+ * terminated by {@link #END}. Strings are written in full the first time they
+ * occur within a type record and as a reference to that first occurrence for
+ * the rest of the record, so the string table never holds more than the
+ * strings of one type. Statements and instructions are written depth first
+ * each starting with its node tag.</p>
+ */
+final class AstFormat {
+
+    static final int MAGIC = 0x44535041;
+    static final int VERSION = 1;
+
+    static final int END = 0;
+    static final int TYPE_CLASS = 1;
+    static final int TYPE_ENUM = 2;
+    static final int TYPE_INTERFACE = 3;
+
+    static final int STRING_NULL = 0;
+    static final int STRING_NEW = 1;
+    static final int STRING_REF_OFFSET = 2;
+
+    static final int FLAG_FINAL = 0x01;
+    static final int FLAG_SYNTHETIC = 0x02;
+    static final int FLAG_STATIC = 0x04;
+    static final int FLAG_ABSTRACT = 0x08;
+    static final int FLAG_BODY = 0x10;
+    static final int FLAG_PLACEHOLDER = 0x20;
+
+    static final int LOCAL_PARAMETER = 0x01;
+    static final int LOCAL_GENERICS = 0x02;
+
+    static final int NULL = 0;
+
+    // statements
+    static final int ARRAY_ASSIGN = 1;
+    static final int INSTANCE_FIELD_ASSIGN = 2;
+    static final int LOCAL_ASSIGN = 3;
+    static final int STATIC_FIELD_ASSIGN = 4;
+    static final int DO_WHILE = 5;
+    static final int FOR = 6;
+    static final int IF = 7;
+    static final int SWITCH = 8;
+    static final int WHILE = 9;
+    static final int INSTANCE_METHOD_CALL = 10;
+    static final int STATIC_METHOD_CALL = 11;
+    static final int NEW_INSTANCE = 12;
+    static final int INCREMENT = 13;
+    static final int RETURN_VALUE = 14;
+    static final int RETURN_VOID = 15;
+    static final int THROW = 16;
+    static final int COMMENT = 17;
+    static final int BREAK = 18;
+    static final int CONTINUE = 19;
+
+    // instructions
+    static final int CAST = 32;
+    static final int INSTANCE_FUNCTION = 33;
+    static final int INSTANCE_OF = 34;
+    static final int NEW_ARRAY = 35;
+    static final int NEW_REF = 36;
+    static final int STATIC_FUNCTION = 37;
+    static final int TERNARY = 38;
+    static final int DOUBLE_CONSTANT = 39;
+    static final int FLOAT_CONSTANT = 40;
+    static final int INT_CONSTANT = 41;
+    static final int LONG_CONSTANT = 42;
+    static final int NULL_CONSTANT = 43;
+    static final int STRING_CONSTANT = 44;
+    static final int TYPE_CONSTANT = 45;
+    static final int ARRAY_LOAD = 46;
+    static final int INSTANCE_FIELD = 47;
+    static final int LOCAL = 48;
+    static final int STATIC_FIELD = 49;
+    static final int ADD = 50;
+    static final int DIVIDE = 51;
+    static final int MULTIPLY = 52;
+    static final int REMAINDER = 53;
+    static final int SHIFT_LEFT = 54;
+    static final int SHIFT_RIGHT = 55;
+    static final int SUBTRACT = 56;
+    static final int UNSIGNED_SHIFT_RIGHT = 57;
+    static final int AND = 58;
+    static final int OR = 59;
+    static final int XOR = 60;
+
+    // conditions
+    static final int AND_CONDITION = 96;
+    static final int OR_CONDITION = 97;
+    static final int INVERSE_CONDITION = 98;
+    static final int BOOLEAN_CONDITION = 99;
+    static final int COMPARE_CONDITION = 100;
+
+    private AstFormat() {
+    }
+
+}
@@ -0,0 +1,631 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.ast.io.binary;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.spongepowered.despector.ast.io.binary.AstFormat.*;
+
+import com.google.common.collect.Lists;
+import org.objectweb.asm.Type;
+import org.spongepowered.despector.ast.AccessModifier;
+import org.spongepowered.despector.ast.SourceSet;
+import org.spongepowered.despector.ast.io.insn.Locals;
+import org.spongepowered.despector.ast.io.insn.Locals.Local;
+import org.spongepowered.despector.ast.members.FieldEntry;
+import org.spongepowered.despector.ast.members.MethodEntry;
+import org.spongepowered.despector.ast.members.insn.Statement;
+import org.spongepowered.despector.ast.members.insn.StatementBlock;
+import org.spongepowered.despector.ast.members.insn.arg.CastArg;
+import org.spongepowered.despector.ast.members.insn.arg.InstanceFunctionArg;
+import org.spongepowered.despector.ast.members.insn.arg.InstanceOfArg;
+import org.spongepowered.despector.ast.members.insn.arg.Instruction;
+import org.spongepowered.despector.ast.members.insn.arg.NewArrayArg;
+import org.spongepowered.despector.ast.members.insn.arg.NewRefArg;
+import org.spongepowered.despector.ast.members.insn.arg.StaticFunctionArg;
+import org.spongepowered.despector.ast.members.insn.arg.cst.DoubleConstantArg;
+import org.spongepowered.despector.ast.members.insn.arg.cst.FloatConstantArg;
+import org.spongepowered.despector.ast.members.insn.arg.cst.IntConstantArg;
+import org.spongepowered.despector.ast.members.insn.arg.cst.LongConstantArg;
+import org.spongepowered.despector.ast.members.insn.arg.cst.NullConstantArg;
+import org.spongepowered.despector.ast.members.insn.arg.cst.StringConstantArg;
+import org.spongepowered.despector.ast.members.insn.arg.cst.TypeConstantArg;
+import org.spongepowered.despector.ast.members.insn.arg.field.ArrayLoadArg;
+import org.spongepowered.despector.ast.members.insn.arg.field.InstanceFieldArg;
+import org.spongepowered.despector.ast.members.insn.arg.field.LocalArg;
+import org.spongepowered.despector.ast.members.insn.arg.field.StaticFieldArg;
+import org.spongepowered.despector.ast.members.insn.arg.operator.AddArg;
+import org.spongepowered.despector.ast.members.insn.arg.operator.DivideArg;
+import org.spongepowered.despector.ast.members.insn.arg.operator.MultiplyArg;
+import org.spongepowered.despector.ast.members.insn.arg.operator.RemainerArg;
+import org.spongepowered.despector.ast.members.insn.arg.operator.ShiftLeftArg;
+import org.spongepowered.despector.ast.members.insn.arg.operator.ShiftRightArg;
+import org.spongepowered.despector.ast.members.insn.arg.operator.SubtractArg;
+import org.spongepowered.despector.ast.members.insn.arg.operator.UnsignedShiftRightArg;
+import org.spongepowered.despector.ast.members.insn.arg.operator.bitwise.AndArg;
+import org.spongepowered.despector.ast.members.insn.arg.operator.bitwise.OrArg;
+import org.spongepowered.despector.ast.members.insn.arg.operator.bitwise.XorArg;
+import org.spongepowered.despector.ast.members.insn.assign.ArrayAssign;
+import org.spongepowered.despector.ast.members.insn.assign.InstanceFieldAssign;
+import org.spongepowered.despector.ast.members.insn.assign.LocalAssign;
+import org.spongepowered.despector.ast.members.insn.assign.StaticFieldAssign;
+import org.spongepowered.despector.ast.members.insn.branch.Break;
+import org.spongepowered.despector.ast.members.insn.branch.Continue;
+import org.spongepowered.despector.ast.members.insn.branch.DoWhileLoop;
+import org.spongepowered.despector.ast.members.insn.branch.ElseBlock;
+import org.spongepowered.despector.ast.members.insn.branch.ForLoop;
+import org.spongepowered.despector.ast.members.insn.branch.IfBlock;
+import org.spongepowered.despector.ast.members.insn.branch.TableSwitch;
+import org.spongepowered.despector.ast.members.insn.branch.Ternary;
+import org.spongepowered.despector.ast.members.insn.branch.WhileLoop;
+import org.spongepowered.despector.ast.members.insn.branch.condition.AndCondition;
+import org.spongepowered.despector.ast.members.insn.branch.condition.BooleanCondition;
+import org.spongepowered.despector.ast.members.insn.branch.condition.CompareCondition;
+import org.spongepowered.despector.ast.members.insn.branch.condition.Condition;
+import org.spongepowered.despector.ast.members.insn.branch.condition.InverseCondition;
+import org.spongepowered.despector.ast.members.insn.branch.condition.OrCondition;
+import org.spongepowered.despector.ast.members.insn.function.InstanceMethodCall;
+import org.spongepowered.despector.ast.members.insn.function.NewInstance;
+import org.spongepowered.despector.ast.members.insn.function.StaticMethodCall;
+import org.spongepowered.despector.ast.members.insn.misc.Comment;
+import org.spongepowered.despector.ast.members.insn.misc.IncrementStatement;
+import org.spongepowered.despector.ast.members.insn.misc.ReturnValue;
+import org.spongepowered.despector.ast.members.insn.misc.ReturnVoid;
+import org.spongepowered.despector.ast.members.insn.misc.ThrowException;
+import org.spongepowered.despector.ast.type.ClassEntry;
+import org.spongepowered.despector.ast.type.EnumEntry;
+import org.spongepowered.despector.ast.type.GenericArgument;
+import org.spongepowered.despector.ast.type.InterfaceEntry;
+import org.spongepowered.despector.ast.type.SignatureParser;
+import org.spongepowered.despector.ast.type.TypeEntry;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Reads types written by an {@link AstWriter} back into a source set without
+ * decompiling them again.
+ *
+ * <p>Types are read one at a time by {@link #next()} so only the type which is
+ * currently being read is held by the reader. A reader is not thread safe.</p>
+ */
+public class AstReader implements Closeable {
+
+    private final DataInputStream in;
+    private final SourceSet src;
+    private final List<String> strings = Lists.newArrayList();
+
+    private Locals locals;
+    private boolean finished = false;
+
+    /**
+     * Creates a new reader which creates types for the given source set and
+     * checks the format header of the given stream.
+     */
+    public AstReader(InputStream in, SourceSet src) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(checkNotNull(in, "in")));
+        this.src = checkNotNull(src, "src");
+        if (this.in.readInt() != MAGIC) {
+            throw new IOException("Not a despector ast stream");
+        }
+        int version = readVarInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported ast format version " + version + ", expected " + VERSION);
+        }
+    }
+
+    /**
+     * Reads all remaining types and adds them to the source set.
+     */
+    public void readAll() throws IOException {
+        TypeEntry type;
+        while ((type = next()) != null) {
+            this.src.add(type);
+        }
+    }
+
+    /**
+     * Reads the next type from the stream, or returns null if the end of the
+     * stream has been reached. The returned type is not added to the source
+     * set.
+     */
+    public TypeEntry next() throws IOException {
+        if (this.finished) {
+            return null;
+        }
+        int tag = this.in.readUnsignedByte();
+        TypeEntry type;
+        switch (tag) {
+        case END:
+            this.finished = true;
+            return null;
+        case TYPE_CLASS:
+            type = new ClassEntry(this.src);
+            break;
+        case TYPE_ENUM:
+            type = new EnumEntry(this.src);
+            break;
+        case TYPE_INTERFACE:
+            type = new InterfaceEntry(this.src);
+            break;
+        default:
+            throw new IOException("Unknown type tag " + tag);
+        }
+        this.strings.clear();
+        type.setName(readString());
+        type.setAccessModifier(readAccess());
+        int flags = this.in.readUnsignedByte();
+        type.setFinal((flags & FLAG_FINAL) != 0);
+        type.setSynthetic((flags & FLAG_SYNTHETIC) != 0);
+        if (type instanceof ClassEntry) {
+            String superclass = readString();
+            if (superclass != null) {
+                ((ClassEntry) type).setSuperclass(superclass, readStrings());
+            }
+        }
+        int interfaces = readVarInt();
+        for (int i = 0; i < interfaces; i++) {
+            type.addInterface(readString(), readStrings());
+        }
+        int generic_args = readVarInt();
+        for (int i = 0; i < generic_args; i++) {
+            type.getGenericArgs().add(new GenericArgument(readString(), readString()));
+        }
+        if (type instanceof EnumEntry) {
+            for (String cst : readStrings()) {
+                ((EnumEntry) type).addEnumConstant(cst);
+            }
+        }
+        int fields = readVarInt();
+        for (int i = 0; i < fields; i++) {
+            type.addField(readField());
+        }
+        int methods = readVarInt();
+        for (int i = 0; i < methods; i++) {
+            type.addMethod(readMethod());
+        }
+        return type;
+    }
+
+    private FieldEntry readField() throws IOException {
+        FieldEntry field = new FieldEntry(this.src);
+        field.setName(readString());
+        field.setType(readString());
+        field.setOwner(readString());
+        field.setAccessModifier(readAccess());
+        int flags = this.in.readUnsignedByte();
+        field.setFinal((flags & FLAG_FINAL) != 0);
+        field.setStatic((flags & FLAG_STATIC) != 0);
+        return field;
+    }
+
+    private MethodEntry readMethod() throws IOException {
+        MethodEntry method = new MethodEntry(this.src);
+        method.setName(readString());
+        method.setSignature(readString());
+        method.setOwner(readString());
+        method.setAccessModifier(readAccess());
+        int flags = this.in.readUnsignedByte();
+        method.setFinal((flags & FLAG_FINAL) != 0);
+        method.setSynthetic((flags & FLAG_SYNTHETIC) != 0);
+        method.setStatic((flags & FLAG_STATIC) != 0);
+        method.setAbstract((flags & FLAG_ABSTRACT) != 0);
+        List<String> params = readStrings();
+        if (params != null) {
+            method.getParamTypes().addAll(params);
+        }
+        if ((flags & FLAG_BODY) != 0) {
+            StatementBlock body = readBody();
+            body.setPlaceholder((flags & FLAG_PLACEHOLDER) != 0);
+            method.setInstructions(body);
+        }
+        return method;
+    }
+
+    private StatementBlock readBody() throws IOException {
+        this.locals = new Locals();
+        int count = readVarInt();
+        for (int i = 0; i < count; i++) {
+            Local local = this.locals.getLocal(i);
+            int flags = this.in.readUnsignedByte();
+            local.setName(readString());
+            local.setType(readString());
+            if ((flags & LOCAL_PARAMETER) != 0) {
+                local.setAsParameter();
+            }
+            if ((flags & LOCAL_GENERICS) != 0) {
+                local.setGenericType(SignatureParser.parseType(readString()));
+            }
+        }
+        StatementBlock body = readBlock();
+        this.locals = null;
+        return body;
+    }
+
+    private StatementBlock readBlock() throws IOException {
+        int type = readVarInt();
+        if (type == 0) {
+            return null;
+        }
+        StatementBlock block = new StatementBlock(ordinal(StatementBlock.Type.values(), type - 1, "block type"), this.locals);
+        int count = readVarInt();
+        for (int i = 0; i < count; i++) {
+            block.append(readStatement());
+        }
+        return block;
+    }
+
+    private Local readLocal() throws IOException {
+        int index = readVarInt();
+        if (index >= this.locals.getLocalCount()) {
+            throw new IOException("Local index " + index + " out of bounds");
+        }
+        return this.locals.getLocal(index);
+    }
+
+    private Statement readStatement() throws IOException {
+        int tag = this.in.readUnsignedByte();
+        switch (tag) {
+        case NULL:
+            return null;
+        case ARRAY_ASSIGN: {
+            Instruction array = readInstruction();
+            Instruction index = readInstruction();
+            return new ArrayAssign(array, index, readInstruction());
+        }
+        case INSTANCE_FIELD_ASSIGN: {
+            String name = readString();
+            String desc = readString();
+            String owner = readString();
+            Instruction owner_insn = readInstruction();
+            return new InstanceFieldAssign(name, desc, owner, owner_insn, readInstruction());
+        }
+        case LOCAL_ASSIGN: {
+            Local local = readLocal();
+            return new LocalAssign(local, readInstruction());
+        }
+        case STATIC_FIELD_ASSIGN: {
+            String name = readString();
+            String desc = readString();
+            String owner = readString();
+            return new StaticFieldAssign(name, desc, owner, readInstruction());
+        }
+        case DO_WHILE: {
+            String label = readString();
+            Condition condition = readCondition();
+            DoWhileLoop loop = new DoWhileLoop(condition, readBlock());
+            loop.setLabel(label);
+            return loop;
+        }
+        case FOR: {
+            String label = readString();
+            Statement init = readStatement();
+            Condition condition = readCondition();
+            Statement incr = readStatement();
+            ForLoop loop = new ForLoop(init, condition, incr, readBlock());
+            loop.setLabel(label);
+            return loop;
+        }
+        case IF: {
+            Condition condition = readCondition();
+            IfBlock iblock = new IfBlock(condition, readBlock());
+            StatementBlock else_block = readBlock();
+            if (else_block != null) {
+                iblock.setElseBlock(new ElseBlock(else_block));
+            }
+            return iblock;
+        }
+        case SWITCH: {
+            TableSwitch tswitch = new TableSwitch(readInstruction());
+            int cases = readVarInt();
+            for (int i = 0; i < cases; i++) {
+                StatementBlock body = readBlock();
+                boolean breaks = this.in.readBoolean();
+                boolean is_default = this.in.readBoolean();
+                int count = readVarInt();
+                List<Integer> indices = Lists.newArrayListWithCapacity(count);
+                for (int j = 0; j < count; j++) {
+                    indices.add(readSignedVarInt());
+                }
+                tswitch.addCase(new TableSwitch.Case(body, breaks, is_default, indices));
+            }
+            return tswitch;
+        }
+        case WHILE: {
+            String label = readString();
+            Condition condition = readCondition();
+            WhileLoop loop = new WhileLoop(condition, readBlock());
+            loop.setLabel(label);
+            return loop;
+        }
+        case INSTANCE_METHOD_CALL: {
+            String name = readString();
+            String desc = readString();
+            String owner = readString();
+            Instruction[] params = readInstructions();
+            return new InstanceMethodCall(name, desc, owner, params, readInstruction());
+        }
+        case STATIC_METHOD_CALL: {
+            String name = readString();
+            String desc = readString();
+            String owner = readString();
+            return new StaticMethodCall(name, desc, owner, readInstructions());
+        }
+        case NEW_INSTANCE: {
+            String type = readString();
+            String ctor = readString();
+            return new NewInstance(type, ctor, readInstructions());
+        }
+        case INCREMENT: {
+            Local local = readLocal();
+            return new IncrementStatement(local, readSignedVarInt());
+        }
+        case RETURN_VALUE:
+            return new ReturnValue(readInstruction());
+        case RETURN_VOID:
+            return new ReturnVoid();
+        case THROW:
+            return new ThrowException(readInstruction());
+        case COMMENT:
+            return new Comment(readStrings());
+        case BREAK:
+            return new Break(readString());
+        case CONTINUE:
+            return new Continue(readString());
+        default:
+            throw new IOException("Unknown statement tag " + tag);
+        }
+    }
+
+    private Instruction[] readInstructions() throws IOException {
+        int count = readVarInt();
+        if (count == 0) {
+            return null;
+        }
+        Instruction[] insns = new Instruction[count - 1];
+        for (int i = 0; i < insns.length; i++) {
+            insns[i] = readInstruction();
+        }
+        return insns;
+    }
+
+    private Instruction readInstruction() throws IOException {
+        int tag = this.in.readUnsignedByte();
+        switch (tag) {
+        case NULL:
+            return null;
+        case CAST: {
+            String type = readString();
+            return new CastArg(type, readInstruction());
+        }
+        case INSTANCE_FUNCTION: {
+            String name = readString();
+            String desc = readString();
+            String owner = readString();
+            Instruction[] params = readInstructions();
+            return new InstanceFunctionArg(name, desc, owner, params, readInstruction());
+        }
+        case INSTANCE_OF: {
+            Instruction check = readInstruction();
+            return new InstanceOfArg(check, readString());
+        }
+        case NEW_ARRAY: {
+            String type = readString();
+            Instruction size = readInstruction();
+            return new NewArrayArg(type, size, readInstructions());
+        }
+        case NEW_REF: {
+            String type = readString();
+            String ctor = readString();
+            return new NewRefArg(type, ctor, readInstructions());
+        }
+        case STATIC_FUNCTION: {
+            String name = readString();
+            String desc = readString();
+            String owner = readString();
+            return new StaticFunctionArg(name, desc, owner, readInstructions());
+        }
+        case TERNARY: {
+            Condition condition = readCondition();
+            Instruction true_val = readInstruction();
+            return new Ternary(condition, true_val, readInstruction());
+        }
+        case DOUBLE_CONSTANT:
+            return new DoubleConstantArg(this.in.readDouble());
+        case FLOAT_CONSTANT:
+            return new FloatConstantArg(this.in.readFloat());
+        case INT_CONSTANT:
+            return IntConstantArg.of(readSignedVarInt());
+        case LONG_CONSTANT:
+            return LongConstantArg.of(this.in.readLong());
+        case NULL_CONSTANT:
+            return NullConstantArg.NULL;
+        case STRING_CONSTANT:
+            return StringConstantArg.of(readString());
+        case TYPE_CONSTANT:
+            return new TypeConstantArg(Type.getType(readString()));
+        case ARRAY_LOAD: {
+            Instruction array = readInstruction();
+            return new ArrayLoadArg(array, readInstruction());
+        }
+        case INSTANCE_FIELD: {
+            String name = readString();
+            String desc = readString();
+            String owner = readString();
+            return new InstanceFieldArg(name, desc, owner, readInstruction());
+        }
+        case LOCAL:
+            return new LocalArg(readLocal());
+        case STATIC_FIELD: {
+            String name = readString();
+            String desc = readString();
+            return new StaticFieldArg(name, desc, readString());
+        }
+        case ADD:
+        case DIVIDE:
+        case MULTIPLY:
+        case REMAINDER:
+        case SHIFT_LEFT:
+        case SHIFT_RIGHT:
+        case SUBTRACT:
+        case UNSIGNED_SHIFT_RIGHT:
+        case AND:
+        case OR:
+        case XOR:
+            return readOperator(tag);
+        default:
+            throw new IOException("Unknown instruction tag " + tag);
+        }
+    }
+
+    private Instruction readOperator(int tag) throws IOException {
+        Instruction left = readInstruction();
+        Instruction right = readInstruction();
+        switch (tag) {
+        case ADD:
+            return new AddArg(left, right);
+        case DIVIDE:
+            return new DivideArg(left, right);
+        case MULTIPLY:
+            return new MultiplyArg(left, right);
+        case REMAINDER:
+            return new RemainerArg(left, right);
+        case SHIFT_LEFT:
+            return new ShiftLeftArg(left, right);
+        case SHIFT_RIGHT:
+            return new ShiftRightArg(left, right);
+        case SUBTRACT:
+            return new SubtractArg(left, right);
+        case UNSIGNED_SHIFT_RIGHT:
+            return new UnsignedShiftRightArg(left, right);
+        case AND:
+            return new AndArg(left, right);
+        case OR:
+            return new OrArg(left, right);
+        case XOR:
+            return new XorArg(left, right);
+        default:
+            throw new IOException("Unknown operator tag " + tag);
+        }
+    }
+
+    private Condition readCondition() throws IOException {
+        int tag = this.in.readUnsignedByte();
+        switch (tag) {
+        case NULL:
+            return null;
+        case AND_CONDITION:
+            return new AndCondition(readConditions());
+        case OR_CONDITION:
+            return new OrCondition(readConditions());
+        case INVERSE_CONDITION:
+            return new InverseCondition(readCondition());
+        case BOOLEAN_CONDITION: {
+            Instruction value = readInstruction();
+            return new BooleanCondition(value, this.in.readBoolean());
+        }
+        case COMPARE_CONDITION: {
+            Instruction left = readInstruction();
+            Instruction right = readInstruction();
+            return new CompareCondition(left, right, ordinal(CompareCondition.CompareOp.values(), this.in.readUnsignedByte(), "compare op"));
+        }
+        default:
+            throw new IOException("Unknown condition tag " + tag);
+        }
+    }
+
+    private Condition[] readConditions() throws IOException {
+        Condition[] conditions = new Condition[readVarInt()];
+        for (int i = 0; i < conditions.length; i++) {
+            conditions[i] = readCondition();
+        }
+        return conditions;
+    }
+
+    private AccessModifier readAccess() throws IOException {
+        return ordinal(AccessModifier.values(), this.in.readUnsignedByte(), "access modifier");
+    }
+
+    private static <T> T ordinal(T[] values, int index, String name) throws IOException {
+        if (index < 0 || index >= values.length) {
+            throw new IOException("Unknown " + name + " " + index);
+        }
+        return values[index];
+    }
+
+    private List<String> readStrings() throws IOException {
+        int count = readVarInt();
+        if (count == 0) {
+            return null;
+        }
+        List<String> values = Lists.newArrayListWithCapacity(count - 1);
+        for (int i = 0; i < count - 1; i++) {
+            values.add(readString());
+        }
+        return values;
+    }
+
+    private String readString() throws IOException {
+        int index = readVarInt();
+        if (index == STRING_NULL) {
+            return null;
+        } else if (index == STRING_NEW) {
+            String value = this.src.intern(this.in.readUTF());
+            this.strings.add(value);
+            return value;
+        }
+        index -= STRING_REF_OFFSET;
+        if (index >= this.strings.size()) {
+            throw new IOException("String index " + index + " out of bounds");
+        }
+        return this.strings.get(index);
+    }
+
+    private int readSignedVarInt() throws IOException {
+        int value = readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = this.in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.in.close();
+    }
+
+}
@@ -0,0 +1,649 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.ast.io.binary;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.spongepowered.despector.ast.io.binary.AstFormat.*;
+
+import com.google.common.collect.Maps;
+import org.spongepowered.despector.ast.SourceSet;
+import org.spongepowered.despector.ast.io.insn.Locals;
+import org.spongepowered.despector.ast.io.insn.Locals.Local;
+import org.spongepowered.despector.ast.members.FieldEntry;
+import org.spongepowered.despector.ast.members.MethodEntry;
+import org.spongepowered.despector.ast.members.insn.Statement;
+import org.spongepowered.despector.ast.members.insn.StatementBlock;
+import org.spongepowered.despector.ast.members.insn.arg.CastArg;
+import org.spongepowered.despector.ast.members.insn.arg.InstanceFunctionArg;
+import org.spongepowered.despector.ast.members.insn.arg.InstanceOfArg;
+import org.spongepowered.despector.ast.members.insn.arg.Instruction;
+import org.spongepowered.despector.ast.members.insn.arg.NewArrayArg;
+import org.spongepowered.despector.ast.members.insn.arg.NewRefArg;
+import org.spongepowered.despector.ast.members.insn.arg.StaticFunctionArg;
+import org.spongepowered.despector.ast.members.insn.arg.cst.DoubleConstantArg;
+import org.spongepowered.despector.ast.members.insn.arg.cst.FloatConstantArg;
+import org.spongepowered.despector.ast.members.insn.arg.cst.IntConstantArg;
+import org.spongepowered.despector.ast.members.insn.arg.cst.LongConstantArg;
+import org.spongepowered.despector.ast.members.insn.arg.cst.NullConstantArg;
+import org.spongepowered.despector.ast.members.insn.arg.cst.StringConstantArg;
+import org.spongepowered.despector.ast.members.insn.arg.cst.TypeConstantArg;
+import org.spongepowered.despector.ast.members.insn.arg.field.ArrayLoadArg;
+import org.spongepowered.despector.ast.members.insn.arg.field.InstanceFieldArg;
+import org.spongepowered.despector.ast.members.insn.arg.field.LocalArg;
+import org.spongepowered.despector.ast.members.insn.arg.field.StaticFieldArg;
+import org.spongepowered.despector.ast.members.insn.arg.operator.AddArg;
+import org.spongepowered.despector.ast.members.insn.arg.operator.DivideArg;
+import org.spongepowered.despector.ast.members.insn.arg.operator.MultiplyArg;
+import org.spongepowered.despector.ast.members.insn.arg.operator.OperatorArg;
+import org.spongepowered.despector.ast.members.insn.arg.operator.RemainerArg;
+import org.spongepowered.despector.ast.members.insn.arg.operator.ShiftLeftArg;
+import org.spongepowered.despector.ast.members.insn.arg.operator.ShiftRightArg;
+import org.spongepowered.despector.ast.members.insn.arg.operator.SubtractArg;
+import org.spongepowered.despector.ast.members.insn.arg.operator.UnsignedShiftRightArg;
+import org.spongepowered.despector.ast.members.insn.arg.operator.bitwise.AndArg;
+import org.spongepowered.despector.ast.members.insn.arg.operator.bitwise.OrArg;
+import org.spongepowered.despector.ast.members.insn.arg.operator.bitwise.XorArg;
+import org.spongepowered.despector.ast.members.insn.assign.ArrayAssign;
+import org.spongepowered.despector.ast.members.insn.assign.InstanceFieldAssign;
+import org.spongepowered.despector.ast.members.insn.assign.LocalAssign;
+import org.spongepowered.despector.ast.members.insn.assign.StaticFieldAssign;
+import org.spongepowered.despector.ast.members.insn.branch.Break;
+import org.spongepowered.despector.ast.members.insn.branch.Continue;
+import org.spongepowered.despector.ast.members.insn.branch.DoWhileLoop;
+import org.spongepowered.despector.ast.members.insn.branch.ForLoop;
+import org.spongepowered.despector.ast.members.insn.branch.IfBlock;
+import org.spongepowered.despector.ast.members.insn.branch.TableSwitch;
+import org.spongepowered.despector.ast.members.insn.branch.Ternary;
+import org.spongepowered.despector.ast.members.insn.branch.WhileLoop;
+import org.spongepowered.despector.ast.members.insn.branch.condition.AndCondition;
+import org.spongepowered.despector.ast.members.insn.branch.condition.BooleanCondition;
+import org.spongepowered.despector.ast.members.insn.branch.condition.CompareCondition;
+import org.spongepowered.despector.ast.members.insn.branch.condition.Condition;
+import org.spongepowered.despector.ast.members.insn.branch.condition.InverseCondition;
+import org.spongepowered.despector.ast.members.insn.branch.condition.OrCondition;
+import org.spongepowered.despector.ast.members.insn.function.InstanceMethodCall;
+import org.spongepowered.despector.ast.members.insn.function.NewInstance;
+import org.spongepowered.despector.ast.members.insn.function.StaticMethodCall;
+import org.spongepowered.despector.ast.members.insn.misc.Comment;
+import org.spongepowered.despector.ast.members.insn.misc.IncrementStatement;
+import org.spongepowered.despector.ast.members.insn.misc.ReturnValue;
+import org.spongepowered.despector.ast.members.insn.misc.ReturnVoid;
+import org.spongepowered.despector.ast.members.insn.misc.ThrowException;
+import org.spongepowered.despector.ast.type.ClassEntry;
+import org.spongepowered.despector.ast.type.EnumEntry;
+import org.spongepowered.despector.ast.type.GenericArgument;
+import org.spongepowered.despector.ast.type.GenericType;
+import org.spongepowered.despector.ast.type.InterfaceEntry;
+import org.spongepowered.despector.ast.type.TypeEntry;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Writes types, including their fully decompiled method bodies, to a stream in
+ * the binary ast format which may be loaded again by an {@link AstReader}.
+ *
+ * <p>Types are written one at a time as they are given to the writer so the
+ * encoding of a large source set never needs to be held in memory. A writer
+ * is not thread safe.</p>
+ */
+public class AstWriter implements Closeable {
+
+    private final DataOutputStream out;
+    private final Map<String, Integer> strings = Maps.newHashMap();
+
+    private Locals locals;
+    private boolean closed = false;
+
+    /**
+     * Creates a new writer and writes the format header to the given stream.
+     */
+    public AstWriter(OutputStream out) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(checkNotNull(out, "out")));
+        this.out.writeInt(MAGIC);
+        writeVarInt(VERSION);
+    }
+
+    /**
+     * Writes all types in the given source set.
+     */
+    public void write(SourceSet src) throws IOException {
+        for (TypeEntry type : src.getAllClasses()) {
+            write(type);
+        }
+    }
+
+    /**
+     * Writes the given type. Any lazily loaded method bodies are built as they
+     * are written.
+     */
+    public void write(TypeEntry type) throws IOException {
+        checkNotNull(type, "type");
+        if (this.closed) {
+            throw new IllegalStateException("Writer is closed");
+        }
+        if (type instanceof EnumEntry) {
+            this.out.writeByte(TYPE_ENUM);
+        } else if (type instanceof InterfaceEntry) {
+            this.out.writeByte(TYPE_INTERFACE);
+        } else if (type instanceof ClassEntry) {
+            this.out.writeByte(TYPE_CLASS);
+        } else {
+            throw new IllegalArgumentException("Unsupported type entry: " + type.getClass().getName());
+        }
+        // strings are only shared within a type
+        this.strings.clear();
+        writeString(type.getName());
+        this.out.writeByte(type.getAccessModifier().ordinal());
+        int flags = 0;
+        if (type.isFinal()) {
+            flags |= FLAG_FINAL;
+        }
+        if (type.isSynthetic()) {
+            flags |= FLAG_SYNTHETIC;
+        }
+        this.out.writeByte(flags);
+        if (type instanceof ClassEntry) {
+            writeGenericType(((ClassEntry) type).getGenericSuperclass());
+        }
+        writeVarInt(type.getGenericInterfaces().size());
+        for (GenericType inter : type.getGenericInterfaces()) {
+            writeGenericType(inter);
+        }
+        writeVarInt(type.getGenericArgs().size());
+        for (GenericArgument arg : type.getGenericArgs()) {
+            writeString(arg.getName());
+            writeString(arg.getBound());
+        }
+        if (type instanceof EnumEntry) {
+            writeStrings(((EnumEntry) type).getEnumConstants());
+        }
+        writeVarInt(type.getStaticFieldCount() + type.getFieldCount());
+        for (FieldEntry field : type.getStaticFields()) {
+            writeField(field);
+        }
+        for (FieldEntry field : type.getFields()) {
+            writeField(field);
+        }
+        writeVarInt(type.getStaticMethodCount() + type.getMethodCount());
+        for (MethodEntry method : type.getStaticMethods()) {
+            writeMethod(method);
+        }
+        for (MethodEntry method : type.getMethods()) {
+            writeMethod(method);
+        }
+    }
+
+    private void writeGenericType(GenericType type) throws IOException {
+        if (type == null) {
+            writeString(null);
+            return;
+        }
+        writeString(type.getType());
+        writeStrings(type.getParams());
+    }
+
+    private void writeField(FieldEntry field) throws IOException {
+        writeString(field.getName());
+        writeString(field.getType());
+        writeString(field.getOwner());
+        this.out.writeByte(field.getAccessModifier().ordinal());
+        int flags = 0;
+        if (field.isFinal()) {
+            flags |= FLAG_FINAL;
+        }
+        if (field.isStatic()) {
+            flags |= FLAG_STATIC;
+        }
+        this.out.writeByte(flags);
+    }
+
+    private void writeMethod(MethodEntry method) throws IOException {
+        writeString(method.getName());
+        writeString(method.getSignature());
+        writeString(method.getOwner());
+        this.out.writeByte(method.getAccessModifier().ordinal());
+        StatementBlock body = method.getInstructions();
+        int flags = 0;
+        if (method.isFinal()) {
+            flags |= FLAG_FINAL;
+        }
+        if (method.isSynthetic()) {
+            flags |= FLAG_SYNTHETIC;
+        }
+        if (method.isStatic()) {
+            flags |= FLAG_STATIC;
+        }
+        if (method.isAbstract()) {
+            flags |= FLAG_ABSTRACT;
+        }
+        if (body != null) {
+            flags |= FLAG_BODY;
+            if (body.isPlaceholder()) {
+                flags |= FLAG_PLACEHOLDER;
+            }
+        }
+        this.out.writeByte(flags);
+        writeStrings(method.getParamTypes());
+        if (body != null) {
+            writeBody(body);
+        }
+    }
+
+    private void writeBody(StatementBlock body) throws IOException {
+        // All blocks of a method share the locals of the method body so they
+        // are written once up front and referenced by index afterwards.
+        this.locals = body.getLocals();
+        writeVarInt(this.locals.getLocalCount());
+        for (int i = 0; i < this.locals.getLocalCount(); i++) {
+            Local local = this.locals.getLocal(i);
+            int flags = 0;
+            if (local.isParameter()) {
+                flags |= LOCAL_PARAMETER;
+            }
+            if (local.getGenericType() != null) {
+                flags |= LOCAL_GENERICS;
+            }
+            this.out.writeByte(flags);
+            writeString(local.getName());
+            writeString(local.getType());
+            if (local.getGenericType() != null) {
+                writeString(local.getGenericType().getSignature());
+            }
+        }
+        writeBlock(body);
+        this.locals = null;
+    }
+
+    private void writeBlock(StatementBlock block) throws IOException {
+        if (block == null) {
+            writeVarInt(0);
+            return;
+        }
+        if (block.getLocals() != this.locals) {
+            throw new IllegalStateException("Statement block does not share the locals of its method");
+        }
+        writeVarInt(block.getType().ordinal() + 1);
+        writeVarInt(block.getStatements().size());
+        for (Statement stmt : block.getStatements()) {
+            writeStatement(stmt);
+        }
+    }
+
+    private void writeLocal(Local local) throws IOException {
+        int index = local.getIndex();
+        if (index >= this.locals.getLocalCount() || this.locals.getLocal(index) != local) {
+            throw new IllegalStateException("Local " + local.getName() + " is not a local of its method");
+        }
+        writeVarInt(index);
+    }
+
+    private void writeStatement(Statement stmt) throws IOException {
+        if (stmt == null) {
+            this.out.writeByte(NULL);
+        } else if (stmt instanceof ArrayAssign) {
+            ArrayAssign assign = (ArrayAssign) stmt;
+            this.out.writeByte(ARRAY_ASSIGN);
+            writeInstruction(assign.getArray());
+            writeInstruction(assign.getIndex());
+            writeInstruction(assign.getValue());
+        } else if (stmt instanceof InstanceFieldAssign) {
+            InstanceFieldAssign assign = (InstanceFieldAssign) stmt;
+            this.out.writeByte(INSTANCE_FIELD_ASSIGN);
+            writeString(assign.getFieldName());
+            writeString(assign.getTypeDescription());
+            writeString(assign.getOwner());
+            writeInstruction(assign.getOwnerInsn());
+            writeInstruction(assign.getValue());
+        } else if (stmt instanceof LocalAssign) {
+            LocalAssign assign = (LocalAssign) stmt;
+            this.out.writeByte(LOCAL_ASSIGN);
+            writeLocal(assign.getLocal());
+            writeInstruction(assign.getValue());
+        } else if (stmt instanceof StaticFieldAssign) {
+            StaticFieldAssign assign = (StaticFieldAssign) stmt;
+            this.out.writeByte(STATIC_FIELD_ASSIGN);
+            writeString(assign.getFieldName());
+            writeString(assign.getTypeDescription());
+            writeString(assign.getOwner());
+            writeInstruction(assign.getValue());
+        } else if (stmt instanceof DoWhileLoop) {
+            DoWhileLoop loop = (DoWhileLoop) stmt;
+            this.out.writeByte(DO_WHILE);
+            writeString(loop.getLabel());
+            writeCondition(loop.getCondition());
+            writeBlock(loop.getBody());
+        } else if (stmt instanceof ForLoop) {
+            ForLoop loop = (ForLoop) stmt;
+            this.out.writeByte(FOR);
+            writeString(loop.getLabel());
+            writeStatement(loop.getInit());
+            writeCondition(loop.getCondition());
+            writeStatement(loop.getIncr());
+            writeBlock(loop.getBody());
+        } else if (stmt instanceof IfBlock) {
+            IfBlock iblock = (IfBlock) stmt;
+            this.out.writeByte(IF);
+            writeCondition(iblock.getCondition());
+            writeBlock(iblock.getIfBody());
+            writeBlock(iblock.getElseBlock() == null ? null : iblock.getElseBlock().getElseBody());
+        } else if (stmt instanceof TableSwitch) {
+            TableSwitch tswitch = (TableSwitch) stmt;
+            this.out.writeByte(SWITCH);
+            writeInstruction(tswitch.getSwitchVar());
+            writeVarInt(tswitch.getCases().size());
+            for (TableSwitch.Case cs : tswitch.getCases()) {
+                writeBlock(cs.getBody());
+                this.out.writeBoolean(cs.doesBreak());
+                this.out.writeBoolean(cs.isDefault());
+                writeVarInt(cs.getIndices().size());
+                for (int index : cs.getIndices()) {
+                    writeSignedVarInt(index);
+                }
+            }
+        } else if (stmt instanceof WhileLoop) {
+            WhileLoop loop = (WhileLoop) stmt;
+            this.out.writeByte(WHILE);
+            writeString(loop.getLabel());
+            writeCondition(loop.getCondition());
+            writeBlock(loop.getBody());
+        } else if (stmt instanceof InstanceMethodCall) {
+            InstanceMethodCall call = (InstanceMethodCall) stmt;
+            this.out.writeByte(INSTANCE_METHOD_CALL);
+            writeString(call.getMethodName());
+            writeString(call.getMethodDescription());
+            writeString(call.getOwner());
+            writeInstructions(call.getParams());
+            writeInstruction(call.getCallee());
+        } else if (stmt instanceof StaticMethodCall) {
+            StaticMethodCall call = (StaticMethodCall) stmt;
+            this.out.writeByte(STATIC_METHOD_CALL);
+            writeString(call.getMethodName());
+            writeString(call.getMethodDescription());
+            writeString(call.getOwner());
+            writeInstructions(call.getParams());
+        } else if (stmt instanceof NewInstance) {
+            NewInstance insn = (NewInstance) stmt;
+            this.out.writeByte(NEW_INSTANCE);
+            writeString(insn.getType());
+            writeString(insn.getCtor());
+            writeInstructions(insn.getParams());
+        } else if (stmt instanceof IncrementStatement) {
+            IncrementStatement insn = (IncrementStatement) stmt;
+            this.out.writeByte(INCREMENT);
+            writeLocal(insn.getLocal());
+            writeSignedVarInt(insn.getIncrementVal());
+        } else if (stmt instanceof ReturnValue) {
+            this.out.writeByte(RETURN_VALUE);
+            writeInstruction(((ReturnValue) stmt).getValue());
+        } else if (stmt instanceof ReturnVoid) {
+            this.out.writeByte(RETURN_VOID);
+        } else if (stmt instanceof ThrowException) {
+            this.out.writeByte(THROW);
+            writeInstruction(((ThrowException) stmt).getException());
+        } else if (stmt instanceof Comment) {
+            this.out.writeByte(COMMENT);
+            writeStrings(((Comment) stmt).getLines());
+        } else if (stmt instanceof Break) {
+            this.out.writeByte(BREAK);
+            writeString(((Break) stmt).getLabel());
+        } else if (stmt instanceof Continue) {
+            this.out.writeByte(CONTINUE);
+            writeString(((Continue) stmt).getLabel());
+        } else {
+            throw new IllegalStateException("Unsupported statement type: " + stmt.getClass().getName());
+        }
+    }
+
+    private void writeInstructions(Instruction[] insns) throws IOException {
+        if (insns == null) {
+            writeVarInt(0);
+            return;
+        }
+        writeVarInt(insns.length + 1);
+        for (Instruction insn : insns) {
+            writeInstruction(insn);
+        }
+    }
+
+    private void writeInstruction(Instruction insn) throws IOException {
+        if (insn == null) {
+            this.out.writeByte(NULL);
+        } else if (insn instanceof CastArg) {
+            CastArg cast = (CastArg) insn;
+            this.out.writeByte(CAST);
+            writeString(cast.getType());
+            writeInstruction(cast.getVal());
+        } else if (insn instanceof InstanceFunctionArg) {
+            InstanceFunctionArg call = (InstanceFunctionArg) insn;
+            this.out.writeByte(INSTANCE_FUNCTION);
+            writeString(call.getMethodName());
+            writeString(call.getMethodDescription());
+            writeString(call.getOwner());
+            writeInstructions(call.getParams());
+            writeInstruction(call.getCallee());
+        } else if (insn instanceof InstanceOfArg) {
+            InstanceOfArg arg = (InstanceOfArg) insn;
+            this.out.writeByte(INSTANCE_OF);
+            writeInstruction(arg.getCheckedValue());
+            writeString(arg.getType());
+        } else if (insn instanceof NewArrayArg) {
+            NewArrayArg arg = (NewArrayArg) insn;
+            this.out.writeByte(NEW_ARRAY);
+            writeString(arg.getType());
+            writeInstruction(arg.getSize());
+            writeInstructions(arg.getInitializer());
+        } else if (insn instanceof NewRefArg) {
+            NewRefArg arg = (NewRefArg) insn;
+            this.out.writeByte(NEW_REF);
+            writeString(arg.getType());
+            writeString(arg.getCtor());
+            writeInstructions(arg.getParams());
+        } else if (insn instanceof StaticFunctionArg) {
+            StaticFunctionArg call = (StaticFunctionArg) insn;
+            this.out.writeByte(STATIC_FUNCTION);
+            writeString(call.getMethodName());
+            writeString(call.getMethodDescription());
+            writeString(call.getOwner());
+            writeInstructions(call.getParams());
+        } else if (insn instanceof Ternary) {
+            Ternary ternary = (Ternary) insn;
+            this.out.writeByte(TERNARY);
+            writeCondition(ternary.getCondition());
+            writeInstruction(ternary.getTrueValue());
+            writeInstruction(ternary.getFalseValue());
+        } else if (insn instanceof DoubleConstantArg) {
+            this.out.writeByte(DOUBLE_CONSTANT);
+            this.out.writeDouble(((DoubleConstantArg) insn).getConstant());
+        } else if (insn instanceof FloatConstantArg) {
+            this.out.writeByte(FLOAT_CONSTANT);
+            this.out.writeFloat(((FloatConstantArg) insn).getConstant());
+        } else if (insn instanceof IntConstantArg) {
+            this.out.writeByte(INT_CONSTANT);
+            writeSignedVarInt(((IntConstantArg) insn).getConstant());
+        } else if (insn instanceof LongConstantArg) {
+            this.out.writeByte(LONG_CONSTANT);
+            this.out.writeLong(((LongConstantArg) insn).getConstant());
+        } else if (insn instanceof NullConstantArg) {
+            this.out.writeByte(NULL_CONSTANT);
+        } else if (insn instanceof StringConstantArg) {
+            this.out.writeByte(STRING_CONSTANT);
+            writeString(((StringConstantArg) insn).getConstant());
+        } else if (insn instanceof TypeConstantArg) {
+            this.out.writeByte(TYPE_CONSTANT);
+            writeString(((TypeConstantArg) insn).getConstant().getDescriptor());
+        } else if (insn instanceof ArrayLoadArg) {
+            ArrayLoadArg arg = (ArrayLoadArg) insn;
+            this.out.writeByte(ARRAY_LOAD);
+            writeInstruction(arg.getArrayVar());
+            writeInstruction(arg.getIndex());
+        } else if (insn instanceof InstanceFieldArg) {
+            InstanceFieldArg arg = (InstanceFieldArg) insn;
+            this.out.writeByte(INSTANCE_FIELD);
+            writeString(arg.getFieldName());
+            writeString(arg.getTypeDescriptor());
+            writeString(arg.getOwner());
+            writeInstruction(arg.getOwnerInsn());
+        } else if (insn instanceof LocalArg) {
+            this.out.writeByte(LOCAL);
+            writeLocal(((LocalArg) insn).getLocal());
+        } else if (insn instanceof StaticFieldArg) {
+            StaticFieldArg arg = (StaticFieldArg) insn;
+            this.out.writeByte(STATIC_FIELD);
+            writeString(arg.getFieldName());
+            writeString(arg.getTypeDescriptor());
+            writeString(arg.getOwner());
+        } else if (insn instanceof OperatorArg) {
+            OperatorArg op = (OperatorArg) insn;
+            this.out.writeByte(operatorTag(op));
+            writeInstruction(op.getLeft());
+            writeInstruction(op.getRight());
+        } else {
+            throw new IllegalStateException("Unsupported instruction type: " + insn.getClass().getName());
+        }
+    }
+
+    private static int operatorTag(OperatorArg op) {
+        if (op instanceof AddArg) {
+            return ADD;
+        } else if (op instanceof DivideArg) {
+            return DIVIDE;
+        } else if (op instanceof MultiplyArg) {
+            return MULTIPLY;
+        } else if (op instanceof RemainerArg) {
+            return REMAINDER;
+        } else if (op instanceof ShiftLeftArg) {
+            return SHIFT_LEFT;
+        } else if (op instanceof ShiftRightArg) {
+            return SHIFT_RIGHT;
+        } else if (op instanceof SubtractArg) {
+            return SUBTRACT;
+        } else if (op instanceof UnsignedShiftRightArg) {
+            return UNSIGNED_SHIFT_RIGHT;
+        } else if (op instanceof AndArg) {
+            return AND;
+        } else if (op instanceof OrArg) {
+            return OR;
+        } else if (op instanceof XorArg) {
+            return XOR;
+        }
+        throw new IllegalStateException("Unsupported operator type: " + op.getClass().getName());
+    }
+
+    private void writeCondition(Condition condition) throws IOException {
+        if (condition == null) {
+            this.out.writeByte(NULL);
+        } else if (condition instanceof AndCondition) {
+            this.out.writeByte(AND_CONDITION);
+            writeConditions(((AndCondition) condition).getOperands());
+        } else if (condition instanceof OrCondition) {
+            this.out.writeByte(OR_CONDITION);
+            writeConditions(((OrCondition) condition).getOperands());
+        } else if (condition instanceof InverseCondition) {
+            this.out.writeByte(INVERSE_CONDITION);
+            writeCondition(((InverseCondition) condition).getConditionValue());
+        } else if (condition instanceof BooleanCondition) {
+            BooleanCondition bool = (BooleanCondition) condition;
+            this.out.writeByte(BOOLEAN_CONDITION);
+            writeInstruction(bool.getConditionValue());
+            this.out.writeBoolean(bool.isInverse());
+        } else if (condition instanceof CompareCondition) {
+            CompareCondition compare = (CompareCondition) condition;
+            this.out.writeByte(COMPARE_CONDITION);
+            writeInstruction(compare.getLeft());
+            writeInstruction(compare.getRight());
+            this.out.writeByte(compare.getOp().ordinal());
+        } else {
+            throw new IllegalStateException("Unsupported condition type: " + condition.getClass().getName());
+        }
+    }
+
+    private void writeConditions(Condition[] conditions) throws IOException {
+        writeVarInt(conditions.length);
+        for (Condition condition : conditions) {
+            writeCondition(condition);
+        }
+    }
+
+    private void writeStrings(Collection<String> values) throws IOException {
+        if (values == null) {
+            writeVarInt(0);
+            return;
+        }
+        writeVarInt(values.size() + 1);
+        for (String value : values) {
+            writeString(value);
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            writeVarInt(STRING_NULL);
+            return;
+        }
+        Integer index = this.strings.get(value);
+        if (index != null) {
+            writeVarInt(index + STRING_REF_OFFSET);
+            return;
+        }
+        this.strings.put(value, this.strings.size());
+        writeVarInt(STRING_NEW);
+        this.out.writeUTF(value);
+    }
+
+    private void writeSignedVarInt(int value) throws IOException {
+        writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    private void writeVarInt(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            this.out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        this.out.writeByte(value);
+    }
+
+    /**
+     * Writes the end of the stream and closes the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        try {
+            this.out.writeByte(END);
+        } finally {
+            this.out.close();
+        }
+    }
+
+}
@@ -59,10 +59,13 @@ import org.spongepowered.despector.ast.members.insn.assign.FieldAssign;
 import org.spongepowered.despector.ast.members.insn.assign.InstanceFieldAssign;
 import org.spongepowered.despector.ast.members.insn.assign.LocalAssign;
 import org.spongepowered.despector.ast.members.insn.assign.StaticFieldAssign;
+import org.spongepowered.despector.ast.members.insn.branch.Break;
+import org.spongepowered.despector.ast.members.insn.branch.Continue;
 import org.spongepowered.despector.ast.members.insn.branch.DoWhileLoop;
 import org.spongepowered.despector.ast.members.insn.branch.ElseBlock;
 import org.spongepowered.despector.ast.members.insn.branch.ForLoop;
 import org.spongepowered.despector.ast.members.insn.branch.IfBlock;
+import org.spongepowered.despector.ast.members.insn.branch.Loop;
 import org.spongepowered.despector.ast.members.insn.branch.TableSwitch;
 import org.spongepowered.despector.ast.members.insn.branch.TableSwitch.Case;
 import org.spongepowered.despector.ast.members.insn.branch.Ternary;
@@ -76,12 +79,14 @@ import org.spongepowered.despector.ast.members.insn.branch.condition.OrCondition
 import org.spongepowered.despector.ast.members.insn.function.InstanceMethodCall;
 import org.spongepowered.despector.ast.members.insn.function.NewInstance;
 import org.spongepowered.despector.ast.members.insn.function.StaticMethodCall;
+import org.spongepowered.despector.ast.members.insn.misc.Comment;
 import org.spongepowered.despector.ast.members.insn.misc.IncrementStatement;
 import org.spongepowered.despector.ast.members.insn.misc.ReturnValue;
 import org.spongepowered.despector.ast.members.insn.misc.ReturnVoid;
 import org.spongepowered.despector.ast.members.insn.misc.ThrowException;
 import org.spongepowered.despector.ast.type.ClassEntry;
 import org.spongepowered.despector.ast.type.EnumEntry;
+import org.spongepowered.despector.ast.type.GenericType;
 import org.spongepowered.despector.ast.type.InterfaceEntry;
 import org.spongepowered.despector.ast.type.TypeEntry;
 import org.spongepowered.despector.util.TypeHelper;
@@ -284,7 +289,7 @@ public class SourceEmitter implements ClassEmitter {
         printString(name);
         printString(" ");
         if (!type.getInterfaces().isEmpty()) {
-            printString(" implements");
+            printString("implements ");
             for (int i = 0; i < type.getInterfaces().size(); i++) {
                 emitType(type.getInterfaces().get(i));
                 if (i < type.getInterfaces().size() - 1) {
@@ -424,7 +429,7 @@ public class SourceEmitter implements ClassEmitter {
         printString(name);
         printString(" ");
         if (!type.getInterfaces().isEmpty()) {
-            printString(" extends");
+            printString("extends ");
             for (int i = 0; i < type.getInterfaces().size(); i++) {
                 emitType(type.getInterfaces().get(i));
                 if (i < type.getInterfaces().size() - 1) {
@@ -601,10 +606,17 @@ public class SourceEmitter implements ClassEmitter {
             emitFieldAssign((FieldAssign) insn);
         } else if (insn instanceof TableSwitch) {
             emitTableSwitch((TableSwitch) insn);
+        } else if (insn instanceof Comment) {
+            emitComment((Comment) insn);
+        } else if (insn instanceof Break) {
+            emitBreak((Break) insn);
+        } else if (insn instanceof Continue) {
+            emitContinue((Continue) insn);
         } else {
             throw new IllegalStateException("Unknown statement: " + insn);
         }
-        if (success && withSemicolon && !(insn instanceof ForLoop) && !(insn instanceof IfBlock) && !(insn instanceof WhileLoop)) {
+        if (success && withSemicolon && !(insn instanceof ForLoop) && !(insn instanceof IfBlock) && !(insn instanceof WhileLoop)
+                && !(insn instanceof Comment)) {
             printString(";");
         }
         return success;
@@ -614,16 +626,10 @@ public class SourceEmitter implements ClassEmitter {
         LocalState lstate = this.state.getLocalState(insn.getLocal().getIndex());
         if (!lstate.isDefined()) {
             Local local = insn.getLocal();
-            emitTypeName(local.getTypeName());
-            if (local.getGenericTypes() != null) {
-                printString("<");
-                for (int i = 0; i < local.getGenericTypes().length; i++) {
-                    emitTypeName(local.getGenericTypes()[i]);
-                    if (i < local.getGenericTypes().length - 1) {
-                        printString(",");
-                    }
-                }
-                printString(">");
+            if (local.getGenericType() != null) {
+                emitGenericType(local.getGenericType());
+            } else {
+                emitTypeName(local.getTypeName());
             }
             printString(" ");
             lstate.markDefined();
@@ -830,7 +836,31 @@ public class SourceEmitter implements ClassEmitter {
         }
     }
 
+    protected void emitLoopLabel(Loop loop) {
+        if (loop.getLabel() != null) {
+            printString(loop.getLabel());
+            printString(": ");
+        }
+    }
+
+    protected void emitBreak(Break brk) {
+        printString("break");
+        if (brk.getLabel() != null) {
+            printString(" ");
+            printString(brk.getLabel());
+        }
+    }
+
+    protected void emitContinue(Continue cont) {
+        printString("continue");
+        if (cont.getLabel() != null) {
+            printString(" ");
+            printString(cont.getLabel());
+        }
+    }
+
     protected void emitForLoop(ForLoop loop) {
+        emitLoopLabel(loop);
         printString("for (");
         if (loop.getInit() != null) {
             emitInstruction(loop.getInit(), false);
@@ -853,6 +883,7 @@ public class SourceEmitter implements ClassEmitter {
     }
 
     protected void emitWhileLoop(WhileLoop loop) {
+        emitLoopLabel(loop);
         printString("while (");
         emitCondition(loop.getCondition());
         printString(") {\n");
@@ -867,6 +898,7 @@ public class SourceEmitter implements ClassEmitter {
     }
 
     protected void emitDoWhileLoop(DoWhileLoop loop) {
+        emitLoopLabel(loop);
         printString("do {\n");
         if (!loop.getBody().getStatements().isEmpty()) {
             this.indentation++;
@@ -958,11 +990,22 @@ public class SourceEmitter implements ClassEmitter {
         printString("return ");
         String type = null;
         if (this.this$method != null) {
-            type = TypeHelper.getRet(this.this$method.getSignature());
+            type = this.this$method.getReturnType();
         }
         emitArg(insn.getValue(), type);
     }
 
+    protected void emitComment(Comment insn) {
+        for (int i = 0; i < insn.getLines().size(); i++) {
+            if (i > 0) {
+                printString("\n");
+                printIndentation();
+            }
+            printString("// ");
+            printString(insn.getLines().get(i));
+        }
+    }
+
     protected void emitThrow(ThrowException insn) {
         printString("throw ");
         emitArg(insn.getException(), null);
@@ -1015,6 +1058,39 @@ public class SourceEmitter implements ClassEmitter {
         emitTypeClassName(TypeHelper.descToType(name).replace('/', '.'));
     }
 
+    /**
+     * Emits the given generic type along with its type arguments.
+     */
+    protected void emitGenericType(GenericType type) {
+        if (type.getWildcard() == '*') {
+            printString("?");
+            return;
+        } else if (type.getWildcard() == '+') {
+            printString("? extends ");
+        } else if (type.getWildcard() == '-') {
+            printString("? super ");
+        }
+        String element = type.getType().substring(type.getDimensions());
+        if (type.isTypeVariable()) {
+            printString(element.substring(1, element.length() - 1));
+        } else {
+            emitTypeName(TypeHelper.descToType(element));
+        }
+        if (!type.getArguments().isEmpty()) {
+            printString("<");
+            for (int i = 0; i < type.getArguments().size(); i++) {
+                emitGenericType(type.getArguments().get(i));
+                if (i < type.getArguments().size() - 1) {
+                    printString(",");
+                }
+            }
+            printString(">");
+        }
+        for (int i = 0; i < type.getDimensions(); i++) {
+            printString("[]");
+        }
+    }
+
     protected void emitTypeName(String name) {
         emitTypeClassName(name.replace('/', '.'));
     }
@@ -1028,7 +1104,8 @@ public class SourceEmitter implements ClassEmitter {
             if (name.startsWith("java.lang.")) {
                 name = name.substring("java.lang.".length());
             } else if (this.this$ != null) {
-                String this_package = this.this$.getName().substring(0, this.this$.getName().lastIndexOf('.'));
+                String this_name = this.this$.getName().replace('/', '.');
+                String this_package = this_name.lastIndexOf('.') == -1 ? "" : this_name.substring(0, this_name.lastIndexOf('.'));
                 String target_package = name.substring(0, name.lastIndexOf('.'));
                 if (this_package.equals(target_package)) {
                     name = name.substring(name.lastIndexOf('.') + 1);
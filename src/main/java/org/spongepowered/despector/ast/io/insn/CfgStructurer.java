@@ -0,0 +1,828 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.ast.io.insn;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.objectweb.asm.tree.LabelNode;
+import org.spongepowered.despector.ast.io.insn.IntermediateOpcode.AbstractSwitch;
+import org.spongepowered.despector.ast.io.insn.IntermediateOpcode.IntermediateGoto;
+import org.spongepowered.despector.ast.io.insn.IntermediateOpcode.IntermediateJump;
+import org.spongepowered.despector.ast.io.insn.IntermediateOpcode.IntermediateLabel;
+import org.spongepowered.despector.ast.io.insn.IntermediateOpcode.IntermediateFrame;
+import org.spongepowered.despector.ast.io.insn.IntermediateOpcode.IntermediateStackValue;
+import org.spongepowered.despector.ast.io.insn.IntermediateOpcode.IntermediateStatement;
+import org.spongepowered.despector.ast.io.insn.OpcodeDecompiler.ConditionResult;
+import org.spongepowered.despector.ast.members.insn.Statement;
+import org.spongepowered.despector.ast.members.insn.StatementBlock;
+import org.spongepowered.despector.ast.members.insn.arg.Instruction;
+import org.spongepowered.despector.ast.members.insn.arg.cst.IntConstantArg;
+import org.spongepowered.despector.ast.members.insn.assign.Assignment;
+import org.spongepowered.despector.ast.members.insn.branch.Break;
+import org.spongepowered.despector.ast.members.insn.branch.Continue;
+import org.spongepowered.despector.ast.members.insn.branch.DoWhileLoop;
+import org.spongepowered.despector.ast.members.insn.branch.ElseBlock;
+import org.spongepowered.despector.ast.members.insn.branch.ForLoop;
+import org.spongepowered.despector.ast.members.insn.branch.IfBlock;
+import org.spongepowered.despector.ast.members.insn.branch.Loop;
+import org.spongepowered.despector.ast.members.insn.branch.TableSwitch;
+import org.spongepowered.despector.ast.members.insn.branch.TableSwitch.Case;
+import org.spongepowered.despector.ast.members.insn.branch.Ternary;
+import org.spongepowered.despector.ast.members.insn.branch.WhileLoop;
+import org.spongepowered.despector.ast.members.insn.branch.condition.BooleanCondition;
+import org.spongepowered.despector.ast.members.insn.branch.condition.Condition;
+import org.spongepowered.despector.ast.members.insn.branch.condition.InverseCondition;
+import org.spongepowered.despector.ast.members.insn.misc.ReturnValue;
+import org.spongepowered.despector.ast.members.insn.misc.ReturnVoid;
+import org.spongepowered.despector.ast.members.insn.misc.ThrowException;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Structures the intermediates of a method using its control flow graph.
+ *
+ * <p>The intermediates are split into basic blocks, the dominator tree of the
+ * blocks is built and the natural loops are found from the edges back to a
+ * dominating block. Loops are then recognised from their header and latch
+ * rather than by scanning for jumps, and every other region is walked once
+ * in code order, which keeps structuring close to linear in the size of the
+ * method.</p>
+ */
+final class CfgStructurer {
+
+    private final OpcodeDecompiler decompiler;
+    private final List<IntermediateOpcode> intermediates;
+
+    // The basic blocks in code order, each covers a range of intermediates
+    private int block_count;
+    private int[] block_start;
+    private int[] block_end;
+    private int[] block_of;
+    private int[][] successors;
+    private int[][] predecessors;
+
+    // The immediate dominator of each block, and an interval numbering of
+    // the dominator tree for constant time dominance checks
+    private int[] idom;
+    private int[] dom_enter;
+    private int[] dom_exit;
+
+    // For each loop header the first and last block of the loop in code
+    // order, or -1 for blocks which are not loop headers
+    private int[] loop_first;
+    private int[] loop_last;
+    // The header of the innermost loop containing each block, or -1
+    private int[] loop_of;
+
+    // The loops and switches enclosing the region being structured, from the
+    // outermost to the innermost
+    private final List<Exit> exits = Lists.newArrayList();
+    private int label_count;
+
+    CfgStructurer(OpcodeDecompiler decompiler) {
+        this.decompiler = decompiler;
+        this.intermediates = decompiler.getIntermediates();
+    }
+
+    /**
+     * Structures the whole method.
+     */
+    StatementBlock structure() {
+        if (this.intermediates.isEmpty()) {
+            return new StatementBlock(StatementBlock.Type.METHOD, this.decompiler.getLocals());
+        }
+        buildBlocks();
+        buildDominators();
+        findLoops();
+        return structure(StatementBlock.Type.METHOD, 0, this.intermediates.size(), -1);
+    }
+
+    private static boolean isExit(IntermediateOpcode op) {
+        if (!(op instanceof IntermediateStatement)) {
+            return false;
+        }
+        Statement stmt = ((IntermediateStatement) op).getStatement();
+        return stmt instanceof ReturnVoid || stmt instanceof ReturnValue || stmt instanceof ThrowException;
+    }
+
+    private int target(IntermediateJump jump) {
+        return this.decompiler.labelIndex(jump.getNode().label);
+    }
+
+    private void buildBlocks() {
+        int size = this.intermediates.size();
+        boolean[] leader = new boolean[size + 1];
+        leader[0] = true;
+        for (int i = 0; i < size; i++) {
+            IntermediateOpcode op = this.intermediates.get(i);
+            if (op instanceof IntermediateLabel) {
+                leader[i] = true;
+            } else if (op instanceof IntermediateJump || op instanceof AbstractSwitch || isExit(op)) {
+                leader[i + 1] = true;
+            }
+        }
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (leader[i]) {
+                count++;
+            }
+        }
+        this.block_count = count;
+        this.block_start = new int[count];
+        this.block_end = new int[count];
+        this.block_of = new int[size];
+        int b = -1;
+        for (int i = 0; i < size; i++) {
+            if (leader[i]) {
+                b++;
+                this.block_start[b] = i;
+                if (b > 0) {
+                    this.block_end[b - 1] = i;
+                }
+            }
+            this.block_of[i] = b;
+        }
+        this.block_end[count - 1] = size;
+
+        this.successors = new int[count][];
+        int[] pred_count = new int[count];
+        for (b = 0; b < count; b++) {
+            IntermediateOpcode last = this.intermediates.get(this.block_end[b] - 1);
+            int[] succ;
+            if (last instanceof IntermediateGoto) {
+                succ = new int[] {this.block_of[target((IntermediateJump) last)]};
+            } else if (last instanceof IntermediateJump) {
+                int taken = this.block_of[target((IntermediateJump) last)];
+                succ = b + 1 < count ? new int[] {b + 1, taken} : new int[] {taken};
+            } else if (last instanceof AbstractSwitch) {
+                AbstractSwitch aswitch = (AbstractSwitch) last;
+                List<LabelNode> labels = aswitch.getLabels();
+                succ = new int[labels.size() + 1];
+                succ[0] = this.block_of[this.decompiler.labelIndex(aswitch.getDefault())];
+                for (int i = 0; i < labels.size(); i++) {
+                    succ[i + 1] = this.block_of[this.decompiler.labelIndex(labels.get(i))];
+                }
+            } else if (isExit(last) || b + 1 == count) {
+                succ = new int[0];
+            } else {
+                succ = new int[] {b + 1};
+            }
+            this.successors[b] = succ;
+            for (int s : succ) {
+                pred_count[s]++;
+            }
+        }
+        this.predecessors = new int[count][];
+        for (b = 0; b < count; b++) {
+            this.predecessors[b] = new int[pred_count[b]];
+            pred_count[b] = 0;
+        }
+        for (b = 0; b < count; b++) {
+            for (int s : this.successors[b]) {
+                this.predecessors[s][pred_count[s]++] = b;
+            }
+        }
+    }
+
+    /**
+     * Builds the dominator tree with the iterative algorithm of Cooper,
+     * Harvey and Kennedy, which converges in a few passes over the reverse
+     * postorder for the reducible graphs produced by java compilers.
+     */
+    private void buildDominators() {
+        int count = this.block_count;
+        // reverse postorder of the reachable blocks
+        int[] order = new int[count];
+        int[] rpo_index = new int[count];
+        Arrays.fill(rpo_index, -1);
+        int[] stack = new int[count];
+        int[] next_succ = new int[count];
+        boolean[] visited = new boolean[count];
+        int post = count;
+        int sp = 0;
+        stack[sp++] = 0;
+        visited[0] = true;
+        while (sp > 0) {
+            int b = stack[sp - 1];
+            if (next_succ[b] < this.successors[b].length) {
+                int s = this.successors[b][next_succ[b]++];
+                if (!visited[s]) {
+                    visited[s] = true;
+                    stack[sp++] = s;
+                }
+            } else {
+                sp--;
+                order[--post] = b;
+            }
+        }
+        int reachable = count - post;
+        order = Arrays.copyOfRange(order, post, count);
+        for (int i = 0; i < reachable; i++) {
+            rpo_index[order[i]] = i;
+        }
+
+        this.idom = new int[count];
+        Arrays.fill(this.idom, -1);
+        this.idom[0] = 0;
+        boolean changed = true;
+        while (changed) {
+            this.decompiler.checkDeadline();
+            changed = false;
+            for (int i = 1; i < reachable; i++) {
+                int b = order[i];
+                int new_idom = -1;
+                for (int p : this.predecessors[b]) {
+                    if (this.idom[p] == -1) {
+                        continue;
+                    }
+                    new_idom = new_idom == -1 ? p : intersect(p, new_idom, rpo_index);
+                }
+                if (this.idom[b] != new_idom) {
+                    this.idom[b] = new_idom;
+                    changed = true;
+                }
+            }
+        }
+
+        // number the dominator tree so that a dominates b exactly when the
+        // interval of a contains the interval of b
+        int[] child_count = new int[count];
+        for (int i = 1; i < reachable; i++) {
+            child_count[this.idom[order[i]]]++;
+        }
+        int[][] children = new int[count][];
+        for (int b = 0; b < count; b++) {
+            children[b] = new int[child_count[b]];
+            child_count[b] = 0;
+        }
+        for (int i = 1; i < reachable; i++) {
+            int b = order[i];
+            children[this.idom[b]][child_count[this.idom[b]]++] = b;
+        }
+        this.dom_enter = new int[count];
+        this.dom_exit = new int[count];
+        Arrays.fill(this.dom_enter, -1);
+        Arrays.fill(next_succ, 0);
+        int clock = 0;
+        sp = 0;
+        stack[sp++] = 0;
+        this.dom_enter[0] = clock++;
+        while (sp > 0) {
+            int b = stack[sp - 1];
+            if (next_succ[b] < children[b].length) {
+                int c = children[b][next_succ[b]++];
+                this.dom_enter[c] = clock++;
+                stack[sp++] = c;
+            } else {
+                sp--;
+                this.dom_exit[b] = clock++;
+            }
+        }
+    }
+
+    private int intersect(int a, int b, int[] rpo_index) {
+        while (a != b) {
+            while (rpo_index[a] > rpo_index[b]) {
+                a = this.idom[a];
+            }
+            while (rpo_index[b] > rpo_index[a]) {
+                b = this.idom[b];
+            }
+        }
+        return a;
+    }
+
+    private boolean dominates(int a, int b) {
+        if (this.dom_enter[a] == -1 || this.dom_enter[b] == -1) {
+            return false;
+        }
+        return this.dom_enter[a] <= this.dom_enter[b] && this.dom_exit[b] <= this.dom_exit[a];
+    }
+
+    /**
+     * Finds the natural loop of each edge back to a dominating block and
+     * records the extent of the loop in code order, then the innermost loop
+     * of each block.
+     */
+    private void findLoops() {
+        int count = this.block_count;
+        this.loop_first = new int[count];
+        this.loop_last = new int[count];
+        Arrays.fill(this.loop_first, -1);
+        Arrays.fill(this.loop_last, -1);
+        int[] member = new int[count];
+        Arrays.fill(member, -1);
+        int[] work = new int[count];
+        for (int u = 0; u < count; u++) {
+            for (int h : this.successors[u]) {
+                if (!dominates(h, u)) {
+                    continue;
+                }
+                this.decompiler.checkDeadline();
+                int first = this.loop_first[h] == -1 ? h : this.loop_first[h];
+                int last = Math.max(this.loop_last[h], h);
+                member[h] = h;
+                int wp = 0;
+                if (member[u] != h) {
+                    member[u] = h;
+                    work[wp++] = u;
+                }
+                while (wp > 0) {
+                    int b = work[--wp];
+                    first = Math.min(first, b);
+                    last = Math.max(last, b);
+                    for (int p : this.predecessors[b]) {
+                        if (member[p] != h && this.dom_enter[p] != -1) {
+                            member[p] = h;
+                            work[wp++] = p;
+                        }
+                    }
+                }
+                this.loop_first[h] = first;
+                this.loop_last[h] = last;
+            }
+        }
+
+        // assign loops from the outermost to the innermost so that each
+        // block ends up with its innermost loop
+        List<Integer> headers = Lists.newArrayList();
+        for (int h = 0; h < count; h++) {
+            if (this.loop_last[h] != -1) {
+                headers.add(h);
+            }
+        }
+        headers.sort(Comparator.comparingInt((h) -> this.loop_first[h] - this.loop_last[h]));
+        this.loop_of = new int[count];
+        Arrays.fill(this.loop_of, -1);
+        for (int h : headers) {
+            for (int b = this.loop_first[h]; b <= this.loop_last[h]; b++) {
+                this.loop_of[b] = h;
+            }
+        }
+    }
+
+    private boolean isLoopHeader(int block) {
+        return this.loop_last[block] != -1;
+    }
+
+    /**
+     * Structures the intermediates from start to end, which are all within
+     * the given loop or -1 if not within a loop being structured.
+     */
+    private StatementBlock structure(StatementBlock.Type type, int start, int end, int loop) {
+        StatementBlock block = new StatementBlock(type, this.decompiler.getLocals());
+        Ternary tmp_ternary = null;
+        int index = start;
+        while (index < end) {
+            this.decompiler.checkDeadline();
+            IntermediateOpcode next = this.intermediates.get(index);
+            int b = this.block_of[index];
+            if (index == this.block_start[b] && b != loop && isLoopHeader(b) && this.loop_first[b] == b) {
+                index = structureLoop(block, b);
+                continue;
+            }
+            if (next instanceof IntermediateStatement) {
+                Statement stmt = ((IntermediateStatement) next).getStatement();
+                if (tmp_ternary != null) {
+                    if (stmt instanceof Assignment) {
+                        ((Assignment) stmt).setValue(tmp_ternary);
+                        tmp_ternary = null;
+                    } else if (stmt instanceof ReturnValue) {
+                        ((ReturnValue) stmt).setValue(tmp_ternary);
+                        tmp_ternary = null;
+                    }
+                }
+                block.append(stmt);
+                index++;
+            } else if (next instanceof IntermediateStackValue) {
+                block.append((IntermediateStackValue) next);
+                index++;
+            } else if (next instanceof AbstractSwitch) {
+                index = structureSwitch(block, (AbstractSwitch) next, index, end, loop);
+            } else if (next instanceof IntermediateGoto) {
+                int target = target((IntermediateGoto) next);
+                int target_block = this.block_of[target];
+                if (target > index && isLoopHeader(target_block) && this.loop_first[target_block] == b + 1) {
+                    // a jump into the bottom of a loop which tests its
+                    // condition after the body
+                    ConditionResult result = this.decompiler.makeCondition(target, this.block_end[this.loop_last[target_block]]);
+                    Exit loop_exit = new Exit(result.end, target, -1, target);
+                    this.exits.add(loop_exit);
+                    StatementBlock body = structure(StatementBlock.Type.WHILE, index + 1, target, target_block);
+                    this.exits.remove(this.exits.size() - 1);
+                    appendLoop(block, new InverseCondition(result.condition), body, loop_exit);
+                    index = result.end;
+                } else if (index == end - 1 && (type == StatementBlock.Type.IF || (target_block == loop && endsLoop(end)))) {
+                    // the jump over an else block, or back to the top of the
+                    // loop at the end of its body
+                    index++;
+                } else {
+                    block.append(jumpOut(target, index));
+                    index++;
+                }
+            } else if (next instanceof IntermediateJump) {
+                ConditionResult result = this.decompiler.makeCondition(index, conditionEnd(index));
+                if (result.block_end < index && this.block_of[result.block_end] == loop && endsLoop(end)) {
+                    // an if without an else at the end of a loop body jumps
+                    // straight back to the top of the loop
+                    result.block_end = end;
+                } else if (result.block_end < index || result.block_end > end) {
+                    // a jump straight out of the region when the condition
+                    // is false
+                    StatementBlock exit_block = new StatementBlock(StatementBlock.Type.IF, this.decompiler.getLocals());
+                    exit_block.append(jumpOut(result.block_end, index));
+                    block.append(new IfBlock(new InverseCondition(result.condition), exit_block));
+                    index = result.end;
+                    continue;
+                }
+                IntermediateOpcode last = this.intermediates.get(result.block_end - 1);
+                int else_target = -1;
+                Statement exit = null;
+                if (last instanceof IntermediateGoto) {
+                    else_target = target((IntermediateGoto) last);
+                    if (else_target < result.block_end) {
+                        if (this.block_of[else_target] == loop && endsLoop(end)) {
+                            // a jump back to the top of the loop, the else
+                            // block runs to the end of the loop body
+                            else_target = end;
+                        } else {
+                            exit = jumpOut(else_target, result.block_end - 1);
+                        }
+                    } else if (else_target > end) {
+                        exit = jumpOut(else_target, result.block_end - 1);
+                    }
+                }
+                StatementBlock body_block;
+                if (exit != null) {
+                    // the body ends by leaving an enclosing loop or switch
+                    body_block = structure(StatementBlock.Type.IF, result.end, result.block_end - 1, loop);
+                    body_block.append(exit);
+                } else {
+                    body_block = structure(StatementBlock.Type.IF, result.end, result.block_end, loop);
+                }
+                boolean is_ternary = false;
+                Instruction true_val = null;
+                Instruction false_val = null;
+                if (!body_block.getStatements().isEmpty() && body_block.getStatements().get(0) instanceof IntermediateStackValue) {
+                    is_ternary = true;
+                    true_val = ((IntermediateStackValue) body_block.getStatements().get(0)).getStackVal();
+                }
+                IfBlock if_block = new IfBlock(result.condition, body_block);
+                if (exit == null && else_target != -1) {
+                    StatementBlock else_block = structure(StatementBlock.Type.IF, result.block_end + 1, else_target, loop);
+                    if (is_ternary) {
+                        if (else_block.getStatements().isEmpty() || !(else_block.getStatements().get(0) instanceof IntermediateStackValue)) {
+                            throw new IllegalStateException();
+                        }
+                        false_val = ((IntermediateStackValue) else_block.getStatements().get(0)).getStackVal();
+                    }
+                    if (body_block.getStatements().isEmpty()) {
+                        // a body which only jumps over the else block, such as
+                        // a continue to the increment of a for loop
+                        if_block = new IfBlock(new InverseCondition(result.condition), else_block);
+                    } else {
+                        if_block.setElseBlock(new ElseBlock(else_block));
+                    }
+                    result.block_end = else_target;
+                }
+                if (is_ternary) {
+                    if (false_val == null || true_val == null) {
+                        throw new IllegalStateException();
+                    }
+                    tmp_ternary = new Ternary(result.condition, true_val, false_val);
+                } else {
+                    block.append(if_block);
+                }
+                index = result.block_end;
+            } else {
+                index++;
+            }
+        }
+        return block;
+    }
+
+    /**
+     * Gets the end of the condition starting at the given index. Each jump
+     * of a condition leads into its body, to a later jump of the condition or
+     * to the same place as its last jump, so the run of jumps is cut after
+     * the last jump for which that holds rather than taking in the condition
+     * of an if nested directly inside the body.
+     */
+    private int conditionEnd(int index) {
+        List<Integer> jumps = Lists.newArrayList();
+        for (int i = index; i < this.intermediates.size(); i++) {
+            IntermediateOpcode op = this.intermediates.get(i);
+            if (op instanceof IntermediateJump && !(op instanceof IntermediateGoto)) {
+                jumps.add(i);
+            } else if (!(op instanceof IntermediateLabel) && !(op instanceof IntermediateFrame)) {
+                break;
+            }
+        }
+        for (int m = jumps.size() - 1; m > 0; m--) {
+            int last = jumps.get(m);
+            int exit = target((IntermediateJump) this.intermediates.get(last));
+            int body = last + 1;
+            while (body < this.intermediates.size() && (this.intermediates.get(body) instanceof IntermediateLabel
+                    || this.intermediates.get(body) instanceof IntermediateFrame)) {
+                body++;
+            }
+            boolean valid = true;
+            for (int k = 0; k < m && valid; k++) {
+                int jump = jumps.get(k);
+                int target = target((IntermediateJump) this.intermediates.get(jump));
+                valid = isSameBlock(target, exit) || (target > jump && target <= body);
+            }
+            if (valid) {
+                return last + 1;
+            }
+        }
+        return jumps.get(0) + 1;
+    }
+
+    /**
+     * Structures a loop whose header is its first block, returning the index
+     * of the first intermediate after the loop.
+     */
+    private int structureLoop(StatementBlock block, int header) {
+        int start = this.block_start[header];
+        int latch_index = this.block_end[this.loop_last[header]] - 1;
+        IntermediateOpcode latch = this.intermediates.get(latch_index);
+        if (latch instanceof IntermediateGoto) {
+            // the condition is tested at the top and the body jumps back to it
+            IntermediateOpcode test = this.intermediates.get(this.block_end[header] - 1);
+            // the condition ends with the last of its jumps out of the loop,
+            // any jumps after it belong to the body
+            int exit = latch_index + 1;
+            int condition_end = -1;
+            if (test instanceof IntermediateJump && !(test instanceof IntermediateGoto)) {
+                for (int i = start; i < latch_index; i++) {
+                    IntermediateOpcode op = this.intermediates.get(i);
+                    if (op instanceof IntermediateJump && !(op instanceof IntermediateGoto)) {
+                        if (target((IntermediateJump) op) == exit) {
+                            condition_end = i + 1;
+                        }
+                    } else if (!(op instanceof IntermediateLabel) && !(op instanceof IntermediateFrame)) {
+                        break;
+                    }
+                }
+            }
+            Exit loop_exit = new Exit(exit, start, findUpdate(header, latch_index), latch_index);
+            this.exits.add(loop_exit);
+            if (condition_end == -1) {
+                // a loop without a condition which is only left by a break
+                // or a return from within its body
+                StatementBlock body = structure(StatementBlock.Type.WHILE, start, latch_index, header);
+                this.exits.remove(this.exits.size() - 1);
+                appendLoop(block, new BooleanCondition(IntConstantArg.of(1), false), body, loop_exit);
+                return exit;
+            }
+            ConditionResult result = this.decompiler.makeCondition(start, condition_end);
+            if (result.block_end != exit) {
+                throw new IllegalStateException("Unsupported loop exit at " + start);
+            }
+            StatementBlock body = structure(StatementBlock.Type.WHILE, result.end, latch_index, header);
+            this.exits.remove(this.exits.size() - 1);
+            appendLoop(block, result.condition, body, loop_exit);
+            return result.block_end;
+        } else if (latch instanceof IntermediateJump && target((IntermediateJump) latch) == start) {
+            // the condition is tested at the bottom
+            int condition_start = latch_index;
+            for (int i = latch_index - 1; i > start; i--) {
+                IntermediateOpcode op = this.intermediates.get(i);
+                if (op instanceof IntermediateJump && !(op instanceof IntermediateGoto)) {
+                    condition_start = i;
+                } else if (!(op instanceof IntermediateLabel) && !(op instanceof IntermediateFrame)) {
+                    break;
+                }
+            }
+            ConditionResult result = this.decompiler.makeCondition(condition_start, latch_index + 1);
+            if (result.block_end != start) {
+                throw new IllegalStateException("Unsupported loop condition at " + condition_start);
+            }
+            Exit loop_exit = new Exit(result.end, condition_start, -1, condition_start);
+            this.exits.add(loop_exit);
+            StatementBlock body = structure(StatementBlock.Type.WHILE, start, condition_start, header);
+            this.exits.remove(this.exits.size() - 1);
+            DoWhileLoop loop = new DoWhileLoop(new InverseCondition(result.condition), body);
+            loop.setLabel(loop_exit.label);
+            block.append(loop);
+            return result.end;
+        }
+        throw new IllegalStateException("Unsupported loop at " + start);
+    }
+
+    /**
+     * Appends a loop testing its condition before the body, keeping the last
+     * statement of the body as the update of a for loop if any continue
+     * jumps to it.
+     */
+    private void appendLoop(StatementBlock block, Condition condition, StatementBlock body, Exit loop_exit) {
+        Loop loop;
+        if (loop_exit.continued) {
+            // moving the last statement into a for loop update would run it
+            // on each continue
+            loop = new WhileLoop(condition, body);
+            block.append(loop);
+        } else {
+            loop = OpcodeDecompiler.appendLoop(block, condition, false, body);
+        }
+        if (loop_exit.updated && (!(loop instanceof ForLoop) || ((ForLoop) loop).getIncr() == null)) {
+            Statement init = loop instanceof ForLoop ? ((ForLoop) loop).getInit() : null;
+            List<Statement> body_statements = body.getStatements();
+            Statement incr = body_statements.remove(body_statements.size() - 1);
+            block.getStatements().remove(loop);
+            loop = new ForLoop(init, condition, incr, body);
+            block.append(loop);
+        }
+        loop.setLabel(loop_exit.label);
+    }
+
+    /**
+     * Gets the index of the statement before the jump back to the header of
+     * a loop, which a continue in a for loop jumps to, or -1 if the last
+     * block of the loop is not a single statement.
+     */
+    private int findUpdate(int header, int latch_index) {
+        int last = this.loop_last[header];
+        if (last == header) {
+            return -1;
+        }
+        int update = -1;
+        for (int i = this.block_start[last]; i < latch_index; i++) {
+            IntermediateOpcode op = this.intermediates.get(i);
+            if (op instanceof IntermediateStatement) {
+                if (update != -1) {
+                    return -1;
+                }
+                update = i;
+            } else if (!(op instanceof IntermediateLabel) && !(op instanceof IntermediateFrame)) {
+                return -1;
+            }
+        }
+        return update;
+    }
+
+    /**
+     * Gets the break or continue for a jump from the given index out of the
+     * region being structured to an enclosing loop or switch.
+     */
+    private Statement jumpOut(int target, int index) {
+        boolean inner_break = true;
+        boolean inner_continue = true;
+        for (int i = this.exits.size() - 1; i >= 0; i--) {
+            Exit exit = this.exits.get(i);
+            if (isSameBlock(target, exit.exit)) {
+                return new Break(inner_break ? null : label(exit));
+            }
+            if (exit.next != -1) {
+                if (isSameBlock(target, exit.next)) {
+                    exit.continued = true;
+                    return new Continue(inner_continue ? null : label(exit));
+                } else if (exit.update != -1 && isSameBlock(target, exit.update)) {
+                    exit.updated = true;
+                    return new Continue(inner_continue ? null : label(exit));
+                }
+                inner_continue = false;
+            }
+            inner_break = false;
+        }
+        throw new IllegalStateException("Unstructured jump at " + index);
+    }
+
+    /**
+     * Gets if the given end of a region is also the end of the body of the
+     * innermost loop, so a jump back to the top of the loop from the end of
+     * the region needs no continue.
+     */
+    private boolean endsLoop(int end) {
+        for (int i = this.exits.size() - 1; i >= 0; i--) {
+            Exit exit = this.exits.get(i);
+            if (exit.next != -1) {
+                return exit.body_end == end;
+            }
+        }
+        return false;
+    }
+
+    private String label(Exit exit) {
+        if (exit.label == null) {
+            exit.label = "label" + this.label_count++;
+        }
+        return exit.label;
+    }
+
+    private boolean isSameBlock(int a, int b) {
+        if (a == b) {
+            return true;
+        }
+        int size = this.intermediates.size();
+        return a < size && b < size && this.block_of[a] == this.block_of[b];
+    }
+
+    /**
+     * Structures a switch from its cases in code order, returning the index
+     * of the first intermediate after the switch.
+     */
+    private int structureSwitch(StatementBlock block, AbstractSwitch aswitch, int index, int end, int loop) {
+        TableSwitch tswitch = new TableSwitch(aswitch.getSwitchVar());
+        List<LabelNode> labels = aswitch.getLabels();
+        int[] keys = aswitch.getKeys();
+        Map<LabelNode, List<Integer>> case_keys = Maps.newIdentityHashMap();
+        for (int k = 0; k < keys.length; k++) {
+            case_keys.computeIfAbsent(labels.get(k), (l) -> Lists.newArrayList()).add(keys[k]);
+        }
+        case_keys.putIfAbsent(aswitch.getDefault(), Lists.newArrayList());
+        List<LabelNode> cases = Lists.newArrayList(case_keys.keySet());
+        cases.sort(Comparator.comparingInt(this.decompiler::labelIndex));
+        int last_start = this.decompiler.labelIndex(cases.get(cases.size() - 1));
+
+        // the end of the switch is where its cases break to, or else the
+        // default if it has no body of its own
+        int exit = -1;
+        for (int c = 0; c < cases.size() - 1 && exit == -1; c++) {
+            IntermediateOpcode last = this.intermediates.get(this.decompiler.labelIndex(cases.get(c + 1)) - 1);
+            if (last instanceof IntermediateGoto && target((IntermediateGoto) last) >= last_start) {
+                exit = target((IntermediateGoto) last);
+            }
+        }
+        if (exit == -1) {
+            LabelNode last_case = cases.get(cases.size() - 1);
+            exit = last_case == aswitch.getDefault() && case_keys.get(last_case).isEmpty() ? last_start : end;
+        }
+
+        this.exits.add(new Exit(exit, -1, -1, -1));
+        for (int c = 0; c < cases.size(); c++) {
+            LabelNode label = cases.get(c);
+            int case_start = this.decompiler.labelIndex(label);
+            int case_end = c < cases.size() - 1 ? this.decompiler.labelIndex(cases.get(c + 1)) : exit;
+            case_end = Math.min(case_end, exit);
+            boolean breaks = false;
+            if (case_end > case_start) {
+                IntermediateOpcode last = this.intermediates.get(case_end - 1);
+                if (last instanceof IntermediateGoto && target((IntermediateGoto) last) == exit) {
+                    case_end--;
+                    breaks = c < cases.size() - 1;
+                }
+            }
+            StatementBlock body = structure(StatementBlock.Type.SWITCH, case_start, Math.max(case_start, case_end), loop);
+            tswitch.addCase(new Case(body, breaks, label == aswitch.getDefault(), case_keys.get(label)));
+        }
+        this.exits.remove(this.exits.size() - 1);
+        block.append(tswitch);
+        return exit;
+    }
+
+    /**
+     * A loop or switch enclosing the region being structured which a break
+     * or continue may jump out of.
+     */
+    private static class Exit {
+
+        // The first intermediate after the loop or switch
+        final int exit;
+        // Where a continue jumps to, or -1 for a switch
+        final int next;
+        // The update statement of a for loop, or -1
+        final int update;
+        // The end of the body of a loop, or -1 for a switch
+        final int body_end;
+
+        String label;
+        boolean continued;
+        boolean updated;
+
+        Exit(int exit, int next, int update, int body_end) {
+            this.exit = exit;
+            this.next = next;
+            this.update = update;
+            this.body_end = body_end;
+        }
+
+    }
+
+}
@@ -0,0 +1,254 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.ast.io.insn;
+
+import com.google.common.collect.Lists;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.FieldInsnNode;
+import org.objectweb.asm.tree.FrameNode;
+import org.objectweb.asm.tree.IincInsnNode;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.IntInsnNode;
+import org.objectweb.asm.tree.InvokeDynamicInsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.LineNumberNode;
+import org.objectweb.asm.tree.LocalVariableNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MultiANewArrayInsnNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
+import org.objectweb.asm.tree.TypeInsnNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+import java.util.List;
+
+/**
+ * A method visitor which records the code of a method as it is read into a
+ * flat list of instructions, without building a method node or instruction
+ * list. The recorded instructions can be built directly by
+ * {@link InstructionTreeBuilder#build(InstructionRecorder)}.
+ *
+ * <p>Labels are recorded with their index in the list, so that the decompiler
+ * can resolve them without searching.</p>
+ *
+ * <p>The recorders of the methods of a class may share a single buffer, as
+ * the methods are read one after another, which avoids growing a new list for
+ * each method.</p>
+ */
+public class InstructionRecorder extends MethodVisitor {
+
+    private final int access;
+    private final String desc;
+    private final List<AbstractInsnNode> buffer;
+    private final int start;
+    private int end = -1;
+    private final List<LocalVariableNode> local_variables = Lists.newArrayList();
+
+    public InstructionRecorder(int access, String desc) {
+        this(access, desc, Lists.newArrayList());
+    }
+
+    /**
+     * Creates a recorder which appends the instructions of its method to the
+     * given buffer. The buffer must not be modified other than by recording
+     * until the instructions are built.
+     */
+    public InstructionRecorder(int access, String desc, List<AbstractInsnNode> buffer) {
+        super(Opcodes.ASM5);
+        this.access = access;
+        this.desc = desc;
+        this.buffer = buffer;
+        this.start = buffer.size();
+    }
+
+    public int getAccess() {
+        return this.access;
+    }
+
+    public String getDescription() {
+        return this.desc;
+    }
+
+    /**
+     * Gets the recorded instructions, including labels, frames and line
+     * numbers.
+     */
+    public List<AbstractInsnNode> getInstructions() {
+        return this.buffer.subList(this.start, this.end == -1 ? this.buffer.size() : this.end);
+    }
+
+    /**
+     * Gets the recorded local variable debug info.
+     */
+    public List<LocalVariableNode> getLocalVariables() {
+        return this.local_variables;
+    }
+
+    private IndexedLabelNode getLabelNode(Label label) {
+        // As in the tree api the node of each label is attached to the label,
+        // a label replayed from a method node may hold a node recorded by an
+        // earlier recorder which is replaced.
+        if (label.info instanceof IndexedLabelNode && ((IndexedLabelNode) label.info).recorder == this) {
+            return (IndexedLabelNode) label.info;
+        }
+        IndexedLabelNode node = new IndexedLabelNode(this, label);
+        label.info = node;
+        return node;
+    }
+
+    private LabelNode[] getLabelNodes(Label[] labels) {
+        LabelNode[] nodes = new LabelNode[labels.length];
+        for (int i = 0; i < labels.length; i++) {
+            nodes[i] = getLabelNode(labels[i]);
+        }
+        return nodes;
+    }
+
+    private Object[] getFrameTypes(int count, Object[] types) {
+        if (types == null) {
+            return null;
+        }
+        Object[] nodes = new Object[count];
+        for (int i = 0; i < count; i++) {
+            Object type = types[i];
+            nodes[i] = type instanceof Label ? getLabelNode((Label) type) : type;
+        }
+        return nodes;
+    }
+
+    @Override
+    public void visitFrame(int type, int nLocal, Object[] local, int nStack, Object[] stack) {
+        this.buffer.add(new FrameNode(type, nLocal, getFrameTypes(nLocal, local), nStack, getFrameTypes(nStack, stack)));
+    }
+
+    @Override
+    public void visitInsn(int opcode) {
+        this.buffer.add(new InsnNode(opcode));
+    }
+
+    @Override
+    public void visitIntInsn(int opcode, int operand) {
+        this.buffer.add(new IntInsnNode(opcode, operand));
+    }
+
+    @Override
+    public void visitVarInsn(int opcode, int var) {
+        this.buffer.add(new VarInsnNode(opcode, var));
+    }
+
+    @Override
+    public void visitTypeInsn(int opcode, String type) {
+        this.buffer.add(new TypeInsnNode(opcode, type));
+    }
+
+    @Override
+    public void visitFieldInsn(int opcode, String owner, String name, String desc) {
+        this.buffer.add(new FieldInsnNode(opcode, owner, name, desc));
+    }
+
+    @Override
+    public void visitMethodInsn(int opcode, String owner, String name, String desc, boolean itf) {
+        this.buffer.add(new MethodInsnNode(opcode, owner, name, desc, itf));
+    }
+
+    @Override
+    public void visitInvokeDynamicInsn(String name, String desc, Handle bsm, Object... bsmArgs) {
+        this.buffer.add(new InvokeDynamicInsnNode(name, desc, bsm, bsmArgs));
+    }
+
+    @Override
+    public void visitJumpInsn(int opcode, Label label) {
+        this.buffer.add(new JumpInsnNode(opcode, getLabelNode(label)));
+    }
+
+    @Override
+    public void visitLabel(Label label) {
+        IndexedLabelNode node = getLabelNode(label);
+        node.index = this.buffer.size() - this.start;
+        this.buffer.add(node);
+    }
+
+    @Override
+    public void visitLdcInsn(Object cst) {
+        this.buffer.add(new LdcInsnNode(cst));
+    }
+
+    @Override
+    public void visitIincInsn(int var, int increment) {
+        this.buffer.add(new IincInsnNode(var, increment));
+    }
+
+    @Override
+    public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+        this.buffer.add(new TableSwitchInsnNode(min, max, getLabelNode(dflt), getLabelNodes(labels)));
+    }
+
+    @Override
+    public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+        this.buffer.add(new LookupSwitchInsnNode(getLabelNode(dflt), keys, getLabelNodes(labels)));
+    }
+
+    @Override
+    public void visitMultiANewArrayInsn(String desc, int dims) {
+        this.buffer.add(new MultiANewArrayInsnNode(desc, dims));
+    }
+
+    @Override
+    public void visitEnd() {
+        this.end = this.buffer.size();
+    }
+
+    @Override
+    public void visitLocalVariable(String name, String desc, String signature, Label start, Label end, int index) {
+        this.local_variables.add(new LocalVariableNode(name, desc, signature, getLabelNode(start), getLabelNode(end), index));
+    }
+
+    @Override
+    public void visitLineNumber(int line, Label start) {
+        this.buffer.add(new LineNumberNode(line, getLabelNode(start)));
+    }
+
+    /**
+     * A label which knows its index in the recorded instructions.
+     */
+    static class IndexedLabelNode extends LabelNode {
+
+        final InstructionRecorder recorder;
+        int index = -1;
+
+        IndexedLabelNode(InstructionRecorder recorder, Label label) {
+            super(label);
+            this.recorder = recorder;
+        }
+
+    }
+
+}
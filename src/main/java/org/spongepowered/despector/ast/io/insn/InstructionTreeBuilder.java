@@ -24,30 +24,106 @@
  */
 package org.spongepowered.despector.ast.io.insn;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.LocalVariableNode;
 import org.objectweb.asm.tree.MethodNode;
+import org.spongepowered.despector.ast.SourceSet;
 import org.spongepowered.despector.ast.io.insn.Locals.Local;
 import org.spongepowered.despector.ast.members.insn.StatementBlock;
-import org.spongepowered.despector.util.TypeHelper;
+import org.spongepowered.despector.ast.members.insn.arg.Instruction;
+import org.spongepowered.despector.ast.members.insn.arg.NewRefArg;
+import org.spongepowered.despector.ast.members.insn.arg.cst.StringConstantArg;
+import org.spongepowered.despector.ast.members.insn.misc.Comment;
+import org.spongepowered.despector.ast.members.insn.misc.ThrowException;
+import org.spongepowered.despector.ast.type.SignatureParser;
+import org.spongepowered.despector.util.AstUtil;
+import org.spongepowered.despector.util.MethodDescriptor;
 
 import java.util.List;
 import java.util.Set;
 
 /**
- * A builder for creating the AST from an instruction list.
+ * A builder for creating the AST from an instruction list. Builders may be
+ * used from any number of threads at once.
  */
 public final class InstructionTreeBuilder {
 
+    // Decompilers are reused between the methods built on each thread
+    private static final ThreadLocal<OpcodeDecompiler> DECOMPILERS = ThreadLocal.withInitial(OpcodeDecompiler::new);
+
+    private static volatile MethodBudget budget = MethodBudget.UNLIMITED;
+    private static volatile StructuringEngine engine = StructuringEngine.RANGE;
+
+    /**
+     * Gets the budget which each built method is limited to.
+     */
+    public static MethodBudget getBudget() {
+        return budget;
+    }
+
+    /**
+     * Sets the budget which each built method is limited to. Methods which
+     * exceed the budget are built as a placeholder body which comments on why
+     * the method was abandoned and throws an exception.
+     */
+    public static void setBudget(MethodBudget budget) {
+        InstructionTreeBuilder.budget = checkNotNull(budget, "budget");
+    }
+
+    /**
+     * Gets the engine which structures the control flow of built methods.
+     */
+    public static StructuringEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Sets the engine which structures the control flow of built methods.
+     */
+    public static void setEngine(StructuringEngine engine) {
+        InstructionTreeBuilder.engine = checkNotNull(engine, "engine");
+    }
+
     @SuppressWarnings("unchecked")
     public static StatementBlock build(MethodNode asm) {
         if (asm.instructions.size() == 0) {
             return null;
         }
+        Locals locals = buildLocals(asm.access, asm.desc, asm.localVariables, null);
+        MethodBudget budget = InstructionTreeBuilder.budget;
+        try {
+            return getDecompiler().decompile(asm.instructions, locals, budget);
+        } catch (BudgetExceededException e) {
+            return buildPlaceholder(locals, e.getMessage(), budget.includesListing() ? AstUtil.insnListToLines(asm.instructions) : null);
+        }
+    }
+
+    /**
+     * Builds the instructions recorded from a class reader into a statement
+     * block, or returns null if no code was recorded. The names and types
+     * referenced by the block are pooled in the given source set.
+     */
+    public static StatementBlock build(InstructionRecorder recorder, SourceSet source) {
+        if (recorder.getInstructions().isEmpty()) {
+            return null;
+        }
+        Locals locals = buildLocals(recorder.getAccess(), recorder.getDescription(), recorder.getLocalVariables(), source);
+        MethodBudget budget = InstructionTreeBuilder.budget;
+        try {
+            return getDecompiler().decompile(recorder.getInstructions(), locals, budget, source);
+        } catch (BudgetExceededException e) {
+            return buildPlaceholder(locals, e.getMessage(), budget.includesListing() ? AstUtil.insnListToLines(recorder.getInstructions()) : null);
+        }
+    }
+
+    private static Locals buildLocals(int access, String desc, List<LocalVariableNode> local_variables, SourceSet source) {
         Locals locals = new Locals();
         Set<String> names = Sets.newHashSet();
-        for (LocalVariableNode node : (List<LocalVariableNode>) asm.localVariables) {
+        for (LocalVariableNode node : local_variables) {
             Local local = locals.getLocal(node.index);
             String name = node.name;
             if ("☃".equals(name)) {
@@ -61,19 +137,57 @@ public final class InstructionTreeBuilder {
                 }
                 name = possible_name;
             }
-            local.setName(name);
+            local.setName(source == null ? name : source.intern(name));
+            local.setType(source == null ? node.desc : source.intern(node.desc));
             names.add(name);
-            local.setType(node.desc);
             if (node.signature != null) {
-                String[] generics = TypeHelper.getGenericContents(node.signature);
-                local.setGenericTypes(generics);
+                try {
+                    local.setGenericType(SignatureParser.parseType(node.signature));
+                } catch (IllegalArgumentException e) {
+                    // an invalid signature left by an obfuscator, the local
+                    // is declared with its erased type instead
+                }
             }
         }
-        int offs = ((asm.access & Opcodes.ACC_STATIC) != 0) ? 1 : 0;
-        for (int i = 0; i <= TypeHelper.paramCount(asm.desc) - offs; i++) {
+        int offs = ((access & Opcodes.ACC_STATIC) != 0) ? 1 : 0;
+        MethodDescriptor method = source == null ? MethodDescriptor.of(desc) : source.getMethodDescriptor(desc);
+        for (int i = 0; i <= method.getParamCount() - offs; i++) {
             locals.getLocal(i).setAsParameter();
         }
-        return new OpcodeDecompiler().decompile(asm.instructions, locals);
+        return locals;
+    }
+
+    private static OpcodeDecompiler getDecompiler() {
+        OpcodeDecompiler decompiler = DECOMPILERS.get();
+        if (decompiler.isActive()) {
+            // a method is being built from within another on this thread
+            decompiler = new OpcodeDecompiler();
+        }
+        decompiler.setEngine(engine);
+        return decompiler;
+    }
+
+    /**
+     * Gets if the given body is a placeholder for a method which exceeded its
+     * budget.
+     */
+    public static boolean isPlaceholder(StatementBlock block) {
+        return block != null && block.isPlaceholder();
+    }
+
+    private static StatementBlock buildPlaceholder(Locals locals, String reason, List<String> listing) {
+        StatementBlock block = new StatementBlock(StatementBlock.Type.METHOD, locals);
+        block.setPlaceholder(true);
+        List<String> lines = Lists.newArrayList();
+        lines.add("Decompilation abandoned: " + reason);
+        if (listing != null) {
+            lines.add("Bytecode:");
+            lines.addAll(listing);
+        }
+        block.append(new Comment(lines));
+        Instruction[] args = new Instruction[] {StringConstantArg.of("Method not decompiled")};
+        block.append(new ThrowException(new NewRefArg("Ljava/lang/UnsupportedOperationException;", "(Ljava/lang/String;)V", args)));
+        return block;
     }
 
     private InstructionTreeBuilder() {
@@ -75,6 +75,12 @@ public interface IntermediateOpcode {
 
         public abstract int indexFor(LabelNode l);
 
+        /**
+         * Gets the key of each label of {@link #getLabels()}, in the same
+         * order.
+         */
+        public abstract int[] getKeys();
+
     }
 
     public static class IntermediateTableSwitch extends AbstractSwitch implements IntermediateOpcode {
@@ -112,6 +118,15 @@ public interface IntermediateOpcode {
             return this.jump.min + this.jump.labels.indexOf(l);
         }
 
+        @Override
+        public int[] getKeys() {
+            int[] keys = new int[this.jump.labels.size()];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = this.jump.min + i;
+            }
+            return keys;
+        }
+
         @Override
         public String toString() {
             return AstUtil.insnToString(this.jump) + " on " + this.variable.toString();
@@ -154,6 +169,15 @@ public interface IntermediateOpcode {
             return (int) this.jump.keys.get(this.jump.labels.indexOf(l));
         }
 
+        @Override
+        public int[] getKeys() {
+            int[] keys = new int[this.jump.keys.size()];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = (int) this.jump.keys.get(i);
+            }
+            return keys;
+        }
+
         @Override
         public String toString() {
             return AstUtil.insnToString(this.jump) + " on " + this.variable.toString();
@@ -25,6 +25,7 @@
 package org.spongepowered.despector.ast.io.insn;
 
 import org.spongepowered.despector.ast.members.insn.arg.Instruction;
+import org.spongepowered.despector.ast.type.GenericType;
 import org.spongepowered.despector.util.TypeHelper;
 
 import java.util.Arrays;
@@ -34,6 +35,27 @@ import java.util.Arrays;
  */
 public class Locals {
 
+    // The default names of the low local indices, which are shared by every
+    // method without debug information.
+    private static final String[] DEFAULT_NAMES = new String[256];
+
+    static {
+        for (int i = 0; i < DEFAULT_NAMES.length; i++) {
+            DEFAULT_NAMES[i] = "local" + i;
+        }
+    }
+
+    /**
+     * Gets the name given to the local at the given index if it has no name
+     * from debug information.
+     */
+    public static String defaultName(int index) {
+        if (index >= 0 && index < DEFAULT_NAMES.length) {
+            return DEFAULT_NAMES[index];
+        }
+        return "local" + index;
+    }
+
     private Local[] locals;
 
     public Locals() {
@@ -96,12 +118,12 @@ public class Locals {
         private Instruction value;
         private String      name;
         private boolean     parameter = false;
-        private String[]    generics  = null;
+        private GenericType generic_type = null;
 
         public Local(int i, String type) {
             this.index = i;
             this.type = type;
-            this.name = "local" + i;
+            this.name = defaultName(i);
         }
 
         public int getIndex() {
@@ -118,7 +140,7 @@ public class Locals {
         public void set(Instruction val) {
             this.value = val;
             if (this.name == null) {
-                this.name = "local" + this.index;
+                this.name = defaultName(this.index);
             }
             if (this.type == null) {
                 this.type = val.inferType();
@@ -153,12 +175,16 @@ public class Locals {
             this.parameter = true;
         }
 
-        public String[] getGenericTypes() {
-            return this.generics;
+        /**
+         * Gets the generic type of this local from its signature, or null if
+         * it has no signature.
+         */
+        public GenericType getGenericType() {
+            return this.generic_type;
         }
 
-        public void setGenericTypes(String[] generic_types) {
-            this.generics = generic_types;
+        public void setGenericType(GenericType type) {
+            this.generic_type = type;
         }
 
     }
@@ -0,0 +1,84 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.ast.io.insn;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Limits on how much work may be spent decompiling a single method. A method
+ * which exceeds its budget is replaced by a placeholder body.
+ */
+public final class MethodBudget {
+
+    /**
+     * A budget without any limits.
+     */
+    public static final MethodBudget UNLIMITED = new MethodBudget(0, 0, false);
+
+    private final long max_millis;
+    private final int max_intermediates;
+    private final boolean listing;
+
+    /**
+     * Creates a new budget. A limit of zero means no limit.
+     *
+     * @param max_millis The wall time a method may take to decompile
+     * @param max_intermediates The number of intermediate opcodes a method may
+     *     have
+     * @param listing Whether placeholder bodies include the bytecode of the
+     *     method
+     */
+    public MethodBudget(long max_millis, int max_intermediates, boolean listing) {
+        checkArgument(max_millis >= 0, "Time limit must not be negative");
+        checkArgument(max_intermediates >= 0, "Intermediate limit must not be negative");
+        this.max_millis = max_millis;
+        this.max_intermediates = max_intermediates;
+        this.listing = listing;
+    }
+
+    /**
+     * Gets the wall time in milliseconds a method may take to decompile, or
+     * zero if unlimited.
+     */
+    public long getMaxMillis() {
+        return this.max_millis;
+    }
+
+    /**
+     * Gets the number of intermediate opcodes a method may have, or zero if
+     * unlimited.
+     */
+    public int getMaxIntermediates() {
+        return this.max_intermediates;
+    }
+
+    /**
+     * Gets if placeholder bodies include a listing of the method's bytecode.
+     */
+    public boolean includesListing() {
+        return this.listing;
+    }
+
+}
@@ -24,13 +24,12 @@
  */
 package org.spongepowered.despector.ast.io.insn;
 
+import static com.google.common.base.Preconditions.checkNotNull;
 import static org.objectweb.asm.Opcodes.*;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Queues;
-import com.google.common.collect.Sets;
-import org.objectweb.asm.Label;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.AbstractInsnNode;
 import org.objectweb.asm.tree.FieldInsnNode;
@@ -47,6 +46,8 @@ import org.objectweb.asm.tree.MethodInsnNode;
 import org.objectweb.asm.tree.TableSwitchInsnNode;
 import org.objectweb.asm.tree.TypeInsnNode;
 import org.objectweb.asm.tree.VarInsnNode;
+import org.spongepowered.despector.ast.SourceSet;
+import org.spongepowered.despector.ast.io.insn.InstructionRecorder.IndexedLabelNode;
 import org.spongepowered.despector.ast.io.insn.IntermediateOpcode.AbstractSwitch;
 import org.spongepowered.despector.ast.io.insn.IntermediateOpcode.DummyInstruction;
 import org.spongepowered.despector.ast.io.insn.IntermediateOpcode.IntermediateCompareJump;
@@ -103,6 +104,7 @@ import org.spongepowered.despector.ast.members.insn.branch.DoWhileLoop;
 import org.spongepowered.despector.ast.members.insn.branch.ElseBlock;
 import org.spongepowered.despector.ast.members.insn.branch.ForLoop;
 import org.spongepowered.despector.ast.members.insn.branch.IfBlock;
+import org.spongepowered.despector.ast.members.insn.branch.Loop;
 import org.spongepowered.despector.ast.members.insn.branch.TableSwitch;
 import org.spongepowered.despector.ast.members.insn.branch.TableSwitch.Case;
 import org.spongepowered.despector.ast.members.insn.branch.Ternary;
@@ -122,39 +124,193 @@ import org.spongepowered.despector.ast.members.insn.misc.ReturnValue;
 import org.spongepowered.despector.ast.members.insn.misc.ReturnVoid;
 import org.spongepowered.despector.ast.members.insn.misc.ThrowException;
 import org.spongepowered.despector.util.AstUtil;
-import org.spongepowered.despector.util.TypeHelper;
+import org.spongepowered.despector.util.MethodDescriptor;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 
 @SuppressWarnings("unchecked")
 public class OpcodeDecompiler {
 
-    private Deque<Instruction> stack;
+    // Methods larger than this are not allowed to leave their capacity behind
+    // in the reused collections.
+    private static final int RETAINED_CAPACITY = 4096;
+
+    private Deque<Instruction> stack = Queues.newArrayDeque();
     private Locals locals;
+    private SourceSet source;
+    // The instructions of the current method, either as recorded or copied
+    // from its instruction list into the reused buffer.
+    private List<AbstractInsnNode> insn_buffer = Lists.newArrayList();
     private List<AbstractInsnNode> instructions;
     private int instructions_index;
 
-    private List<IntermediateOpcode> intermediates;
-    private Map<Label, Integer> label_indices;
+    private List<IntermediateOpcode> intermediates = Lists.newArrayList();
+    // Labels are identified by their index in the instruction list, which
+    // indexes the intermediate index of the label in this array.
+    private InsnList insn_list;
+    private int[] label_targets = new int[0];
+    private boolean intermediate_stack;
+    private boolean active = false;
+    private long deadline;
+    private StructuringEngine engine = StructuringEngine.RANGE;
 
     public OpcodeDecompiler() {
     }
 
+    /**
+     * Gets if this decompiler is currently decompiling a method.
+     */
+    public boolean isActive() {
+        return this.active;
+    }
+
+    /**
+     * Gets the engine used to structure the control flow of methods.
+     */
+    public StructuringEngine getEngine() {
+        return this.engine;
+    }
+
+    /**
+     * Sets the engine used to structure the control flow of methods.
+     */
+    public void setEngine(StructuringEngine engine) {
+        this.engine = checkNotNull(engine, "engine");
+    }
+
+    /**
+     * Gets the intermediates of the method being decompiled.
+     */
+    List<IntermediateOpcode> getIntermediates() {
+        return this.intermediates;
+    }
+
+    /**
+     * Gets the locals of the method being decompiled.
+     */
+    Locals getLocals() {
+        return this.locals;
+    }
+
+    /**
+     * Decompiles the given instructions into a statement block. A decompiler
+     * may be reused for any number of methods, but can only decompile one
+     * method at a time.
+     */
     public StatementBlock decompile(InsnList instructions, Locals locals) {
-        this.stack = Queues.newArrayDeque();
+        return decompile(instructions, locals, MethodBudget.UNLIMITED);
+    }
+
+    /**
+     * Decompiles the given instructions into a statement block, abandoning
+     * the method with a {@link BudgetExceededException} if it exceeds the
+     * given budget.
+     */
+    public StatementBlock decompile(InsnList instructions, Locals locals, MethodBudget budget) {
+        return decompile(instructions, null, locals, budget, null);
+    }
+
+    /**
+     * Decompiles the instructions recorded by an {@link InstructionRecorder}
+     * into a statement block. The instructions are used in place rather than
+     * copied, and the names and descriptors of the built nodes are pooled in
+     * the given source set if there is one.
+     */
+    StatementBlock decompile(List<AbstractInsnNode> recorded, Locals locals, MethodBudget budget, SourceSet source) {
+        return decompile(null, recorded, locals, budget, source);
+    }
+
+    private StatementBlock decompile(InsnList insn_list, List<AbstractInsnNode> recorded, Locals locals, MethodBudget budget, SourceSet source) {
+        if (this.active) {
+            throw new IllegalStateException("Decompiler is already in use");
+        }
+        this.active = true;
         this.locals = locals;
-        this.intermediates = Lists.newArrayList();
+        this.source = source;
+        this.insn_list = insn_list;
+        this.deadline = budget.getMaxMillis() == 0 ? 0 : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budget.getMaxMillis());
+        try {
+            if (recorded != null) {
+                this.instructions = recorded;
+            } else {
+                Iterator<AbstractInsnNode> it = insn_list.iterator();
+                while (it.hasNext()) {
+                    this.insn_buffer.add(it.next());
+                }
+                this.instructions = this.insn_buffer;
+            }
+            buildIntermediates();
+            if (budget.getMaxIntermediates() != 0 && this.intermediates.size() > budget.getMaxIntermediates()) {
+                throw new BudgetExceededException("Method has " + this.intermediates.size() + " intermediate opcodes, the limit is "
+                        + budget.getMaxIntermediates());
+            }
+
+            calcLabelIndices();
+
+            if (this.engine == StructuringEngine.CFG) {
+                return new CfgStructurer(this).structure();
+            }
+            return buildBlock(StatementBlock.Type.METHOD, 0, this.intermediates.size());
+        } finally {
+            reset();
+        }
+    }
 
-        buildIntermediates(instructions, locals);
+    private void reset() {
+        // The intermediates and label indices reference the asm nodes of the
+        // method, which must not outlive the decompilation.
+        // Recorded instructions belong to their recorder and are not cleared.
+        if (this.instructions != null && this.instructions.size() > RETAINED_CAPACITY) {
+            this.stack = Queues.newArrayDeque();
+            this.insn_buffer = Lists.newArrayList();
+            this.intermediates = Lists.newArrayList();
+            this.label_targets = new int[0];
+        } else {
+            this.stack.clear();
+            this.insn_buffer.clear();
+            this.intermediates.clear();
+        }
+        this.instructions = null;
+        this.locals = null;
+        this.source = null;
+        this.insn_list = null;
+        this.instructions_index = 0;
+        this.intermediate_stack = false;
+        this.active = false;
+        this.deadline = 0;
+    }
+
+    /**
+     * Gets the pooled copy of the given string from the source set of the
+     * current method, or the string itself if there is no source set.
+     */
+    String intern(String str) {
+        return this.source == null ? str : this.source.intern(str);
+    }
 
-        this.label_indices = calcLabelIndices();
+    /**
+     * Gets the parsed form of the given method descriptor from the source set
+     * of the current method, or parses it if there is no source set.
+     */
+    MethodDescriptor descriptor(String desc) {
+        return this.source == null ? MethodDescriptor.of(desc) : this.source.getMethodDescriptor(desc);
+    }
 
-        return buildBlock(StatementBlock.Type.METHOD, 0, this.intermediates.size());
+    /**
+     * Checks that the time limit of the current method has not passed. This
+     * is called from each of the loops which structure the method.
+     */
+    void checkDeadline() {
+        if (this.deadline != 0 && System.nanoTime() - this.deadline > 0) {
+            throw new BudgetExceededException("Method exceeded its time limit");
+        }
     }
 
     private static boolean references(Statement insn, Local local) {
@@ -185,10 +341,49 @@ public class OpcodeDecompiler {
         return false;
     }
 
+    /**
+     * Appends a loop with the given condition and body to the block. If the
+     * last statement of the block assigns a local used by the condition or
+     * incremented at the end of the body then a for loop is appended instead.
+     *
+     * @param condition The condition as made by {@link #makeCondition(int)}
+     * @param inverse Whether the loop runs while the condition is false
+     * @return The loop which was appended
+     */
+    static Loop appendLoop(StatementBlock block, Condition condition, boolean inverse, StatementBlock body) {
+        Condition loop_condition = inverse ? new InverseCondition(condition) : condition;
+        if (!block.getStatements().isEmpty()) {
+            Statement init = block.getStatements().get(block.getStatements().size() - 1);
+            Statement incr = null;
+            if (!body.getStatements().isEmpty()) {
+                incr = body.getStatements().get(body.getStatements().size() - 1);
+            }
+            if (init instanceof LocalAssign) {
+                Local local = ((LocalAssign) init).getLocal();
+                if (references(condition, local) || references(incr, local)) {
+                    block.getStatements().remove(init);
+                    if (references(incr, local)) {
+                        body.getStatements().remove(incr);
+                        ForLoop loop = new ForLoop(init, loop_condition, incr, body);
+                        block.append(loop);
+                        return loop;
+                    }
+                    ForLoop loop = new ForLoop(init, loop_condition, null, body);
+                    block.append(loop);
+                    return loop;
+                }
+            }
+        }
+        WhileLoop loop = new WhileLoop(loop_condition, body);
+        block.append(loop);
+        return loop;
+    }
+
     private StatementBlock buildBlock(StatementBlock.Type type, int start, int end) {
         StatementBlock block = new StatementBlock(type, this.locals);
         Ternary tmp_ternary = null;
         for (int index = start; index < end; index++) {
+            checkDeadline();
             IntermediateOpcode next = this.intermediates.get(index);
             if (next instanceof IntermediateStatement) {
                 Statement stmt = ((IntermediateStatement) next).getStatement();
@@ -209,20 +404,34 @@ public class OpcodeDecompiler {
                 Instruction var = aswitch.getSwitchVar();
 
                 TableSwitch tswitch = new TableSwitch(var);
-                boolean added_dflt = false;
+                // The keys of each case by its label, a label with no keys is
+                // only the default case.
                 List<LabelNode> labels = aswitch.getLabels();
-                if (!labels.contains(aswitch.getDefault())) {
-                    labels.add(aswitch.getDefault());
-                    added_dflt = true;
+                int[] keys = aswitch.getKeys();
+                Map<LabelNode, List<Integer>> case_keys = Maps.newIdentityHashMap();
+                for (int k = 0; k < keys.length; k++) {
+                    case_keys.computeIfAbsent(labels.get(k), (l) -> Lists.newArrayList()).add(keys[k]);
                 }
+                // The last case is the default, unless the default shares its
+                // label with a key in which case it is the label of the last key
+                LabelNode final_label = aswitch.getDefault();
+                if (case_keys.containsKey(final_label)) {
+                    final_label = labels.get(labels.size() - 1);
+                } else {
+                    case_keys.put(final_label, Lists.newArrayList());
+                }
+                int remaining = case_keys.size();
                 int last = -1;
                 LabelNode break_label = null;
                 LabelNode last_label = null;
                 int switch_end = index;
-                for (int i = index + 1; i < end; i++) {
+                for (int i = index + 1; i < end && remaining > 0; i++) {
                     IntermediateOpcode cnext = this.intermediates.get(i);
                     if (cnext instanceof IntermediateLabel) {
-                        if (labels.contains(((IntermediateLabel) cnext).getLabel())) {
+                        if (case_keys.containsKey(((IntermediateLabel) cnext).getLabel())) {
+                            // each label appears once so once every case has
+                            // been found the rest of the block can be skipped
+                            remaining--;
                             if (last == -1) {
                                 last = i;
                                 last_label = ((IntermediateLabel) cnext).getLabel();
@@ -232,7 +441,7 @@ public class OpcodeDecompiler {
                             boolean breaks = false;
                             if (last_op instanceof IntermediateGoto) {
                                 LabelNode label = ((IntermediateGoto) last_op).getNode().label;
-                                if (this.label_indices.get(label.getLabel()) > i) {
+                                if (labelIndex(label) > i) {
                                     breaks = true;
                                     break_label = label;
                                 }
@@ -242,36 +451,21 @@ public class OpcodeDecompiler {
                                 case_end--;
                             }
                             boolean is_def = aswitch.getDefault() == last_label;
-                            List<Integer> indices = Lists.newArrayList();
-                            for (LabelNode l : labels) {
-                                if (l == last_label) {
-                                    indices.add(aswitch.indexFor(l));
-                                }
-                            }
                             StatementBlock body_block = buildBlock(StatementBlock.Type.SWITCH, last, case_end);
-                            tswitch.addCase(new Case(body_block, breaks, is_def, indices));
+                            tswitch.addCase(new Case(body_block, breaks, is_def, case_keys.get(last_label)));
 
                             last = i;
                             last_label = ((IntermediateLabel) cnext).getLabel();
-                            int case_index = labels.lastIndexOf(((IntermediateLabel) cnext).getLabel());
-                            if (case_index == labels.size() - 1) {
+                            if (last_label == final_label) {
                                 is_def = aswitch.getDefault() == last_label;
-                                indices = Lists.newArrayList();
-                                for (LabelNode l : labels) {
-                                    if (l == last_label) {
-                                        if (l == aswitch.getDefault() && added_dflt) {
-                                            continue;
-                                        }
-                                        indices.add(aswitch.indexFor(l));
-                                    }
-                                }
+                                List<Integer> indices = case_keys.get(last_label);
                                 if (break_label != null) {
-                                    int last_end = this.label_indices.get(break_label.getLabel());
+                                    int last_end = labelIndex(break_label);
                                     last_op = this.intermediates.get(last_end - 1);
                                     breaks = false;
                                     if (last_op instanceof IntermediateGoto) {
                                         LabelNode label = ((IntermediateGoto) last_op).getNode().label;
-                                        if (this.label_indices.get(label.getLabel()) > i) {
+                                        if (labelIndex(label) > i) {
                                             breaks = true;
                                         }
                                     }
@@ -298,7 +492,7 @@ public class OpcodeDecompiler {
                                     breaks = false;
                                     if (last_op instanceof IntermediateGoto) {
                                         LabelNode label = ((IntermediateGoto) last_op).getNode().label;
-                                        if (this.label_indices.get(label.getLabel()) > i) {
+                                        if (labelIndex(label) > i) {
                                             breaks = true;
                                         }
                                     }
@@ -320,35 +514,10 @@ public class OpcodeDecompiler {
                     if (index == end - 1 && type == StatementBlock.Type.IF) {
                         break;
                     }
-                    int target = this.label_indices.get(((IntermediateJump) next).getNode().label.getLabel());
+                    int target = labelIndex(((IntermediateJump) next).getNode().label);
                     ConditionResult result = makeCondition(target);
                     StatementBlock body_block = buildBlock(StatementBlock.Type.WHILE, index + 1, target);
-                    if (!block.getStatements().isEmpty()) {
-                        Statement init = block.getStatements().get(block.getStatements().size() - 1);
-                        Statement incr = null;
-                        if (!body_block.getStatements().isEmpty()) {
-                            incr = body_block.getStatements().get(body_block.getStatements().size() - 1);
-                        }
-                        if (init instanceof LocalAssign) {
-                            Local local = ((LocalAssign) init).getLocal();
-                            if (references(result.condition, local) || references(incr, local)) {
-                                block.getStatements().remove(init);
-                                if (references(incr, local)) {
-                                    body_block.getStatements().remove(incr);
-                                    ForLoop forloop = new ForLoop(init, new InverseCondition(result.condition), incr, body_block);
-                                    block.append(forloop);
-                                    index = result.end;
-                                    continue;
-                                }
-                                ForLoop forloop = new ForLoop(init, new InverseCondition(result.condition), null, body_block);
-                                block.append(forloop);
-                                index = result.end;
-                                continue;
-                            }
-                        }
-                    }
-                    WhileLoop whileloop = new WhileLoop(new InverseCondition(result.condition), body_block);
-                    block.append(whileloop);
+                    appendLoop(block, result.condition, true, body_block);
                     index = result.end;
                     continue;
                 }
@@ -371,7 +540,7 @@ public class OpcodeDecompiler {
                     IfBlock if_block = new IfBlock(result.condition, body_block);
                     IntermediateOpcode last = this.intermediates.get(result.block_end - 1);
                     if (last instanceof IntermediateGoto) {
-                        int target = this.label_indices.get(((IntermediateGoto) last).getNode().label.getLabel());
+                        int target = labelIndex(((IntermediateGoto) last).getNode().label);
                         StatementBlock else_block = buildBlock(StatementBlock.Type.IF, result.block_end + 1, target);
                         if (is_ternary) {
                             if (!(else_block.getStatements().get(0) instanceof IntermediateStackValue)) {
@@ -414,16 +583,25 @@ public class OpcodeDecompiler {
 
     }
 
-    private ConditionResult makeCondition(int index) {
+    ConditionResult makeCondition(int index) {
+        return makeCondition(index, this.intermediates.size());
+    }
+
+    /**
+     * Makes the condition starting at the given index, which ends at or
+     * before the given limit.
+     */
+    ConditionResult makeCondition(int index, int limit) {
+        checkDeadline();
         int condition_start = index;
         int condition_end = index;
-        for (; condition_end < this.intermediates.size(); condition_end++) {
+        for (; condition_end < limit; condition_end++) {
             IntermediateOpcode onext = this.intermediates.get(condition_end);
             if (onext instanceof IntermediateStatement || onext instanceof IntermediateGoto || onext instanceof IntermediateStackValue) {
                 break;
             }
         }
-        Set<LabelNode> seen_labels = Sets.newHashSet();
+        BitSet seen_labels = new BitSet();
         List<IntermediateOpcode> group = Lists.newArrayList();
         int farthest = 0;
         for (int i = condition_start; i < condition_end; i++) {
@@ -437,11 +615,11 @@ public class OpcodeDecompiler {
                     IntermediateOpcode onext = this.intermediates.get(o);
                     if (onext instanceof IntermediateJump) {
                         LabelNode label = ((IntermediateJump) onext).getNode().label;
-                        if (seen_labels.contains(label)) {
+                        if (seen_labels.get(labelId(label))) {
                             sharing = true;
                             break;
                         }
-                        if (this.label_indices.get(label.getLabel()) > farthest) {
+                        if (labelIndex(label) > farthest) {
                             sharing = true;
                             break;
                         }
@@ -459,8 +637,8 @@ public class OpcodeDecompiler {
                 }
             } else if (cnext instanceof IntermediateJump) {
                 LabelNode label = ((IntermediateJump) cnext).getNode().label;
-                seen_labels.add(label);
-                int target = this.label_indices.get(label.getLabel());
+                seen_labels.set(labelId(label));
+                int target = labelIndex(label);
                 if (target > farthest) {
                     farthest = target;
                 }
@@ -479,10 +657,10 @@ public class OpcodeDecompiler {
             group.remove(group.get(c));
         }
 
-        Condition condition = makeCondition(group);
+        Condition condition = makeCondition(group, condition_start);
         LabelNode break_node = ((IntermediateJump) group.get(group.size() - 1)).getNode().label;
 
-        int block_end = this.label_indices.get(break_node.getLabel());
+        int block_end = labelIndex(break_node);
         ConditionResult result = new ConditionResult();
         result.condition = condition;
         result.end = condition_end;
@@ -490,10 +668,13 @@ public class OpcodeDecompiler {
         return result;
     }
 
-    private Condition makeCondition(List<IntermediateOpcode> group) {
-        int start = this.intermediates.indexOf(group.get(0));
-        IntermediateOpcode last = group.get(group.size() - 1);
-        int end = this.intermediates.indexOf(last);
+    /**
+     * Makes a condition from the given group of intermediates, which are the
+     * contiguous intermediates from the given start index.
+     */
+    private Condition makeCondition(List<IntermediateOpcode> group, int start) {
+        checkDeadline();
+        int end = start + group.size() - 1;
         LabelNode break_node = ((IntermediateJump) group.get(group.size() - 1)).getNode().label;
 
         Deque<Condition> stack = Queues.newArrayDeque();
@@ -510,13 +691,13 @@ public class OpcodeDecompiler {
                         } else if (node.getOpcode() == IFNE) {
                             stack.push(new BooleanCondition(((IntermediateConditionalJump) next).getCondition(), true));
                         } else if (node.getOpcode() == IFNULL) {
-                            stack.push(new CompareCondition(((IntermediateConditionalJump) next).getCondition(), new NullConstantArg(),
+                            stack.push(new CompareCondition(((IntermediateConditionalJump) next).getCondition(), NullConstantArg.NULL,
                                     CompareOp.NOT_EQUAL));
                         } else if (node.getOpcode() == IFNONNULL) {
-                            stack.push(new CompareCondition(((IntermediateConditionalJump) next).getCondition(), new NullConstantArg(),
+                            stack.push(new CompareCondition(((IntermediateConditionalJump) next).getCondition(), NullConstantArg.NULL,
                                     CompareOp.EQUAL));
                         } else {
-                            stack.push(new CompareCondition(((IntermediateConditionalJump) next).getCondition(), new IntConstantArg(0),
+                            stack.push(new CompareCondition(((IntermediateConditionalJump) next).getCondition(), IntConstantArg.of(0),
                                     CompareCondition.fromOpcode(node.getOpcode()).inverse()));
                         }
                     } else {
@@ -551,7 +732,7 @@ public class OpcodeDecompiler {
                         ops_stack.push(CompareOps.AND);
                     }
                 } else {
-                    int jump_target = this.label_indices.get(node.label.getLabel());
+                    int jump_target = labelIndex(node.label);
                     if (jump_target <= end && jump_target >= start) {
                         if (next instanceof IntermediateConditionalJump) {
                             if (node.getOpcode() == IFEQ) {
@@ -559,13 +740,13 @@ public class OpcodeDecompiler {
                             } else if (node.getOpcode() == IFNE) {
                                 stack.push(new BooleanCondition(((IntermediateConditionalJump) next).getCondition(), true));
                             } else if (node.getOpcode() == IFNULL) {
-                                stack.push(new CompareCondition(((IntermediateConditionalJump) next).getCondition(), new NullConstantArg(),
+                                stack.push(new CompareCondition(((IntermediateConditionalJump) next).getCondition(), NullConstantArg.NULL,
                                         CompareOp.NOT_EQUAL));
                             } else if (node.getOpcode() == IFNONNULL) {
-                                stack.push(new CompareCondition(((IntermediateConditionalJump) next).getCondition(), new NullConstantArg(),
+                                stack.push(new CompareCondition(((IntermediateConditionalJump) next).getCondition(), NullConstantArg.NULL,
                                         CompareOp.EQUAL));
                             } else {
-                                stack.push(new CompareCondition(((IntermediateConditionalJump) next).getCondition(), new IntConstantArg(0),
+                                stack.push(new CompareCondition(((IntermediateConditionalJump) next).getCondition(), IntConstantArg.of(0),
                                         CompareCondition.fromOpcode(node.getOpcode()).inverse()));
                             }
                         } else {
@@ -587,13 +768,13 @@ public class OpcodeDecompiler {
                             } else if (node.getOpcode() == IFNE) {
                                 stack.push(new BooleanCondition(((IntermediateConditionalJump) next).getCondition(), false));
                             } else if (node.getOpcode() == IFNULL) {
-                                stack.push(new CompareCondition(((IntermediateConditionalJump) next).getCondition(), new NullConstantArg(),
+                                stack.push(new CompareCondition(((IntermediateConditionalJump) next).getCondition(), NullConstantArg.NULL,
                                         CompareOp.EQUAL));
                             } else if (node.getOpcode() == IFNONNULL) {
-                                stack.push(new CompareCondition(((IntermediateConditionalJump) next).getCondition(), new NullConstantArg(),
+                                stack.push(new CompareCondition(((IntermediateConditionalJump) next).getCondition(), NullConstantArg.NULL,
                                         CompareOp.NOT_EQUAL));
                             } else {
-                                stack.push(new CompareCondition(((IntermediateConditionalJump) next).getCondition(), new IntConstantArg(0),
+                                stack.push(new CompareCondition(((IntermediateConditionalJump) next).getCondition(), IntConstantArg.of(0),
                                         CompareCondition.fromOpcode(node.getOpcode())));
                             }
                         } else {
@@ -648,13 +829,11 @@ public class OpcodeDecompiler {
         return stack.pop();
     }
 
-    private static boolean intermediate_stack = false;
-
     private void handleIntermediate(AbstractInsnNode next) {
         if (next instanceof JumpInsnNode) {
             if (next.getOpcode() == GOTO) {
                 if (!this.stack.isEmpty()) {
-                    intermediate_stack = true;
+                    this.intermediate_stack = true;
                     this.intermediates.add(new IntermediateStackValue(this.stack.pop()));
                 }
                 this.intermediates.add(new IntermediateGoto((JumpInsnNode) next));
@@ -679,14 +858,14 @@ public class OpcodeDecompiler {
             if (!this.stack.isEmpty()) {
                 this.intermediates.add(this.intermediates.size() - 1, new IntermediateStackValue(this.stack.pop()));
                 this.stack.push(new DummyInstruction());
-                intermediate_stack = false;
+                this.intermediate_stack = false;
             }
             this.intermediates.add(new IntermediateFrame((FrameNode) next));
         } else {
-            if (intermediate_stack && !this.stack.isEmpty() && next.getOpcode() >= IRETURN && next.getOpcode() <= ARETURN) {
+            if (this.intermediate_stack && !this.stack.isEmpty() && next.getOpcode() >= IRETURN && next.getOpcode() <= ARETURN) {
                 this.intermediates.add(this.intermediates.size() - 1, new IntermediateStackValue(this.stack.pop()));
                 this.stack.push(new DummyInstruction());
-                intermediate_stack = false;
+                this.intermediate_stack = false;
             }
             OpHandler handle = handlers[next.getOpcode()];
             if (handle == null) {
@@ -697,14 +876,8 @@ public class OpcodeDecompiler {
         }
     }
 
-    private void buildIntermediates(InsnList instructions, Locals locals) {
-        this.instructions = Lists.newArrayList();
-        Iterator<AbstractInsnNode> it = instructions.iterator();
-        while (it.hasNext()) {
-            AbstractInsnNode next = it.next();
-            this.instructions.add(next);
-        }
-        intermediate_stack = false;
+    private void buildIntermediates() {
+        this.intermediate_stack = false;
         for (this.instructions_index = 0; this.instructions_index < this.instructions.size();) {
             AbstractInsnNode next = this.instructions.get(this.instructions_index++);
 //            System.out.println(AstUtil.insnToString(next));
@@ -712,16 +885,41 @@ public class OpcodeDecompiler {
         }
     }
 
-    private Map<Label, Integer> calcLabelIndices() {
-        Map<Label, Integer> indices = Maps.newHashMap();
-        int i = 0;
-        for (IntermediateOpcode next : this.intermediates) {
+    private void calcLabelIndices() {
+        int size = this.instructions.size();
+        if (this.label_targets.length < size) {
+            this.label_targets = new int[Math.max(size, this.label_targets.length * 2)];
+        }
+        Arrays.fill(this.label_targets, 0, size, -1);
+        for (int i = 0; i < this.intermediates.size(); i++) {
+            IntermediateOpcode next = this.intermediates.get(i);
             if (next instanceof IntermediateOpcode.IntermediateLabel) {
-                indices.put(((IntermediateOpcode.IntermediateLabel) next).getLabel().getLabel(), i);
+                this.label_targets[labelId(((IntermediateOpcode.IntermediateLabel) next).getLabel())] = i;
             }
-            i++;
         }
-        return indices;
+    }
+
+    /**
+     * Gets the id of the given label, which is its index in the instructions.
+     * Recorded labels hold their index and instruction lists cache the index
+     * of each instruction so this does not search the instructions.
+     */
+    private int labelId(LabelNode label) {
+        if (label instanceof IndexedLabelNode) {
+            return ((IndexedLabelNode) label).index;
+        }
+        return this.insn_list.indexOf(label);
+    }
+
+    /**
+     * Gets the index of the intermediate for the given label.
+     */
+    int labelIndex(LabelNode label) {
+        int index = this.label_targets[labelId(label)];
+        if (index == -1) {
+            throw new IllegalStateException("Jump to unknown label");
+        }
+        return index;
     }
 
     public void push(Instruction arg) {
@@ -774,34 +972,34 @@ public class OpcodeDecompiler {
         handlers[NOP] = noop;
         // Constants
         handlers[ACONST_NULL] = (state, next) -> {
-            state.push(new NullConstantArg());
+            state.push(NullConstantArg.NULL);
         };
         handlers[ICONST_M1] = (state, next) -> {
-            state.push(new IntConstantArg(-1));
+            state.push(IntConstantArg.of(-1));
         };
         handlers[ICONST_0] = (state, next) -> {
-            state.push(new IntConstantArg(0));
+            state.push(IntConstantArg.of(0));
         };
         handlers[ICONST_1] = (state, next) -> {
-            state.push(new IntConstantArg(1));
+            state.push(IntConstantArg.of(1));
         };
         handlers[ICONST_2] = (state, next) -> {
-            state.push(new IntConstantArg(2));
+            state.push(IntConstantArg.of(2));
         };
         handlers[ICONST_3] = (state, next) -> {
-            state.push(new IntConstantArg(3));
+            state.push(IntConstantArg.of(3));
         };
         handlers[ICONST_4] = (state, next) -> {
-            state.push(new IntConstantArg(4));
+            state.push(IntConstantArg.of(4));
         };
         handlers[ICONST_5] = (state, next) -> {
-            state.push(new IntConstantArg(5));
+            state.push(IntConstantArg.of(5));
         };
         handlers[LCONST_0] = (state, next) -> {
-            state.push(new LongConstantArg(0));
+            state.push(LongConstantArg.of(0));
         };
         handlers[LCONST_1] = (state, next) -> {
-            state.push(new LongConstantArg(1));
+            state.push(LongConstantArg.of(1));
         };
         handlers[FCONST_0] = (state, next) -> {
             state.push(new FloatConstantArg(0));
@@ -820,23 +1018,22 @@ public class OpcodeDecompiler {
         };
         OpHandler int_constant = (state, next) -> {
             IntInsnNode val = (IntInsnNode) next;
-            IntConstantArg arg = new IntConstantArg(val.operand);
-            state.push(arg);
+            state.push(IntConstantArg.of(val.operand));
         };
         handlers[BIPUSH] = int_constant;
         handlers[SIPUSH] = int_constant;
         handlers[LDC] = (state, next) -> {
             LdcInsnNode ldc = (LdcInsnNode) next;
             if (ldc.cst instanceof String) {
-                state.push(new StringConstantArg((String) ldc.cst));
+                state.push(StringConstantArg.of((String) ldc.cst));
             } else if (ldc.cst instanceof Integer) {
-                state.push(new IntConstantArg((Integer) ldc.cst));
+                state.push(IntConstantArg.of((Integer) ldc.cst));
             } else if (ldc.cst instanceof Float) {
                 state.push(new FloatConstantArg((Float) ldc.cst));
             } else if (ldc.cst instanceof Long) {
                 // LDC_W appears to be merged with this opcode by asm so long
                 // and double constants will also be here
-                state.push(new LongConstantArg((Long) ldc.cst));
+                state.push(LongConstantArg.of((Long) ldc.cst));
             } else if (ldc.cst instanceof Double) {
                 state.push(new DoubleConstantArg((Double) ldc.cst));
             } else if (ldc.cst instanceof Type) {
@@ -851,7 +1048,7 @@ public class OpcodeDecompiler {
             Local local = state.getLocal(var.var);
             if (local.getName() == null) {
                 // if the local has no name defined we give it a simple name.
-                local.setName("local" + local.getIndex());
+                local.setName(Locals.defaultName(local.getIndex()));
             }
             LocalArg arg = new LocalArg(local);
             state.push(arg);
@@ -1082,7 +1279,7 @@ public class OpcodeDecompiler {
             if (!owner.startsWith("[")) {
                 owner = "L" + owner + ";";
             }
-            FieldArg arg = new StaticFieldArg(field.name, field.desc, owner);
+            FieldArg arg = new StaticFieldArg(state.intern(field.name), state.intern(field.desc), state.intern(owner));
             state.push(arg);
         };
         handlers[PUTSTATIC] = (state, next) -> {
@@ -1092,7 +1289,7 @@ public class OpcodeDecompiler {
             if (!owner.startsWith("[")) {
                 owner = "L" + owner + ";";
             }
-            FieldAssign assign = new StaticFieldAssign(field.name, field.desc, owner, val);
+            FieldAssign assign = new StaticFieldAssign(state.intern(field.name), state.intern(field.desc), state.intern(owner), val);
             state.append(assign);
         };
         handlers[GETFIELD] = (state, next) -> {
@@ -1101,7 +1298,7 @@ public class OpcodeDecompiler {
             if (!owner.startsWith("[")) {
                 owner = "L" + owner + ";";
             }
-            FieldArg arg = new InstanceFieldArg(field.name, field.desc, owner, state.pop());
+            FieldArg arg = new InstanceFieldArg(state.intern(field.name), state.intern(field.desc), state.intern(owner), state.pop());
             state.push(arg);
         };
         handlers[PUTFIELD] = (state, next) -> {
@@ -1112,15 +1309,14 @@ public class OpcodeDecompiler {
             if (!owner_t.startsWith("[")) {
                 owner_t = "L" + owner_t + ";";
             }
-            FieldAssign assign = new InstanceFieldAssign(field.name, field.desc, owner_t, owner, val);
+            FieldAssign assign = new InstanceFieldAssign(state.intern(field.name), state.intern(field.desc), state.intern(owner_t), owner, val);
             state.append(assign);
         };
         // Method invocation
         OpHandler method_invoke = (state, next) -> {
             MethodInsnNode method = (MethodInsnNode) next;
-            String[] param_types = TypeHelper.splitSig(method.desc);
-            String ret = TypeHelper.getRet(method.desc);
-            Instruction[] args = new Instruction[param_types.length];
+            MethodDescriptor desc = state.descriptor(method.desc);
+            Instruction[] args = new Instruction[desc.getParamCount()];
             for (int i = args.length - 1; i >= 0; i--) {
                 args[i] = state.pop();
             }
@@ -1129,10 +1325,13 @@ public class OpcodeDecompiler {
             if (!owner.startsWith("[")) {
                 owner = "L" + owner + ";";
             }
-            if (ret.equals("V")) {
-                state.append(new InstanceMethodCall(method.name, method.desc, owner, args, callee));
+            String name = state.intern(method.name);
+            String method_desc = state.intern(method.desc);
+            owner = state.intern(owner);
+            if (desc.getReturnType().isVoid()) {
+                state.append(new InstanceMethodCall(name, method_desc, owner, args, callee));
             } else {
-                InstanceFunctionArg arg = new InstanceFunctionArg(method.name, method.desc, owner, args, callee);
+                InstanceFunctionArg arg = new InstanceFunctionArg(name, method_desc, owner, args, callee);
                 state.push(arg);
             }
         };
@@ -1140,9 +1339,8 @@ public class OpcodeDecompiler {
         handlers[INVOKESPECIAL] = method_invoke;
         handlers[INVOKESTATIC] = (state, next) -> {
             MethodInsnNode method = (MethodInsnNode) next;
-            String[] param_types = TypeHelper.splitSig(method.desc);
-            String ret = TypeHelper.getRet(method.desc);
-            Instruction[] args = new Instruction[param_types.length];
+            MethodDescriptor desc = state.descriptor(method.desc);
+            Instruction[] args = new Instruction[desc.getParamCount()];
             for (int i = args.length - 1; i >= 0; i--) {
                 args[i] = state.pop();
             }
@@ -1150,10 +1348,13 @@ public class OpcodeDecompiler {
             if (!owner.startsWith("[")) {
                 owner = "L" + owner + ";";
             }
-            if (ret.equals("V")) {
-                state.append(new StaticMethodCall(method.name, method.desc, owner, args));
+            String name = state.intern(method.name);
+            String method_desc = state.intern(method.desc);
+            owner = state.intern(owner);
+            if (desc.getReturnType().isVoid()) {
+                state.append(new StaticMethodCall(name, method_desc, owner, args));
             } else {
-                StaticFunctionArg arg = new StaticFunctionArg(method.name, method.desc, owner, args);
+                StaticFunctionArg arg = new StaticFunctionArg(name, method_desc, owner, args);
                 state.push(arg);
             }
         };
@@ -1178,16 +1379,15 @@ public class OpcodeDecompiler {
                 state.handleIntermediate(next);
             }
             MethodInsnNode ctor = (MethodInsnNode) next;
-            String[] ctor_params = TypeHelper.splitSig(ctor.desc);
-            Instruction[] args = new Instruction[ctor_params.length];
+            Instruction[] args = new Instruction[state.descriptor(ctor.desc).getParamCount()];
             for (int i = 0; i < args.length; i++) {
                 args[i] = state.pop();
             }
             if (standalone) {
-                NewInstance insn = new NewInstance("L" + type + ";", ctor.desc, args);
+                NewInstance insn = new NewInstance(state.intern("L" + type + ";"), state.intern(ctor.desc), args);
                 state.append(insn);
             } else {
-                NewRefArg arg = new NewRefArg("L" + type + ";", ctor.desc, args);
+                NewRefArg arg = new NewRefArg(state.intern("L" + type + ";"), state.intern(ctor.desc), args);
                 state.push(arg);
             }
         };
@@ -1226,7 +1426,7 @@ public class OpcodeDecompiler {
             } else if (next instanceof TypeInsnNode) {
                 TypeInsnNode array = (TypeInsnNode) next;
                 tstore = AASTORE;
-                array_type = array.desc;
+                array_type = state.intern(array.desc);
             }
             final int store = tstore;
             next = state.next();
@@ -1297,7 +1497,7 @@ public class OpcodeDecompiler {
             if (!desc.startsWith("[")) {
                 desc = "L" + desc + ";";
             }
-            state.push(new CastArg(desc, state.pop()));
+            state.push(new CastArg(state.intern(desc), state.pop()));
         };
         handlers[INSTANCEOF] = (state, next) -> {
             TypeInsnNode insn = (TypeInsnNode) next;
@@ -1306,7 +1506,7 @@ public class OpcodeDecompiler {
             if (!type.startsWith("[")) {
                 type = "L" + insn.desc + ";";
             }
-            state.push(new InstanceOfArg(val, type));
+            state.push(new InstanceOfArg(val, state.intern(type)));
         };
         handlers[MONITORENTER] = noop;
         handlers[MONITOREXIT] = noop;
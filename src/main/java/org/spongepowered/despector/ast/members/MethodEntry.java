@@ -31,9 +31,11 @@ import org.spongepowered.despector.ast.AccessModifier;
 import org.spongepowered.despector.ast.AstEntry;
 import org.spongepowered.despector.ast.SourceSet;
 import org.spongepowered.despector.ast.members.insn.StatementBlock;
+import org.spongepowered.despector.util.MethodDescriptor;
 import org.spongepowered.despector.util.TypeHelper;
 
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * Represents a method declaration in a type.
@@ -57,10 +59,12 @@ public class MethodEntry extends AstEntry {
     protected boolean is_static;
     protected boolean is_synthetic;
 
+    protected MethodDescriptor descriptor;
     protected String return_type;
     protected final List<String> param_types = Lists.newArrayList();
 
-    protected StatementBlock instructions = null;
+    protected volatile StatementBlock instructions = null;
+    private volatile Supplier<StatementBlock> lazy_instructions = null;
 
     public MethodEntry(SourceSet source) {
         super(source);
@@ -141,7 +145,7 @@ public class MethodEntry extends AstEntry {
     }
 
     public String getReturnTypeName() {
-        return TypeHelper.descToType(this.return_type);
+        return this.descriptor.getReturnType().getTypeName();
     }
 
     /**
@@ -153,7 +157,15 @@ public class MethodEntry extends AstEntry {
 
     public void setSignature(String signature) {
         this.signature = signature;
-        this.return_type = TypeHelper.getRet(signature);
+        this.descriptor = this.source == null ? MethodDescriptor.of(signature) : this.source.getMethodDescriptor(signature);
+        this.return_type = this.descriptor.getReturnType().getDescriptor();
+    }
+
+    /**
+     * Gets the parsed signature of the method.
+     */
+    public MethodDescriptor getDescriptor() {
+        return this.descriptor;
     }
 
     /**
@@ -163,15 +175,49 @@ public class MethodEntry extends AstEntry {
         return this.param_types;
     }
 
+    /**
+     * Gets the body of this method. If the body was set lazily then it is
+     * built by the first call to this method.
+     */
     public StatementBlock getInstructions() {
         if (this.is_abstract) {
             return null;
         }
+        if (this.lazy_instructions != null) {
+            synchronized (this) {
+                Supplier<StatementBlock> source = this.lazy_instructions;
+                if (source != null) {
+                    this.instructions = source.get();
+                    this.lazy_instructions = null;
+                }
+            }
+        }
         return this.instructions;
     }
 
     public void setInstructions(StatementBlock block) {
-        this.instructions = block;
+        synchronized (this) {
+            this.instructions = block;
+            this.lazy_instructions = null;
+        }
+    }
+
+    /**
+     * Sets a source for the body of this method which will be called at most
+     * once, the first time that the instructions are requested.
+     */
+    public void setLazyInstructions(Supplier<StatementBlock> source) {
+        synchronized (this) {
+            this.instructions = null;
+            this.lazy_instructions = checkNotNull(source, "source");
+        }
+    }
+
+    /**
+     * Gets if the body of this method is still waiting to be built.
+     */
+    public boolean isLazy() {
+        return this.lazy_instructions != null;
     }
 
     @Override
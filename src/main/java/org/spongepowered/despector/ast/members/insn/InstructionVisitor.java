@@ -56,6 +56,8 @@ import org.spongepowered.despector.ast.members.insn.assign.ArrayAssign;
 import org.spongepowered.despector.ast.members.insn.assign.InstanceFieldAssign;
 import org.spongepowered.despector.ast.members.insn.assign.LocalAssign;
 import org.spongepowered.despector.ast.members.insn.assign.StaticFieldAssign;
+import org.spongepowered.despector.ast.members.insn.branch.Break;
+import org.spongepowered.despector.ast.members.insn.branch.Continue;
 import org.spongepowered.despector.ast.members.insn.branch.DoWhileLoop;
 import org.spongepowered.despector.ast.members.insn.branch.ElseBlock;
 import org.spongepowered.despector.ast.members.insn.branch.ForLoop;
@@ -72,6 +74,7 @@ import org.spongepowered.despector.ast.members.insn.branch.condition.OrCondition
 import org.spongepowered.despector.ast.members.insn.function.InstanceMethodCall;
 import org.spongepowered.despector.ast.members.insn.function.NewInstance;
 import org.spongepowered.despector.ast.members.insn.function.StaticMethodCall;
+import org.spongepowered.despector.ast.members.insn.misc.Comment;
 import org.spongepowered.despector.ast.members.insn.misc.IncrementStatement;
 import org.spongepowered.despector.ast.members.insn.misc.ReturnValue;
 import org.spongepowered.despector.ast.members.insn.misc.ReturnVoid;
@@ -82,6 +85,9 @@ public abstract class InstructionVisitor {
     public void visitThrowException(ThrowException throwException) {
     }
 
+    public void visitComment(Comment comment) {
+    }
+
     public void visitReturn(ReturnVoid returnVoid) {
     }
 
@@ -103,6 +109,12 @@ public abstract class InstructionVisitor {
     public void visitDoWhileLoop(DoWhileLoop doWhileLoop) {
     }
 
+    public void visitBreak(Break brk) {
+    }
+
+    public void visitContinue(Continue cont) {
+    }
+
     public void visitForLoop(ForLoop forLoop) {
     }
 
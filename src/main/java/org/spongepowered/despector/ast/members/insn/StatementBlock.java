@@ -49,6 +49,7 @@ public class StatementBlock {
     private Locals locals;
     private List<Statement> statements;
     private boolean locked = false;
+    private boolean placeholder = false;
 
     public StatementBlock(Type type, Locals locals) {
         this.type = type;
@@ -61,6 +62,7 @@ public class StatementBlock {
         this.locals = new Locals(block.locals);
         this.statements = Lists.newArrayList(block.statements);
         this.locked = block.locked;
+        this.placeholder = block.placeholder;
     }
 
     public Type getType() {
@@ -71,6 +73,18 @@ public class StatementBlock {
         return this.locals;
     }
 
+    /**
+     * Gets if this block stands in for the body of a method which could not
+     * be decompiled.
+     */
+    public boolean isPlaceholder() {
+        return this.placeholder;
+    }
+
+    public void setPlaceholder(boolean placeholder) {
+        this.placeholder = placeholder;
+    }
+
     public List<Statement> getStatements() {
         return this.statements;
     }
@@ -25,7 +25,7 @@
 package org.spongepowered.despector.ast.members.insn.arg;
 
 import org.spongepowered.despector.ast.members.insn.InstructionVisitor;
-import org.spongepowered.despector.util.TypeHelper;
+import org.spongepowered.despector.util.MethodDescriptor;
 
 /**
  * An instruction for calling an instance function.
@@ -55,7 +55,7 @@ public class InstanceFunctionArg implements Instruction {
     }
 
     public String getReturnType() {
-        return TypeHelper.getRet(this.method_desc);
+        return MethodDescriptor.of(this.method_desc).getReturnType().getDescriptor();
     }
 
     public String getOwner() {
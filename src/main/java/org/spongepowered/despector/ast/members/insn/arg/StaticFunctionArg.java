@@ -25,7 +25,7 @@
 package org.spongepowered.despector.ast.members.insn.arg;
 
 import org.spongepowered.despector.ast.members.insn.InstructionVisitor;
-import org.spongepowered.despector.util.TypeHelper;
+import org.spongepowered.despector.util.MethodDescriptor;
 
 public class StaticFunctionArg implements Instruction {
 
@@ -50,7 +50,7 @@ public class StaticFunctionArg implements Instruction {
     }
 
     public String getReturnType() {
-        return TypeHelper.descToType(this.method_desc);
+        return MethodDescriptor.of(this.method_desc).getReturnType().getDescriptor();
     }
 
     public String getOwner() {
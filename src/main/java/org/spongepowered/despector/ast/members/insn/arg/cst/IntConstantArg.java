@@ -28,6 +28,29 @@ import org.spongepowered.despector.ast.members.insn.InstructionVisitor;
 
 public class IntConstantArg extends ConstantArg {
 
+    // Constant nodes are immutable so small values share a node, these cover
+    // the push opcodes and most array initializer indices.
+    private static final int CACHE_LOW = -128;
+    private static final int CACHE_HIGH = 1023;
+    private static final IntConstantArg[] CACHE = new IntConstantArg[CACHE_HIGH - CACHE_LOW + 1];
+
+    static {
+        for (int i = 0; i < CACHE.length; i++) {
+            CACHE[i] = new IntConstantArg(CACHE_LOW + i);
+        }
+    }
+
+    /**
+     * Gets a constant node for the given value, which is shared for small
+     * values.
+     */
+    public static IntConstantArg of(int val) {
+        if (val >= CACHE_LOW && val <= CACHE_HIGH) {
+            return CACHE[val - CACHE_LOW];
+        }
+        return new IntConstantArg(val);
+    }
+
     private final int cst;
 
     public IntConstantArg(int val) {
@@ -28,6 +28,27 @@ import org.spongepowered.despector.ast.members.insn.InstructionVisitor;
 
 public class LongConstantArg extends ConstantArg {
 
+    private static final int CACHE_LOW = -128;
+    private static final int CACHE_HIGH = 127;
+    private static final LongConstantArg[] CACHE = new LongConstantArg[CACHE_HIGH - CACHE_LOW + 1];
+
+    static {
+        for (int i = 0; i < CACHE.length; i++) {
+            CACHE[i] = new LongConstantArg(CACHE_LOW + i);
+        }
+    }
+
+    /**
+     * Gets a constant node for the given value, which is shared for small
+     * values.
+     */
+    public static LongConstantArg of(long val) {
+        if (val >= CACHE_LOW && val <= CACHE_HIGH) {
+            return CACHE[(int) val - CACHE_LOW];
+        }
+        return new LongConstantArg(val);
+    }
+
     private final long cst;
 
     public LongConstantArg(long val) {
@@ -28,6 +28,11 @@ import org.spongepowered.despector.ast.members.insn.InstructionVisitor;
 
 public class NullConstantArg extends ConstantArg {
 
+    /**
+     * A shared null constant node.
+     */
+    public static final NullConstantArg NULL = new NullConstantArg();
+
     public NullConstantArg() {
     }
 
@@ -24,10 +24,33 @@
  */
 package org.spongepowered.despector.ast.members.insn.arg.cst;
 
+import com.google.common.collect.MapMaker;
 import org.spongepowered.despector.ast.members.insn.InstructionVisitor;
 
+import java.util.concurrent.ConcurrentMap;
+
 public class StringConstantArg extends ConstantArg {
 
+    // Nodes for the same string are shared for as long as any of them is
+    // still referenced.
+    private static final ConcurrentMap<String, StringConstantArg> INTERNED = new MapMaker().weakValues().makeMap();
+
+    /**
+     * Gets a constant node for the given string, which is shared with any
+     * other node for an equal string which is still in use.
+     */
+    public static StringConstantArg of(String cst) {
+        StringConstantArg arg = INTERNED.get(cst);
+        if (arg == null) {
+            arg = new StringConstantArg(cst);
+            StringConstantArg existing = INTERNED.putIfAbsent(cst, arg);
+            if (existing != null) {
+                arg = existing;
+            }
+        }
+        return arg;
+    }
+
     private final String cst;
 
     public StringConstantArg(String cst) {
@@ -0,0 +1,63 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.ast.members.insn.branch;
+
+import org.spongepowered.despector.ast.members.insn.InstructionVisitor;
+import org.spongepowered.despector.ast.members.insn.Statement;
+
+/**
+ * A break out of a loop or switch.
+ */
+public class Break implements Statement {
+
+    private final String label;
+
+    /**
+     * Creates a break out of the loop with the given label, or of the
+     * innermost loop or switch if the label is null.
+     */
+    public Break(String label) {
+        this.label = label;
+    }
+
+    /**
+     * Gets the label of the loop broken out of, or null if it is the
+     * innermost loop or switch.
+     */
+    public String getLabel() {
+        return this.label;
+    }
+
+    @Override
+    public void accept(InstructionVisitor visitor) {
+        visitor.visitBreak(this);
+    }
+
+    @Override
+    public String toString() {
+        return this.label == null ? "break;" : "break " + this.label + ";";
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.ast.members.insn.branch;
+
+import org.spongepowered.despector.ast.members.insn.InstructionVisitor;
+import org.spongepowered.despector.ast.members.insn.Statement;
+
+/**
+ * A jump to the next iteration of a loop.
+ */
+public class Continue implements Statement {
+
+    private final String label;
+
+    /**
+     * Creates a continue of the loop with the given label, or of the
+     * innermost loop if the label is null.
+     */
+    public Continue(String label) {
+        this.label = label;
+    }
+
+    /**
+     * Gets the label of the loop continued, or null if it is the innermost
+     * loop.
+     */
+    public String getLabel() {
+        return this.label;
+    }
+
+    @Override
+    public void accept(InstructionVisitor visitor) {
+        visitor.visitContinue(this);
+    }
+
+    @Override
+    public String toString() {
+        return this.label == null ? "continue;" : "continue " + this.label + ";";
+    }
+
+}
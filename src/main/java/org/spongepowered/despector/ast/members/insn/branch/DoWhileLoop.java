@@ -32,10 +32,11 @@ import org.spongepowered.despector.ast.members.insn.branch.condition.Condition;
 /**
  * A do-while loop.
  */
-public class DoWhileLoop implements Statement {
+public class DoWhileLoop implements Loop {
 
     private final Condition condition;
     private final StatementBlock body;
+    private String label;
 
     public DoWhileLoop(Condition condition, StatementBlock body) {
         this.condition = condition;
@@ -46,10 +47,21 @@ public class DoWhileLoop implements Statement {
         return this.condition;
     }
 
+    @Override
     public StatementBlock getBody() {
         return this.body;
     }
 
+    @Override
+    public String getLabel() {
+        return this.label;
+    }
+
+    @Override
+    public void setLabel(String label) {
+        this.label = label;
+    }
+
     @Override
     public void accept(InstructionVisitor visitor) {
         visitor.visitDoWhileLoop(this);
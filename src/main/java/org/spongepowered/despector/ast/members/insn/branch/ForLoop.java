@@ -32,12 +32,13 @@ import org.spongepowered.despector.ast.members.insn.branch.condition.Condition;
 /**
  * A for loop.
  */
-public class ForLoop implements Statement {
+public class ForLoop implements Loop {
 
     private final Statement init;
     private final Condition condition;
     private final Statement incr;
     private final StatementBlock body;
+    private String label;
 
     public ForLoop(Statement init, Condition condition, Statement incr, StatementBlock body) {
         this.init = init;
@@ -58,16 +59,31 @@ public class ForLoop implements Statement {
         return this.incr;
     }
 
+    @Override
     public StatementBlock getBody() {
         return this.body;
     }
 
+    @Override
+    public String getLabel() {
+        return this.label;
+    }
+
+    @Override
+    public void setLabel(String label) {
+        this.label = label;
+    }
+
     @Override
     public void accept(InstructionVisitor visitor) {
         visitor.visitForLoop(this);
-        this.init.accept(visitor);
+        if (this.init != null) {
+            this.init.accept(visitor);
+        }
         this.condition.accept(visitor);
-        this.incr.accept(visitor);
+        if (this.incr != null) {
+            this.incr.accept(visitor);
+        }
         for (Statement stmt : this.body.getStatements()) {
             stmt.accept(visitor);
         }
@@ -27,7 +27,7 @@ package org.spongepowered.despector.ast.members.insn.function;
 import org.spongepowered.despector.ast.members.insn.InstructionVisitor;
 import org.spongepowered.despector.ast.members.insn.Statement;
 import org.spongepowered.despector.ast.members.insn.arg.Instruction;
-import org.spongepowered.despector.util.TypeHelper;
+import org.spongepowered.despector.util.MethodDescriptor;
 
 /**
  * An abstract statement for making method invocations.
@@ -55,7 +55,7 @@ public abstract class MethodCall implements Statement {
     }
 
     public String getReturnType() {
-        return TypeHelper.getRet(this.method_desc);
+        return MethodDescriptor.of(this.method_desc).getReturnType().getDescriptor();
     }
 
     public String getOwner() {
@@ -54,6 +54,13 @@ public class ClassEntry extends TypeEntry {
         return TypeHelper.descToType(this.superclass.getType());
     }
 
+    /**
+     * Gets the super class of this type along with its generic parameters.
+     */
+    public GenericType getGenericSuperclass() {
+        return this.superclass;
+    }
+
     /**
      * Sets the super class of this entry.
      */
@@ -24,24 +24,126 @@
  */
 package org.spongepowered.despector.ast.type;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
 import java.util.List;
 
+/**
+ * A type along with its generic type arguments, as parsed from a signature by
+ * the {@link SignatureParser}.
+ *
+ * <p>A generic type may also be a type variable, an array of a generic type or
+ * when used as a type argument a wildcard. The type arguments of the outer
+ * types of an inner class are not kept.</p>
+ */
 public class GenericType {
 
+    private final String source;
+    private final int start;
+    private final int end;
     private final String type;
-    private final List<String> generic_params;
+    private final int dimensions;
+    private final char wildcard;
+    private final List<GenericType> arguments;
 
+    /**
+     * Creates a generic type for the given type descriptor and the signatures
+     * of its type arguments, which may be null if it has none.
+     */
     public GenericType(String type, List<String> params) {
         this.type = type;
-        this.generic_params = params;
+        this.wildcard = 0;
+        int dims = 0;
+        while (dims < type.length() && type.charAt(dims) == '[') {
+            dims++;
+        }
+        this.dimensions = dims;
+        if (params == null || params.isEmpty()) {
+            this.arguments = ImmutableList.of();
+            this.source = type;
+        } else {
+            ImmutableList.Builder<GenericType> args = ImmutableList.builder();
+            StringBuilder sig = new StringBuilder(type.substring(0, type.length() - 1)).append('<');
+            for (String param : params) {
+                args.add(SignatureParser.parseType(param));
+                sig.append(param);
+            }
+            this.arguments = args.build();
+            this.source = sig.append(">;").toString();
+        }
+        this.start = 0;
+        this.end = this.source.length();
     }
 
+    /**
+     * Creates a generic type parsed from the given range of a signature.
+     */
+    GenericType(String source, int start, int end, String type, int dimensions, char wildcard, List<GenericType> arguments) {
+        this.source = source;
+        this.start = start;
+        this.end = end;
+        this.type = type;
+        this.dimensions = dimensions;
+        this.wildcard = wildcard;
+        this.arguments = arguments;
+    }
+
+    /**
+     * Gets the descriptor of the erased type, or of the form {@code TT;} for
+     * a type variable. Is null for an unbounded wildcard.
+     */
     public String getType() {
         return this.type;
     }
 
+    /**
+     * Gets the signatures of the type arguments.
+     */
     public List<String> getParams() {
-        return this.generic_params;
+        return Lists.transform(this.arguments, GenericType::getSignature);
+    }
+
+    /**
+     * Gets the type arguments, which are empty if this is not a generic type.
+     */
+    public List<GenericType> getArguments() {
+        return this.arguments;
+    }
+
+    /**
+     * Gets the signature of this type, including any wildcard.
+     */
+    public String getSignature() {
+        if (this.start == 0 && this.end == this.source.length()) {
+            return this.source;
+        }
+        return this.source.substring(this.start, this.end);
+    }
+
+    public int getDimensions() {
+        return this.dimensions;
+    }
+
+    /**
+     * Gets the wildcard of this type argument, which is one of {@code *},
+     * {@code +} for an upper bound or {@code -} for a lower bound, or 0 if
+     * this is not a wildcard.
+     */
+    public char getWildcard() {
+        return this.wildcard;
+    }
+
+    /**
+     * Gets if this is a type variable, or an array of a type variable.
+     */
+    public boolean isTypeVariable() {
+        return this.type != null && this.type.charAt(this.dimensions) == 'T';
+    }
+
+    @Override
+    public String toString() {
+        return getSignature();
     }
 
 }
@@ -0,0 +1,259 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.ast.type;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.MapMaker;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A parser for the generic signatures of classes, fields and local variables.
+ *
+ * <p>Signatures are parsed in a single pass, each type in a signature keeps
+ * the range of its own signature rather than a copy of it. Parsed types are
+ * immutable and are interned in the same way as descriptors.</p>
+ */
+public final class SignatureParser {
+
+    // Type arguments are parsed recursively, far deeper nesting than any
+    // compiler would produce is rejected rather than exhausting the stack.
+    private static final int MAX_DEPTH = 256;
+
+    private static final ConcurrentMap<String, GenericType> INTERNED = new MapMaker().weakValues().makeMap();
+
+    /**
+     * Parses the signature of a field or local variable, or of a single type
+     * argument which may also be a wildcard.
+     */
+    public static GenericType parseType(String signature) {
+        GenericType type = INTERNED.get(signature);
+        if (type == null) {
+            SignatureParser parser = new SignatureParser(signature);
+            type = parser.parseTypeArgument();
+            parser.expectEnd();
+            GenericType existing = INTERNED.putIfAbsent(signature, type);
+            if (existing != null) {
+                type = existing;
+            }
+        }
+        return type;
+    }
+
+    /**
+     * Parses the signature of a class into its type parameters, super class
+     * and interfaces.
+     */
+    public static ClassSignature parseClass(String signature) {
+        SignatureParser parser = new SignatureParser(signature);
+        List<GenericArgument> params = parser.parseTypeParameters();
+        GenericType superclass = parser.parseReferenceType((char) 0);
+        ImmutableList.Builder<GenericType> interfaces = ImmutableList.builder();
+        while (parser.pos < signature.length()) {
+            interfaces.add(parser.parseReferenceType((char) 0));
+        }
+        return new ClassSignature(params, superclass, interfaces.build());
+    }
+
+    private final String sig;
+    private int pos;
+    private int depth;
+
+    private SignatureParser(String sig) {
+        this.sig = sig;
+    }
+
+    private char peek() {
+        if (this.pos >= this.sig.length()) {
+            throw new IllegalArgumentException("Unexpected end of signature: " + this.sig);
+        }
+        return this.sig.charAt(this.pos);
+    }
+
+    private void expect(char c) {
+        if (peek() != c) {
+            throw new IllegalArgumentException("Expected '" + c + "' at " + this.pos + " in signature: " + this.sig);
+        }
+        this.pos++;
+    }
+
+    private void expectEnd() {
+        if (this.pos != this.sig.length()) {
+            throw new IllegalArgumentException("Unexpected '" + peek() + "' at " + this.pos + " in signature: " + this.sig);
+        }
+    }
+
+    private List<GenericArgument> parseTypeParameters() {
+        if (this.pos >= this.sig.length() || peek() != '<') {
+            return ImmutableList.of();
+        }
+        this.pos++;
+        ImmutableList.Builder<GenericArgument> params = ImmutableList.builder();
+        while (peek() != '>') {
+            int colon = this.sig.indexOf(':', this.pos);
+            if (colon == -1) {
+                throw new IllegalArgumentException("Malformed type parameter at " + this.pos + " in signature: " + this.sig);
+            }
+            String name = this.sig.substring(this.pos, colon);
+            this.pos = colon + 1;
+            // the class bound may be empty if there are only interface bounds,
+            // the first bound given is kept
+            String bound = null;
+            if (peek() != ':') {
+                bound = parseReferenceType((char) 0).getSignature();
+            }
+            while (peek() == ':') {
+                this.pos++;
+                GenericType inter = parseReferenceType((char) 0);
+                if (bound == null) {
+                    bound = inter.getSignature();
+                }
+            }
+            params.add(new GenericArgument(name, bound));
+        }
+        this.pos++;
+        return params.build();
+    }
+
+    private GenericType parseTypeArgument() {
+        char next = peek();
+        if (next == '*') {
+            this.pos++;
+            return new GenericType(this.sig, this.pos - 1, this.pos, null, 0, '*', ImmutableList.of());
+        } else if (next == '+' || next == '-') {
+            this.pos++;
+            return parseReferenceType(next);
+        }
+        return parseReferenceType((char) 0);
+    }
+
+    private GenericType parseReferenceType(char wildcard) {
+        int start = wildcard == 0 ? this.pos : this.pos - 1;
+        int dims = 0;
+        while (peek() == '[') {
+            dims++;
+            this.pos++;
+        }
+        char next = peek();
+        String type;
+        List<GenericType> args = ImmutableList.of();
+        if (next == 'T') {
+            int end = this.sig.indexOf(';', this.pos);
+            if (end == -1) {
+                throw new IllegalArgumentException("Unterminated type variable at " + this.pos + " in signature: " + this.sig);
+            }
+            this.pos = end + 1;
+            type = this.sig.substring(start + (wildcard == 0 ? 0 : 1), this.pos);
+        } else if (next == 'L') {
+            StringBuilder erased = null;
+            int name_start = this.pos;
+            this.pos++;
+            while (true) {
+                next = peek();
+                if (next == '<') {
+                    if (erased == null) {
+                        erased = new StringBuilder();
+                        erased.append(this.sig, start + (wildcard == 0 ? 0 : 1), this.pos);
+                    }
+                    args = parseTypeArguments();
+                } else if (next == '.') {
+                    // an inner class of a generic type, the arguments of the
+                    // outer type are dropped
+                    if (erased == null) {
+                        erased = new StringBuilder();
+                        erased.append(this.sig, start + (wildcard == 0 ? 0 : 1), this.pos);
+                    }
+                    erased.append('$');
+                    args = ImmutableList.of();
+                    this.pos++;
+                } else if (next == ';') {
+                    this.pos++;
+                    break;
+                } else {
+                    if (erased != null) {
+                        erased.append(next);
+                    }
+                    this.pos++;
+                }
+            }
+            if (erased == null) {
+                type = this.sig.substring(name_start - dims, this.pos);
+            } else {
+                type = erased.append(';').toString();
+            }
+        } else if (dims > 0 && "ZCBSIFJD".indexOf(next) != -1) {
+            this.pos++;
+            type = this.sig.substring(this.pos - dims - 1, this.pos);
+        } else {
+            throw new IllegalArgumentException("Unexpected '" + next + "' at " + this.pos + " in signature: " + this.sig);
+        }
+        return new GenericType(this.sig, start, this.pos, type, dims, wildcard, args);
+    }
+
+    private List<GenericType> parseTypeArguments() {
+        expect('<');
+        if (++this.depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Type arguments nested too deeply in signature: " + this.sig);
+        }
+        ImmutableList.Builder<GenericType> args = ImmutableList.builder();
+        while (peek() != '>') {
+            args.add(parseTypeArgument());
+        }
+        this.pos++;
+        this.depth--;
+        return args.build();
+    }
+
+    /**
+     * The parsed signature of a class.
+     */
+    public static class ClassSignature {
+
+        private final List<GenericArgument> type_parameters;
+        private final GenericType superclass;
+        private final List<GenericType> interfaces;
+
+        ClassSignature(List<GenericArgument> params, GenericType superclass, List<GenericType> interfaces) {
+            this.type_parameters = params;
+            this.superclass = superclass;
+            this.interfaces = interfaces;
+        }
+
+        public List<GenericArgument> getTypeParameters() {
+            return this.type_parameters;
+        }
+
+        public GenericType getSuperclass() {
+            return this.superclass;
+        }
+
+        public List<GenericType> getInterfaces() {
+            return this.interfaces;
+        }
+
+    }
+
+}
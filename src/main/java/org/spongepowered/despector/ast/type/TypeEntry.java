@@ -56,11 +56,15 @@ public abstract class TypeEntry extends AstEntry {
     protected final List<GenericType> generic_interfaces = Lists.newArrayList();
     protected final List<String> interfaces = Lists.newArrayList();
 
+    // Methods are indexed by name, in declaration order, and by their name
+    // and signature as given by methodKey.
     protected final Map<String, FieldEntry> static_fields = Maps.newLinkedHashMap();
     protected final Multimap<String, MethodEntry> static_methods = LinkedHashMultimap.create();
+    protected final Map<String, MethodEntry> static_method_sigs = Maps.newHashMap();
 
     protected final Map<String, FieldEntry> fields = Maps.newLinkedHashMap();
     protected final Multimap<String, MethodEntry> methods = LinkedHashMultimap.create();
+    protected final Map<String, MethodEntry> method_sigs = Maps.newHashMap();
 
     protected final List<GenericArgument> generic_args = Lists.newArrayList();
 
@@ -147,16 +151,20 @@ public abstract class TypeEntry extends AstEntry {
         this.generic_interfaces.add(new GenericType(inter, generics));
     }
 
+    /**
+     * Gets the key of a method in the signature indices. A name cannot
+     * contain the opening parenthesis of a signature so keys are unique.
+     */
+    protected static String methodKey(String name, String sig) {
+        return name + sig;
+    }
+
     protected MethodEntry findMethod(String name, Multimap<String, MethodEntry> map) {
-        MethodEntry ret = null;
-        for (MethodEntry m : map.values()) {
-            if (m.getName().equals(name)) {
-                if (ret != null) {
-                    throw new IllegalStateException("Tried to get ambiguous method " + name);
-                }
-                ret = m;
-            }
+        Collection<MethodEntry> candidates = map.get(name);
+        if (candidates.size() > 1) {
+            throw new IllegalStateException("Tried to get ambiguous method " + name);
         }
+        MethodEntry ret = candidates.isEmpty() ? null : candidates.iterator().next();
 //        if (ret == null && this.actual_class != null) {
 //            Method found = null;
 //            for (Method mth : this.actual_class.getMethods()) {
@@ -186,11 +194,10 @@ public abstract class TypeEntry extends AstEntry {
         return ret;
     }
 
-    protected MethodEntry findMethod(String name, String sig, Multimap<String, MethodEntry> map) {
-        for (MethodEntry m : map.values()) {
-            if (m.getName().equals(name) && m.getSignature().equals(sig)) {
-                return m;
-            }
+    protected MethodEntry findMethod(String name, String sig, Map<String, MethodEntry> map) {
+        MethodEntry m = map.get(methodKey(name, sig));
+        if (m != null) {
+            return m;
         }
 //        if (this.actual_class != null) {
 //            List<TypeEntry> params = Lists.newArrayList();
@@ -269,7 +276,7 @@ public abstract class TypeEntry extends AstEntry {
      */
     public MethodEntry getStaticMethod(String name, String sig) {
         checkNotNull(name);
-        MethodEntry ret = findMethod(name, sig, this.static_methods);
+        MethodEntry ret = findMethod(name, sig, this.static_method_sigs);
         if (ret == null) {
             throw new IllegalArgumentException("Unknown single method: " + name + sig + " on class " + this);
         }
@@ -287,7 +294,7 @@ public abstract class TypeEntry extends AstEntry {
      */
     public MethodEntry getStaticMethodSafe(String name, String sig) {
         checkNotNull(name);
-        return findMethod(name, sig, this.static_methods);
+        return findMethod(name, sig, this.static_method_sigs);
     }
 
     /**
@@ -312,7 +319,7 @@ public abstract class TypeEntry extends AstEntry {
     public MethodEntry getMethod(String name, String sig) {
         checkNotNull(name);
         checkNotNull(sig);
-        MethodEntry ret = findMethod(name, sig, this.methods);
+        MethodEntry ret = findMethod(name, sig, this.method_sigs);
         if (ret == null) {
             throw new IllegalArgumentException("Unknown method: " + name + sig + " on class " + this);
         }
@@ -331,7 +338,7 @@ public abstract class TypeEntry extends AstEntry {
     public MethodEntry getMethodSafe(String name, String sig) {
         checkNotNull(name);
         checkNotNull(sig);
-        return findMethod(name, sig, this.methods);
+        return findMethod(name, sig, this.method_sigs);
     }
 
     /**
@@ -339,14 +346,15 @@ public abstract class TypeEntry extends AstEntry {
      */
     public void addMethod(MethodEntry m) {
         checkNotNull(m);
+        String key = methodKey(m.getName(), m.getSignature());
         if (m.isStatic()) {
-            MethodEntry existing = getStaticMethodSafe(m.getName(), m.getSignature());
+            MethodEntry existing = this.static_method_sigs.putIfAbsent(key, m);
             if (existing != null) {
                 throw new IllegalArgumentException("Duplicate method " + existing);
             }
             this.static_methods.put(m.getName(), m);
         } else {
-            MethodEntry existing = getMethodSafe(m.getName(), m.getSignature());
+            MethodEntry existing = this.method_sigs.putIfAbsent(key, m);
             if (existing != null) {
                 throw new IllegalArgumentException("Duplicate method " + existing);
             }
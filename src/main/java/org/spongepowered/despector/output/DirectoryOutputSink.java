@@ -0,0 +1,71 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.output;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.Sets;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * A sink which writes each source to its own file within a directory.
+ */
+public class DirectoryOutputSink implements OutputSink {
+
+    private final Path root;
+    // Directories which are known to exist, to avoid checking the file system
+    // again for every source in the same package
+    private final Set<Path> created = Sets.newConcurrentHashSet();
+
+    /**
+     * Creates a new sink writing into the given directory, which is created if
+     * it does not exist.
+     */
+    public DirectoryOutputSink(Path root) throws IOException {
+        this.root = checkNotNull(root, "root");
+        Files.createDirectories(root);
+        this.created.add(root);
+    }
+
+    @Override
+    public void write(String name, byte[] source) throws IOException {
+        Path out = this.root.resolve(name);
+        Path parent = out.getParent();
+        if (!this.created.contains(parent)) {
+            Files.createDirectories(parent);
+            this.created.add(parent);
+        }
+        Files.write(out, source);
+    }
+
+    @Override
+    public void close() {
+    }
+
+}
@@ -0,0 +1,353 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.output;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A sink which writes all sources into a single jar.
+ *
+ * <p>Sources are compressed on a pool of worker threads as they are written,
+ * and each is appended to a staging file beside the jar as soon as it has
+ * been compressed so that only the size and checksum of each entry is held
+ * in memory. When the sink is closed the jar is written from the staging
+ * file with its entries sorted by name. Entries are given a fixed timestamp
+ * so that the same sources always produce an identical jar.</p>
+ */
+public class JarOutputSink implements OutputSink {
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_HEADER = 0x06054b50;
+    private static final int ZIP64_END_HEADER = 0x06064b50;
+    private static final int ZIP64_END_LOCATOR = 0x07064b50;
+
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    private static final int END_HEADER_SIZE = 22;
+    private static final int ZIP64_END_HEADER_SIZE = 56;
+    private static final int ZIP64_END_LOCATOR_SIZE = 20;
+
+    private static final int VERSION = 20;
+    private static final int VERSION_ZIP64 = 45;
+    private static final int FLAG_UTF8 = 0x0800;
+    private static final int METHOD_DEFLATED = 8;
+    // 1980-01-01 00:00:00, the earliest time representable in a zip
+    private static final int DOS_TIME = 0;
+    private static final int DOS_DATE = (1 << 5) | 1;
+
+    // The number of sources which may be waiting to be compressed per worker
+    // thread before writers block.
+    private static final int PENDING_PER_THREAD = 4;
+
+    private final Path jar;
+    private final Path staging;
+    private final FileChannel staging_channel;
+    private final ExecutorService workers;
+    private final Semaphore pending;
+    private final ConcurrentNavigableMap<String, Entry> entries = new ConcurrentSkipListMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final List<Deflater> deflaters = Collections.synchronizedList(Lists.newArrayList());
+    private final ThreadLocal<Deflater> local_deflater = ThreadLocal.withInitial(() -> {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        this.deflaters.add(deflater);
+        return deflater;
+    });
+    private boolean closed = false;
+
+    /**
+     * Creates a new sink which writes to the given jar, compressing sources
+     * on the given number of threads.
+     */
+    public JarOutputSink(Path jar, int threads) throws IOException {
+        checkArgument(threads > 0, "Thread count must be positive");
+        this.jar = checkNotNull(jar, "jar");
+        Path dir = jar.toAbsolutePath().getParent();
+        this.staging = Files.createTempFile(dir, jar.getFileName().toString() + ".", ".tmp");
+        this.staging_channel = FileChannel.open(this.staging, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.workers = Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setNameFormat("despector-compressor-%d").setDaemon(true).build());
+        this.pending = new Semaphore(threads * PENDING_PER_THREAD);
+    }
+
+    @Override
+    public void write(String name, byte[] source) throws IOException {
+        checkNotNull(name, "name");
+        checkNotNull(source, "source");
+        if (this.closed) {
+            throw new IllegalStateException("Sink is closed");
+        }
+        try {
+            this.pending.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing " + name, e);
+        }
+        long order = this.sequence.getAndIncrement();
+        try {
+            this.workers.execute(() -> {
+                try {
+                    Entry entry = compress(name, source, order);
+                    stage(entry);
+                    // a later write of the same name replaces the earlier one
+                    // even if it was compressed first
+                    this.entries.merge(name, entry, (a, b) -> a.order > b.order ? a : b);
+                } catch (Throwable e) {
+                    this.failure.compareAndSet(null, e);
+                } finally {
+                    this.pending.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            this.pending.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Appends the compressed data of the given entry to the staging file and
+     * releases it.
+     */
+    private void stage(Entry entry) throws IOException {
+        synchronized (this.staging_channel) {
+            entry.staged = this.staging_channel.position();
+            ByteBuffer data = ByteBuffer.wrap(entry.data);
+            while (data.hasRemaining()) {
+                this.staging_channel.write(data);
+            }
+        }
+        entry.data = null;
+    }
+
+    private Entry compress(String name, byte[] source, long order) {
+        CRC32 crc = new CRC32();
+        crc.update(source, 0, source.length);
+        Deflater deflater = this.local_deflater.get();
+        deflater.reset();
+        deflater.setInput(source);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(source.length / 4 + 64);
+        byte[] buffer = new byte[4096];
+        while (!deflater.finished()) {
+            int n = deflater.deflate(buffer);
+            out.write(buffer, 0, n);
+        }
+        return new Entry(name.getBytes(StandardCharsets.UTF_8), (int) crc.getValue(), source.length, out.toByteArray(), order);
+    }
+
+    /**
+     * Waits for all sources to be compressed and writes the jar.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        try {
+            this.workers.shutdown();
+            try {
+                this.workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while writing jar", e);
+            }
+            Throwable error = this.failure.get();
+            if (error != null) {
+                Throwables.propagateIfInstanceOf(error, IOException.class);
+                throw Throwables.propagate(error);
+            }
+            writeJar();
+        } finally {
+            this.workers.shutdownNow();
+            for (Deflater deflater : this.deflaters) {
+                deflater.end();
+            }
+            this.staging_channel.close();
+            Files.deleteIfExists(this.staging);
+        }
+    }
+
+    private void writeJar() throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(this.jar))) {
+            byte[] buffer = new byte[8192];
+            long offset = 0;
+            for (Entry entry : this.entries.values()) {
+                if (offset > 0xFFFFFFFFL) {
+                    throw new IOException("Jar is too large, entry " + new String(entry.name, StandardCharsets.UTF_8)
+                            + " would begin beyond 4GB");
+                }
+                entry.offset = offset;
+                offset += writeLocalHeader(out, entry);
+                if (buffer.length < entry.compressed_size) {
+                    buffer = new byte[entry.compressed_size];
+                }
+                ByteBuffer data = ByteBuffer.wrap(buffer, 0, entry.compressed_size);
+                while (data.hasRemaining()) {
+                    if (this.staging_channel.read(data, entry.staged + data.position()) < 0) {
+                        throw new IOException("Staged data truncated");
+                    }
+                }
+                out.write(buffer, 0, entry.compressed_size);
+                offset += entry.compressed_size;
+            }
+            long directory = offset;
+            for (Entry entry : this.entries.values()) {
+                offset += writeCentralHeader(out, entry);
+            }
+            writeEnd(out, this.entries.size(), directory, offset - directory);
+        }
+    }
+
+    private static int writeLocalHeader(OutputStream out, Entry entry) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(LOCAL_HEADER_SIZE + entry.name.length).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(LOCAL_HEADER);
+        header.putShort((short) VERSION);
+        header.putShort((short) FLAG_UTF8);
+        header.putShort((short) METHOD_DEFLATED);
+        header.putShort((short) DOS_TIME);
+        header.putShort((short) DOS_DATE);
+        header.putInt(entry.crc);
+        header.putInt(entry.compressed_size);
+        header.putInt(entry.size);
+        header.putShort((short) entry.name.length);
+        header.putShort((short) 0);
+        header.put(entry.name);
+        out.write(header.array());
+        return header.capacity();
+    }
+
+    private static int writeCentralHeader(OutputStream out, Entry entry) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(CENTRAL_HEADER_SIZE + entry.name.length).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(CENTRAL_HEADER);
+        header.putShort((short) VERSION);
+        header.putShort((short) VERSION);
+        header.putShort((short) FLAG_UTF8);
+        header.putShort((short) METHOD_DEFLATED);
+        header.putShort((short) DOS_TIME);
+        header.putShort((short) DOS_DATE);
+        header.putInt(entry.crc);
+        header.putInt(entry.compressed_size);
+        header.putInt(entry.size);
+        header.putShort((short) entry.name.length);
+        header.putShort((short) 0);
+        header.putShort((short) 0);
+        header.putShort((short) 0);
+        header.putShort((short) 0);
+        header.putInt(0);
+        header.putInt((int) entry.offset);
+        header.put(entry.name);
+        out.write(header.array());
+        return header.capacity();
+    }
+
+    private static void writeEnd(OutputStream out, int count, long directory, long size) throws IOException {
+        boolean zip64 = count >= 0xFFFF || directory >= 0xFFFFFFFFL || size >= 0xFFFFFFFFL;
+        ByteBuffer end = ByteBuffer.allocate((zip64 ? ZIP64_END_HEADER_SIZE + ZIP64_END_LOCATOR_SIZE : 0) + END_HEADER_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        if (zip64) {
+            end.putInt(ZIP64_END_HEADER);
+            end.putLong(ZIP64_END_HEADER_SIZE - 12);
+            end.putShort((short) VERSION_ZIP64);
+            end.putShort((short) VERSION_ZIP64);
+            end.putInt(0);
+            end.putInt(0);
+            end.putLong(count);
+            end.putLong(count);
+            end.putLong(size);
+            end.putLong(directory);
+            end.putInt(ZIP64_END_LOCATOR);
+            end.putInt(0);
+            end.putLong(directory + size);
+            end.putInt(1);
+        }
+        end.putInt(END_HEADER);
+        end.putShort((short) 0);
+        end.putShort((short) 0);
+        end.putShort((short) Math.min(count, 0xFFFF));
+        end.putShort((short) Math.min(count, 0xFFFF));
+        end.putInt((int) Math.min(size, 0xFFFFFFFFL));
+        end.putInt((int) Math.min(directory, 0xFFFFFFFFL));
+        end.putShort((short) 0);
+        out.write(end.array());
+    }
+
+    /**
+     * A compressed source waiting to be written.
+     */
+    private static class Entry {
+
+        final byte[] name;
+        final int crc;
+        final int size;
+        final int compressed_size;
+        final long order;
+        // The compressed data, until it has been written to the staging file
+        byte[] data;
+        long staged;
+        long offset;
+
+        Entry(byte[] name, int crc, int size, byte[] data, long order) {
+            this.name = name;
+            this.crc = crc;
+            this.size = size;
+            this.compressed_size = data.length;
+            this.data = data;
+            this.order = order;
+        }
+
+    }
+
+}
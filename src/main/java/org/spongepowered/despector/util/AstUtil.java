@@ -40,13 +40,16 @@ import static org.objectweb.asm.Opcodes.T_INT;
 import static org.objectweb.asm.Opcodes.T_LONG;
 import static org.objectweb.asm.Opcodes.T_SHORT;
 
+import com.google.common.collect.Lists;
 import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.InsnList;
 import org.objectweb.asm.util.Printer;
 import org.objectweb.asm.util.Textifier;
 import org.objectweb.asm.util.TraceMethodVisitor;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.List;
 
 /**
  * Various utilities for working with AST elements.
@@ -101,12 +104,16 @@ public final class AstUtil {
 
     /**
      * Converts an asm {@link AbstractInsnNode} to a string for debugging.
+     *
+     * <p>A new printer is used for each call as a printer retains every label
+     * that it has named, so a shared printer would grow with every method
+     * that is printed.</p>
      */
     public static String insnToString(AbstractInsnNode insn) {
-        insn.accept(mp);
+        Printer printer = new Textifier();
+        insn.accept(new TraceMethodVisitor(printer));
         StringWriter sw = new StringWriter();
         printer.print(new PrintWriter(sw));
-        printer.getText().clear();
         String s = sw.toString();
         if (s.endsWith("\n")) {
             s = s.substring(0, s.length() - 1);
@@ -114,8 +121,41 @@ public final class AstUtil {
         return s;
     }
 
-    private static Printer printer = new Textifier();
-    private static TraceMethodVisitor mp = new TraceMethodVisitor(printer);
+    /**
+     * Converts an asm {@link InsnList} to a list of lines for debugging.
+     * Unlike printing each instruction separately the labels are numbered
+     * consistently across the whole list.
+     */
+    public static List<String> insnListToLines(InsnList insns) {
+        Printer printer = new Textifier();
+        insns.accept(new TraceMethodVisitor(printer));
+        return printerToLines(printer);
+    }
+
+    /**
+     * Converts a list of asm instructions to a list of lines for debugging.
+     */
+    public static List<String> insnListToLines(List<AbstractInsnNode> insns) {
+        Printer printer = new Textifier();
+        TraceMethodVisitor visitor = new TraceMethodVisitor(printer);
+        for (AbstractInsnNode insn : insns) {
+            insn.accept(visitor);
+        }
+        return printerToLines(printer);
+    }
+
+    private static List<String> printerToLines(Printer printer) {
+        StringWriter sw = new StringWriter();
+        printer.print(new PrintWriter(sw));
+        List<String> lines = Lists.newArrayList();
+        for (String line : sw.toString().split("\n")) {
+            line = line.trim();
+            if (!line.isEmpty()) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
 
     private AstUtil() {
     }
@@ -0,0 +1,170 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.util;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.MapMaker;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A parsed method descriptor such as {@code (ILjava/lang/String;)V}, split
+ * into its parameter and return types.
+ *
+ * <p>Descriptors are immutable and are interned in the same way as
+ * {@link TypeDescriptor}s. Generic signatures are also accepted, the type
+ * arguments of parameter types are erased and the return type is kept as
+ * written.</p>
+ *
+ * <p>The interned descriptors are only weakly held, so the decompiler looks
+ * them up through
+ * {@link org.spongepowered.despector.ast.SourceSet#getMethodDescriptor(String)}
+ * which keeps them for the life of the source set.</p>
+ */
+public final class MethodDescriptor {
+
+    private static final ConcurrentMap<String, MethodDescriptor> INTERNED = new MapMaker().weakValues().makeMap();
+
+    /**
+     * Gets the descriptor for the given method descriptor or signature.
+     *
+     * @throws IllegalArgumentException If a parameter type is truncated
+     */
+    public static MethodDescriptor of(String desc) {
+        MethodDescriptor method = INTERNED.get(desc);
+        if (method == null) {
+            method = new MethodDescriptor(desc);
+            MethodDescriptor existing = INTERNED.putIfAbsent(desc, method);
+            if (existing != null) {
+                method = existing;
+            }
+        }
+        return method;
+    }
+
+    private final String descriptor;
+    private final ImmutableList<TypeDescriptor> param_types;
+    private final TypeDescriptor return_type;
+
+    private MethodDescriptor(String desc) {
+        this.descriptor = desc;
+        ImmutableList.Builder<TypeDescriptor> params = ImmutableList.builder();
+        int i = desc.indexOf('(') + 1;
+        int length = desc.length();
+        while (i < length && desc.charAt(i) != ')') {
+            int start = i;
+            while (i < length && desc.charAt(i) == '[') {
+                i++;
+            }
+            if (i >= length) {
+                throw malformed(desc);
+            }
+            char next = desc.charAt(i);
+            String param;
+            if (next == 'L' || next == 'T') {
+                int end = desc.indexOf(';', i);
+                if (end == -1) {
+                    throw malformed(desc);
+                }
+                int generic = desc.indexOf('<', i);
+                if (generic == -1 || generic > end) {
+                    param = desc.substring(start, end + 1);
+                    i = end + 1;
+                } else {
+                    StringBuilder erased = new StringBuilder(desc.length());
+                    i = erase(desc, start, erased);
+                    param = erased.toString();
+                }
+            } else {
+                param = desc.substring(start, i + 1);
+                i++;
+            }
+            params.add(TypeDescriptor.of(param));
+        }
+        this.param_types = params.build();
+        this.return_type = TypeDescriptor.of(i < length ? desc.substring(i + 1) : "V");
+    }
+
+    /**
+     * Copies the type starting at the given index without its type arguments
+     * and returns the index following it.
+     */
+    private static int erase(String desc, int start, StringBuilder out) {
+        int depth = 0;
+        int i = start;
+        while (true) {
+            if (i >= desc.length()) {
+                throw malformed(desc);
+            }
+            char next = desc.charAt(i++);
+            if (next == '<') {
+                depth++;
+            } else if (next == '>') {
+                depth--;
+            } else if (depth == 0) {
+                out.append(next);
+                if (next == ';') {
+                    return i;
+                }
+            }
+        }
+    }
+
+    private static IllegalArgumentException malformed(String desc) {
+        return new IllegalArgumentException("Malformed method descriptor: " + desc);
+    }
+
+    /**
+     * Gets the descriptor string.
+     */
+    public String getDescriptor() {
+        return this.descriptor;
+    }
+
+    /**
+     * Gets the types of the parameters of this method, in order.
+     */
+    public List<TypeDescriptor> getParamTypes() {
+        return this.param_types;
+    }
+
+    public int getParamCount() {
+        return this.param_types.size();
+    }
+
+    /**
+     * Gets the return type of this method, which may be void.
+     */
+    public TypeDescriptor getReturnType() {
+        return this.return_type;
+    }
+
+    @Override
+    public String toString() {
+        return this.descriptor;
+    }
+
+}
@@ -0,0 +1,159 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.despector.util;
+
+import com.google.common.collect.MapMaker;
+
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A parsed type descriptor such as {@code I} or {@code [Ljava/lang/String;}.
+ *
+ * <p>Descriptors are immutable and are interned, so each distinct descriptor
+ * string is only parsed once while it is in use and descriptors may be
+ * compared by identity.</p>
+ */
+public final class TypeDescriptor {
+
+    private static final ConcurrentMap<String, TypeDescriptor> INTERNED = new MapMaker().weakValues().makeMap();
+
+    /**
+     * Gets the descriptor for the given descriptor string.
+     */
+    public static TypeDescriptor of(String desc) {
+        TypeDescriptor type = INTERNED.get(desc);
+        if (type == null) {
+            type = new TypeDescriptor(desc);
+            TypeDescriptor existing = INTERNED.putIfAbsent(desc, type);
+            if (existing != null) {
+                type = existing;
+            }
+        }
+        return type;
+    }
+
+    private final String descriptor;
+    private final String type_name;
+    private final int dimensions;
+    private final boolean is_primitive;
+
+    private TypeDescriptor(String desc) {
+        this.descriptor = desc;
+        int dims = 0;
+        while (dims < desc.length() && desc.charAt(dims) == '[') {
+            dims++;
+        }
+        this.dimensions = dims;
+        String element = dims == 0 ? desc : desc.substring(dims);
+        this.is_primitive = element.length() == 1 && "IJSBCZFDV".indexOf(element.charAt(0)) != -1;
+        String name = elementName(element);
+        if (dims > 0) {
+            StringBuilder str = new StringBuilder(name.length() + dims * 2).append(name);
+            for (int i = 0; i < dims; i++) {
+                str.append("[]");
+            }
+            name = str.toString();
+        }
+        this.type_name = name;
+    }
+
+    private static String elementName(String desc) {
+        if (desc.startsWith("L") && desc.endsWith(";")) {
+            return desc.substring(1, desc.length() - 1);
+        }
+        if (desc.startsWith("T")) {
+            // TODO parse the bounds of the generic
+            return "java/lang/Object";
+        }
+        if (desc.length() != 1) {
+            return desc;
+        }
+        switch (desc.charAt(0)) {
+            case 'I':
+                return "int";
+            case 'S':
+                return "short";
+            case 'B':
+                return "byte";
+            case 'Z':
+                return "boolean";
+            case 'F':
+                return "float";
+            case 'D':
+                return "double";
+            case 'J':
+                return "long";
+            case 'C':
+                return "char";
+            case 'V':
+                return "void";
+            default:
+                return desc;
+        }
+    }
+
+    /**
+     * Gets the descriptor string.
+     */
+    public String getDescriptor() {
+        return this.descriptor;
+    }
+
+    /**
+     * Gets the internal name of this type, with a {@code []} suffix for each
+     * array dimension.
+     */
+    public String getTypeName() {
+        return this.type_name;
+    }
+
+    /**
+     * Gets the number of array dimensions of this type.
+     */
+    public int getDimensions() {
+        return this.dimensions;
+    }
+
+    public boolean isArray() {
+        return this.dimensions > 0;
+    }
+
+    /**
+     * Gets if the element type of this descriptor is a primitive or void.
+     */
+    public boolean isPrimitive() {
+        return this.is_primitive;
+    }
+
+    public boolean isVoid() {
+        return "V".equals(this.descriptor);
+    }
+
+    @Override
+    public String toString() {
+        return this.descriptor;
+    }
+
+}
@@ -25,13 +25,8 @@
 package org.spongepowered.despector.util;
 
 import com.google.common.base.Throwables;
-import com.google.common.collect.Lists;
-import org.spongepowered.despector.ast.type.GenericArgument;
 
-import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
@@ -53,44 +48,7 @@ public final class TypeHelper {
      * Converts a description to a type name.
      */
     public static String descToType(String desc) {
-        if (desc.startsWith("[")) {
-            return descToType(desc.substring(1)) + "[]";
-        }
-        if (desc.startsWith("L") && desc.endsWith(";")) {
-            return desc.substring(1, desc.length() - 1);
-        }
-        if (desc.startsWith("T")) {
-            // TODO parse the bounds of the generic
-            return "java/lang/Object";
-        }
-        if (desc.equals("I")) {
-            return "int";
-        }
-        if (desc.equals("S")) {
-            return "short";
-        }
-        if (desc.equals("B")) {
-            return "byte";
-        }
-        if (desc.equals("Z")) {
-            return "boolean";
-        }
-        if (desc.equals("F")) {
-            return "float";
-        }
-        if (desc.equals("D")) {
-            return "double";
-        }
-        if (desc.equals("J")) {
-            return "long";
-        }
-        if (desc.equals("C")) {
-            return "char";
-        }
-        if (desc.equals("V")) {
-            return "void";
-        }
-        return desc;
+        return TypeDescriptor.of(desc).getTypeName();
     }
 
     /**
@@ -134,141 +92,26 @@ public final class TypeHelper {
         if (sig == null) {
             return 0;
         }
-        int depth = 0;
-        int count = 0;
-        for (int i = sig.indexOf('(') + 1; i < sig.length(); i++) {
-            char next = sig.charAt(i);
-            if (depth > 0) {
-                if (next == '>') {
-                    depth--;
-                } else if (next == '<') {
-                    depth++;
-                }
-                continue;
-            }
-            if (next == ')') {
-                break;
-            }
-            if (next == '[') {
-                continue;
-            }
-            if (next == '<') {
-                depth++;
-            }
-            if (next == 'L' || next == 'T') {
-                // Generics may be arbitrarily nested so we need to ensure we
-                // parse until the ';' at the same level that we started.
-                int generic_depth = 0;
-                while (next != ';' || generic_depth > 0) {
-                    if (next == '<') {
-                        generic_depth++;
-                        next = sig.charAt(++i);
-                        continue;
-                    }
-                    if (generic_depth > 0) {
-                        if (next == '>') {
-                            generic_depth--;
-                        } else if (next == '<') {
-                            generic_depth++;
-                        }
-                    }
-                    next = sig.charAt(++i);
-                }
-            }
-            count++;
-        }
-        return count;
+        return MethodDescriptor.of(sig).getParamCount();
     }
 
     public static String[] splitSig(String sig) {
         if (sig == null) {
             return null;
         }
-        List<String> params = Lists.newArrayList();
-        String accu = "";
-        boolean is_array = false;
-        int depth = 0;
-        for (int i = sig.indexOf('(') + 1; i < sig.length(); i++) {
-            char next = sig.charAt(i);
-            if (depth > 0) {
-                if (next == '>') {
-                    depth--;
-                } else if (next == '<') {
-                    depth++;
-                }
-                continue;
-            }
-            if (next == ')') {
-                break;
-            }
-            if (next == '[') {
-                is_array = true;
-                continue;
-            }
-            if (next == '<') {
-                depth++;
-            }
-            if (next == 'L' || next == 'T') {
-                int generics_depth = 0;
-                while (next != ';' || generics_depth > 0) {
-                    if (next == '<') {
-                        generics_depth++;
-                        next = sig.charAt(++i);
-                        continue;
-                    }
-                    if (generics_depth > 0) {
-                        if (next == '>') {
-                            generics_depth--;
-                        } else if (next == '<') {
-                            generics_depth++;
-                        }
-                    } else {
-                        accu += next;
-                    }
-                    next = sig.charAt(++i);
-                }
-                accu += next;
-            } else {
-                accu += next;
-            }
-            if (is_array) {
-                accu = "[" + accu;
-            }
-            params.add(accu);
-            accu = "";
-            is_array = false;
+        List<TypeDescriptor> types = MethodDescriptor.of(sig).getParamTypes();
+        String[] params = new String[types.size()];
+        for (int i = 0; i < params.length; i++) {
+            params[i] = types.get(i).getDescriptor();
         }
-        return params.toArray(new String[params.size()]);
+        return params;
     }
 
-    private static final Pattern DESC = Pattern.compile("\\([^\\)]*\\)(.*)");
-
     /**
      * Gets the return value from the given method signature.
      */
     public static String getRet(String signature) {
-        Matcher matcher = DESC.matcher(signature);
-        if (matcher.find()) {
-            return matcher.group(1);
-        }
-        return "V";
-    }
-
-    private static final Pattern GENERIC = Pattern.compile("L[a-zA-Z0-9\\/$]+<((?:I|J|B|S|F|D|Z|(?:L[a-zA-Z0-9\\/$]+;))+)>;");
-    private static final Pattern TYPE    = Pattern.compile("L([a-zA-Z0-9\\/$]+);");
-
-    public static String[] getGenericContents(String sig) {
-        Matcher m = GENERIC.matcher(sig);
-        if (m.find()) {
-            String generic = m.group(1);
-            List<String> generics = Lists.newArrayList();
-            Matcher g = TYPE.matcher(generic);
-            while (g.find()) {
-                generics.add(g.group(1));
-            }
-            return generics.toArray(new String[generics.size()]);
-        }
-        return null;
+        return MethodDescriptor.of(signature).getReturnType().getDescriptor();
     }
 
     public static boolean isPrimative(String type) {
@@ -279,27 +122,6 @@ public final class TypeHelper {
         return false;
     }
 
-    public static Collection<? extends GenericArgument> getGenericArgs(String signature) {
-        if (signature != null && signature.startsWith("<")) {
-            int i = 1;
-            int depth = 1;
-            for (; i < signature.length(); i++) {
-                char next = signature.charAt(i);
-                if (next == '<') {
-                    depth++;
-                } else if (next == '>') {
-                    depth--;
-                    if (depth == 0) {
-                        break;
-                    }
-                }
-            }
-            String type_params = signature.substring(1, i);
-            // TODO
-        }
-        return Collections.emptyList();
-    }
-
     private TypeHelper() {
     }
 
@@ -0,0 +1,109 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.test.ast;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.spongepowered.despector.ast.io.SingularClassLoader;
+import org.spongepowered.despector.ast.members.MethodEntry;
+import org.spongepowered.despector.ast.type.TypeEntry;
+import org.spongepowered.despector.util.AstUtil;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.util.List;
+
+/**
+ * Checks that the asm tree of a class can be collected once its ast has been
+ * built.
+ */
+public class AsmReleaseTest {
+
+    private static TypeEntry load(Class<?> cls, List<WeakReference<Object>> asm_refs, boolean print) throws IOException {
+        String path = cls.getProtectionDomain().getCodeSource().getLocation().getPath();
+        File file = new File(path, cls.getName().replace('.', '/') + ".class");
+        ClassNode cn = new ClassNode();
+        try (InputStream in = new FileInputStream(file)) {
+            new ClassReader(in).accept(cn, 0);
+        }
+        asm_refs.add(new WeakReference<>(cn));
+        for (Object mn : cn.methods) {
+            asm_refs.add(new WeakReference<>(mn));
+            for (AbstractInsnNode insn : ((MethodNode) mn).instructions.toArray()) {
+                asm_refs.add(new WeakReference<>(insn));
+                if (print) {
+                    AstUtil.insnToString(insn);
+                }
+            }
+        }
+        TypeEntry type = SingularClassLoader.instance.build(cn, null);
+        for (MethodEntry m : type.getMethods()) {
+            m.getInstructions();
+        }
+        return type;
+    }
+
+    private static int countLive(List<WeakReference<Object>> refs) throws InterruptedException {
+        int live = refs.size();
+        for (int i = 0; i < 20 && live > 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+            live = 0;
+            for (WeakReference<Object> ref : refs) {
+                if (ref.get() != null) {
+                    live++;
+                }
+            }
+        }
+        return live;
+    }
+
+    @Test
+    public void testTreeCollected() throws IOException, InterruptedException {
+        List<WeakReference<Object>> refs = Lists.newArrayList();
+        TypeEntry type = load(BranchTest.class, refs, false);
+        assertEquals(0, countLive(refs));
+        assertNotNull(type.getMethod("mth_simpleif").getInstructions());
+    }
+
+    @Test
+    public void testTreeCollectedAfterPrinting() throws IOException, InterruptedException {
+        List<WeakReference<Object>> refs = Lists.newArrayList();
+        TypeEntry type = load(BranchTest.class, refs, true);
+        assertEquals(0, countLive(refs));
+        assertNotNull(type.getMethod("mth_basicternary").getInstructions());
+    }
+
+}
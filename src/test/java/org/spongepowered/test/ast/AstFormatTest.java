@@ -0,0 +1,284 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.test.ast;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.spongepowered.despector.ast.SourceSet;
+import org.spongepowered.despector.ast.io.SingularClassLoader;
+import org.spongepowered.despector.ast.io.SingularClassLoader.LoadMode;
+import org.spongepowered.despector.ast.io.binary.AstReader;
+import org.spongepowered.despector.ast.io.binary.AstWriter;
+import org.spongepowered.despector.ast.io.emitter.SourceEmitter;
+import org.spongepowered.despector.ast.io.insn.InstructionTreeBuilder;
+import org.spongepowered.despector.ast.io.insn.Locals;
+import org.spongepowered.despector.ast.io.insn.MethodBudget;
+import org.spongepowered.despector.ast.io.insn.StructuringEngine;
+import org.spongepowered.despector.ast.members.insn.StatementBlock;
+import org.spongepowered.despector.ast.members.insn.misc.Comment;
+import org.spongepowered.despector.ast.type.TypeEntry;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a source set in the binary ast format and checks that reading it
+ * back gives the same source.
+ */
+public class AstFormatTest {
+
+    /**
+     * Static members, and constants at the edges of each varint length.
+     */
+    public static class Statics {
+
+        public static int counter;
+        private static String name;
+
+        static {
+            counter = -1;
+            name = "statics";
+        }
+
+        public static int edges(int i) {
+            int a = 63;
+            int b = -64;
+            int c = 64;
+            int d = -65;
+            int e = 8191;
+            int f = -8192;
+            int g = 8192;
+            int h = Integer.MAX_VALUE;
+            int j = Integer.MIN_VALUE;
+            long k = Long.MIN_VALUE;
+            i += 64;
+            i -= 65;
+            counter = a + b + c + d + e + f + g + h + j;
+            return i;
+        }
+
+        public static int keys(int i) {
+            switch (i) {
+            case Integer.MIN_VALUE:
+                return -8193;
+            case -65:
+                return 1;
+            case 64:
+                return 2;
+            case 8192:
+                return 3;
+            case Integer.MAX_VALUE:
+                return 4;
+            default:
+                return 0;
+            }
+        }
+
+        public static String getName() {
+            return name;
+        }
+    }
+
+    public static enum Color {
+        RED,
+        GREEN,
+        BLUE;
+    }
+
+    /**
+     * Enough constants to take the string table of a single type past 128
+     * entries, so later references to it take more than a single byte.
+     */
+    public static enum Element {
+        H, HE, LI, BE, B, C, N, O, F, NE,
+        NA, MG, AL, SI, P, S, CL, AR, K, CA,
+        SC, TI, V, CR, MN, FE, CO, NI, CU, ZN,
+        GA, GE, AS, SE, BR, KR, RB, SR, Y, ZR,
+        NB, MO, TC, RU, RH, PD, AG, CD, IN, SN,
+        SB, TE, I, XE, CS, BA, LA, CE, PR, ND,
+        PM, SM, EU, GD, TB, DY, HO, ER, TM, YB,
+        LU, HF, TA, W, RE, OS, IR, PT, AU, HG,
+        TL, PB, BI, PO, AT, RN, FR, RA, AC, TH,
+        PA, U, NP, PU, AM, CM, BK, CF, ES, FM,
+        MD, NO, LR, RF, DB, SG, BH, HS, MT, DS,
+        RG, CN, NH, FL, MC, LV, TS, OG;
+    }
+
+    public static interface Shape {
+
+        double area();
+
+        String getName();
+    }
+
+    public static class Box<T extends Comparable<T>> implements Shape, Comparable<Box<T>> {
+
+        private T value;
+        private List<? super T> sink;
+        private Map<String, List<T[]>> groups;
+
+        public <U extends T> U unwrap(U other) {
+            if (other == null) {
+                return null;
+            }
+            return other;
+        }
+
+        @Override
+        public double area() {
+            return 1.5;
+        }
+
+        @Override
+        public String getName() {
+            return "box";
+        }
+
+        @Override
+        public int compareTo(Box<T> o) {
+            return this.value.compareTo(o.value);
+        }
+    }
+
+    /**
+     * Loops with labels, breaks and continues.
+     */
+    public static class Loops {
+
+        public static void loops(int i) {
+            outer: while (i < 10) {
+                i++;
+                for (int j = 0; j < i; j++) {
+                    if (j == 3) {
+                        continue outer;
+                    }
+                    if (j == 4) {
+                        break outer;
+                    }
+                }
+                do {
+                    if (i == 5) {
+                        break;
+                    }
+                    i++;
+                } while (i < 7);
+            }
+        }
+    }
+
+    private static final Class<?>[] TYPES = {Statics.class, Color.class, Element.class, Shape.class, Box.class, Loops.class, BranchTest.class,
+            OperatorsTest.class};
+
+    private static Map<String, String> emitAll(SourceSet src) {
+        Map<String, String> sources = Maps.newHashMap();
+        for (TypeEntry type : src.getAllClasses()) {
+            StringWriter writer = new StringWriter();
+            new SourceEmitter(writer).emitType(type);
+            sources.put(type.getName(), writer.toString());
+        }
+        return sources;
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        SourceSet src = new SourceSet();
+        StructuringEngine previous = InstructionTreeBuilder.getEngine();
+        // the control flow engine is used to get loops with break and
+        // continue statements into the source set
+        InstructionTreeBuilder.setEngine(StructuringEngine.CFG);
+        try {
+            for (Class<?> cls : TYPES) {
+                String file = cls.getName().substring(cls.getPackage().getName().length() + 1) + ".class";
+                try (InputStream in = cls.getResourceAsStream(file)) {
+                    SingularClassLoader.instance.load(new ClassReader(in), src, LoadMode.FULL);
+                }
+            }
+        } finally {
+            InstructionTreeBuilder.setEngine(previous);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (AstWriter writer = new AstWriter(bytes)) {
+            writer.write(src);
+        }
+        SourceSet read = new SourceSet();
+        try (AstReader reader = new AstReader(new ByteArrayInputStream(bytes.toByteArray()), read)) {
+            reader.readAll();
+        }
+
+        assertNotNull(read.getEnum(Color.class.getName().replace('.', '/')));
+        assertNotNull(read.getInterface(Shape.class.getName().replace('.', '/')));
+        Map<String, String> expected = emitAll(src);
+        Map<String, String> actual = emitAll(read);
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<String, String> e : expected.entrySet()) {
+            assertEquals(e.getKey(), e.getValue(), actual.get(e.getKey()));
+        }
+    }
+
+    @Test
+    public void testPlaceholder() throws IOException {
+        SourceSet src = new SourceSet();
+        MethodBudget previous = InstructionTreeBuilder.getBudget();
+        // abandons every method with more than a single intermediate
+        InstructionTreeBuilder.setBudget(new MethodBudget(0, 1, false));
+        TypeEntry type;
+        try (InputStream in = Statics.class.getResourceAsStream("AstFormatTest$Statics.class")) {
+            type = SingularClassLoader.instance.load(new ClassReader(in), src, LoadMode.FULL);
+        } finally {
+            InstructionTreeBuilder.setBudget(previous);
+        }
+        assertTrue(InstructionTreeBuilder.isPlaceholder(type.getStaticMethod("edges").getInstructions()));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (AstWriter writer = new AstWriter(bytes)) {
+            writer.write(type);
+        }
+        SourceSet read = new SourceSet();
+        try (AstReader reader = new AstReader(new ByteArrayInputStream(bytes.toByteArray()), read)) {
+            reader.readAll();
+        }
+        TypeEntry read_type = read.get(type.getName());
+        assertTrue(InstructionTreeBuilder.isPlaceholder(read_type.getStaticMethod("edges").getInstructions()));
+
+        // a body which happens to begin with a comment is not a placeholder
+        StatementBlock block = new StatementBlock(StatementBlock.Type.METHOD, new Locals());
+        block.append(new Comment(Lists.newArrayList("not a placeholder")));
+        assertFalse(InstructionTreeBuilder.isPlaceholder(block));
+    }
+
+}
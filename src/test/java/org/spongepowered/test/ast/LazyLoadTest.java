@@ -0,0 +1,88 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.test.ast;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.spongepowered.despector.ast.io.SingularClassLoader;
+import org.spongepowered.despector.ast.io.SingularClassLoader.LoadMode;
+import org.spongepowered.despector.ast.io.emitter.SourceEmitter;
+import org.spongepowered.despector.ast.members.MethodEntry;
+import org.spongepowered.despector.ast.type.TypeEntry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.List;
+
+/**
+ * Loads classes lazily and checks that their bodies match a full load.
+ */
+public class LazyLoadTest {
+
+    private static TypeEntry build(Class<?> cls, LoadMode mode) throws IOException {
+        try (InputStream in = cls.getResourceAsStream(cls.getSimpleName() + ".class")) {
+            return SingularClassLoader.instance.build(new ClassReader(in), null, mode);
+        }
+    }
+
+    private static String emit(TypeEntry type) {
+        StringWriter writer = new StringWriter();
+        new SourceEmitter(writer).emitType(type);
+        return writer.toString();
+    }
+
+    private static void assertSameAsFull(Class<?> cls) throws IOException {
+        TypeEntry lazy = build(cls, LoadMode.LAZY);
+        List<MethodEntry> methods = Lists.newArrayList(lazy.getMethods());
+        methods.addAll(lazy.getStaticMethods());
+        for (MethodEntry method : methods) {
+            assertTrue(method.toString(), method.isAbstract() || method.isLazy());
+        }
+        // bodies are found by their index in the class, so are built in
+        // reverse to check that each reads its own method
+        for (MethodEntry method : Lists.reverse(methods)) {
+            method.getInstructions();
+            assertFalse(method.toString(), method.isLazy());
+        }
+        assertEquals(emit(build(cls, LoadMode.FULL)), emit(lazy));
+    }
+
+    @Test
+    public void testBranches() throws IOException {
+        assertSameAsFull(BranchTest.class);
+    }
+
+    @Test
+    public void testOperators() throws IOException {
+        assertSameAsFull(OperatorsTest.class);
+    }
+
+}
@@ -0,0 +1,229 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.test.ast;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.spongepowered.despector.ast.io.MappedJarFile;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Reads jars written by the jar writer of the jdk with a
+ * {@link MappedJarFile}.
+ */
+public class MappedJarFileTest {
+
+    private static final byte[] STORED = "class A {}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] DEFLATED = Strings.repeat("class B { int x; }\n", 1000).getBytes(StandardCharsets.UTF_8);
+
+    private static void writeStored(JarOutputStream out, String name, byte[] data) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(data.length);
+        entry.setCompressedSize(data.length);
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        entry.setCrc(crc.getValue());
+        out.putNextEntry(entry);
+        out.write(data);
+        out.closeEntry();
+    }
+
+    private static void writeDeflated(JarOutputStream out, String name, byte[] data) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        out.write(data);
+        out.closeEntry();
+    }
+
+    @Test
+    public void testRead() throws IOException {
+        Path jar = Files.createTempFile("despector", ".jar");
+        try {
+            try (OutputStream file = Files.newOutputStream(jar); JarOutputStream out = new JarOutputStream(file)) {
+                writeStored(out, "a/A.class", STORED);
+                writeDeflated(out, "b/B.class", DEFLATED);
+                writeStored(out, "c/", new byte[0]);
+                writeDeflated(out, "c/Empty.class", new byte[0]);
+            }
+            try (MappedJarFile mapped = new MappedJarFile(jar); MappedJarFile.Reader reader = mapped.newReader()) {
+                List<String> names = Lists.newArrayList();
+                for (MappedJarFile.Entry entry : mapped.getEntries()) {
+                    names.add(entry.getName());
+                }
+                assertEquals(Lists.newArrayList("a/A.class", "b/B.class", "c/", "c/Empty.class"), names);
+                assertNull(mapped.getEntry("missing"));
+
+                MappedJarFile.Entry stored = mapped.getEntry("a/A.class");
+                assertEquals(ZipEntry.STORED, stored.getMethod());
+                assertEquals(STORED.length, stored.getSize());
+                assertEquals(STORED.length, stored.getCompressedSize());
+                assertFalse(stored.isDirectory());
+                ByteBuffer raw = mapped.getRawData(stored);
+                byte[] raw_data = new byte[raw.remaining()];
+                raw.get(raw_data);
+                assertArrayEquals(STORED, raw_data);
+
+                MappedJarFile.Entry deflated = mapped.getEntry("b/B.class");
+                assertEquals(ZipEntry.DEFLATED, deflated.getMethod());
+                assertEquals(DEFLATED.length, deflated.getSize());
+                assertTrue(deflated.getCompressedSize() < deflated.getSize());
+                assertArrayEquals(DEFLATED, Arrays.copyOf(reader.read(deflated), deflated.getSize()));
+
+                // the buffer of the reader is reused, only the size of the
+                // entry is valid after a smaller read
+                assertArrayEquals(STORED, Arrays.copyOf(reader.read(stored), stored.getSize()));
+                assertArrayEquals(DEFLATED, Arrays.copyOf(reader.read(deflated), deflated.getSize()));
+
+                assertTrue(mapped.getEntry("c/").isDirectory());
+                MappedJarFile.Entry empty = mapped.getEntry("c/Empty.class");
+                assertEquals(0, empty.getSize());
+                reader.read(empty);
+            }
+        } finally {
+            Files.delete(jar);
+        }
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        Path jar = Files.createTempFile("despector", ".jar");
+        try {
+            try (OutputStream file = Files.newOutputStream(jar); JarOutputStream out = new JarOutputStream(file)) {
+                out.finish();
+            }
+            try (MappedJarFile mapped = new MappedJarFile(jar)) {
+                assertTrue(mapped.getEntries().isEmpty());
+            }
+        } finally {
+            Files.delete(jar);
+        }
+    }
+
+    @Test
+    public void testNotAJar() throws IOException {
+        Path jar = Files.createTempFile("despector", ".jar");
+        try {
+            Files.write(jar, STORED);
+            try (MappedJarFile mapped = new MappedJarFile(jar)) {
+                fail("Mapped " + mapped.getEntries().size() + " entries from a file without a central directory");
+            } catch (IOException e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith("No central directory found"));
+            }
+        } finally {
+            Files.delete(jar);
+        }
+    }
+
+    @Test
+    public void testZip64() throws IOException {
+        int count = 0x10000;
+        Path jar = Files.createTempFile("despector", ".jar");
+        try {
+            // more entries than the end record of a plain zip can count, the
+            // jdk writes a zip64 end record instead
+            try (OutputStream file = Files.newOutputStream(jar); JarOutputStream out = new JarOutputStream(file)) {
+                for (int i = 0; i < count; i++) {
+                    writeStored(out, "p/C" + i + ".class", ("class C" + i + " {}").getBytes(StandardCharsets.UTF_8));
+                }
+                writeDeflated(out, "b/B.class", DEFLATED);
+            }
+            try (MappedJarFile mapped = new MappedJarFile(jar); MappedJarFile.Reader reader = mapped.newReader()) {
+                assertEquals(count + 1, mapped.getEntries().size());
+                MappedJarFile.Entry first = mapped.getEntry("p/C0.class");
+                assertArrayEquals("class C0 {}".getBytes(StandardCharsets.UTF_8), Arrays.copyOf(reader.read(first), first.getSize()));
+                MappedJarFile.Entry last = mapped.getEntry("p/C" + (count - 1) + ".class");
+                assertArrayEquals(("class C" + (count - 1) + " {}").getBytes(StandardCharsets.UTF_8),
+                        Arrays.copyOf(reader.read(last), last.getSize()));
+                MappedJarFile.Entry deflated = mapped.getEntry("b/B.class");
+                assertArrayEquals(DEFLATED, Arrays.copyOf(reader.read(deflated), deflated.getSize()));
+            }
+        } finally {
+            Files.delete(jar);
+        }
+    }
+
+    @Test
+    public void testZip64Extra() throws IOException {
+        // the jdk only writes zip64 extra fields for entries past 4GiB, so a
+        // jar with every size and offset in the extra field is written by hand
+        byte[] name = "A.class".getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(STORED);
+        ByteBuffer zip = ByteBuffer.allocate(512).order(ByteOrder.LITTLE_ENDIAN);
+        zip.putInt(0x04034b50).putShort((short) 45).putShort((short) 0).putShort((short) ZipEntry.STORED).putInt(0);
+        zip.putInt((int) crc.getValue()).putInt(-1).putInt(-1).putShort((short) name.length).putShort((short) 20).put(name);
+        zip.putShort((short) 1).putShort((short) 16).putLong(STORED.length).putLong(STORED.length);
+        zip.put(STORED);
+        int central = zip.position();
+        zip.putInt(0x02014b50).putShort((short) 45).putShort((short) 45).putShort((short) 0).putShort((short) ZipEntry.STORED).putInt(0);
+        zip.putInt((int) crc.getValue()).putInt(-1).putInt(-1).putShort((short) name.length).putShort((short) 28).putShort((short) 0);
+        zip.putShort((short) 0).putShort((short) 0).putInt(0).putInt(-1).put(name);
+        zip.putShort((short) 1).putShort((short) 24).putLong(STORED.length).putLong(STORED.length).putLong(0);
+        int zip64_end = zip.position();
+        zip.putInt(0x06064b50).putLong(44).putShort((short) 45).putShort((short) 45).putInt(0).putInt(0);
+        zip.putLong(1).putLong(1).putLong(zip64_end - central).putLong(central);
+        zip.putInt(0x07064b50).putInt(0).putLong(zip64_end).putInt(1);
+        zip.putInt(0x06054b50).putShort((short) 0).putShort((short) 0).putShort((short) -1).putShort((short) -1);
+        zip.putInt(-1).putInt(-1).putShort((short) 0);
+
+        Path jar = Files.createTempFile("despector", ".jar");
+        try {
+            Files.write(jar, Arrays.copyOf(zip.array(), zip.position()));
+            try (ZipFile check = new ZipFile(jar.toFile())) {
+                assertEquals(STORED.length, check.getEntry("A.class").getSize());
+            }
+            try (MappedJarFile mapped = new MappedJarFile(jar); MappedJarFile.Reader reader = mapped.newReader()) {
+                MappedJarFile.Entry entry = mapped.getEntry("A.class");
+                assertEquals(STORED.length, entry.getSize());
+                assertEquals(STORED.length, entry.getCompressedSize());
+                assertArrayEquals(STORED, Arrays.copyOf(reader.read(entry), entry.getSize()));
+            }
+        } finally {
+            Files.delete(jar);
+        }
+    }
+
+}
@@ -0,0 +1,203 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.test.ast;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.common.base.Strings;
+import org.junit.Test;
+import org.spongepowered.despector.ast.type.GenericArgument;
+import org.spongepowered.despector.ast.type.GenericType;
+import org.spongepowered.despector.ast.type.SignatureParser;
+import org.spongepowered.despector.ast.type.SignatureParser.ClassSignature;
+
+/**
+ * Parses type and class signatures with the {@link SignatureParser}.
+ */
+public class SignatureParserTest {
+
+    private static void assertMalformed(String signature, String message) {
+        try {
+            SignatureParser.parseType(signature);
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith(message));
+            return;
+        }
+        fail("Parsed malformed signature: " + signature);
+    }
+
+    @Test
+    public void testPlain() {
+        GenericType type = SignatureParser.parseType("Ljava/lang/String;");
+        assertEquals("Ljava/lang/String;", type.getType());
+        assertEquals("Ljava/lang/String;", type.getSignature());
+        assertEquals(0, type.getDimensions());
+        assertEquals(0, type.getWildcard());
+        assertTrue(type.getArguments().isEmpty());
+        assertFalse(type.isTypeVariable());
+    }
+
+    @Test
+    public void testGeneric() {
+        GenericType type = SignatureParser.parseType("Ljava/util/Map<Ljava/lang/String;Ljava/util/List<TT;>;>;");
+        assertEquals("Ljava/util/Map;", type.getType());
+        assertEquals(2, type.getArguments().size());
+        assertEquals("Ljava/lang/String;", type.getArguments().get(0).getType());
+        GenericType list = type.getArguments().get(1);
+        assertEquals("Ljava/util/List;", list.getType());
+        assertEquals("Ljava/util/List<TT;>;", list.getSignature());
+        assertEquals("TT;", list.getArguments().get(0).getType());
+        assertEquals("Ljava/lang/String;", type.getParams().get(0));
+    }
+
+    @Test
+    public void testTypeVariable() {
+        GenericType type = SignatureParser.parseType("TT;");
+        assertEquals("TT;", type.getType());
+        assertTrue(type.isTypeVariable());
+        assertEquals(0, type.getDimensions());
+
+        GenericType array = SignatureParser.parseType("[TT;");
+        assertEquals("[TT;", array.getType());
+        assertEquals(1, array.getDimensions());
+        assertTrue(array.isTypeVariable());
+    }
+
+    @Test
+    public void testArrays() {
+        GenericType prim = SignatureParser.parseType("[[I");
+        assertEquals("[[I", prim.getType());
+        assertEquals(2, prim.getDimensions());
+
+        GenericType obj = SignatureParser.parseType("[[[Ljava/lang/Object;");
+        assertEquals("[[[Ljava/lang/Object;", obj.getType());
+        assertEquals(3, obj.getDimensions());
+        assertFalse(obj.isTypeVariable());
+
+        GenericType generic = SignatureParser.parseType("[Ljava/util/List<[TT;>;");
+        assertEquals("[Ljava/util/List;", generic.getType());
+        assertEquals(1, generic.getDimensions());
+        assertEquals(1, generic.getArguments().get(0).getDimensions());
+    }
+
+    @Test
+    public void testInnerClass() {
+        GenericType type = SignatureParser.parseType("Lfoo/Outer<TT;>.Inner<TU;>;");
+        assertEquals("Lfoo/Outer$Inner;", type.getType());
+        assertEquals("Lfoo/Outer<TT;>.Inner<TU;>;", type.getSignature());
+        // the arguments of the outer class are dropped
+        assertEquals(1, type.getArguments().size());
+        assertEquals("TU;", type.getArguments().get(0).getType());
+    }
+
+    @Test
+    public void testWildcards() {
+        GenericType any = SignatureParser.parseType("*");
+        assertEquals('*', any.getWildcard());
+        assertNull(any.getType());
+        assertFalse(any.isTypeVariable());
+
+        GenericType type = SignatureParser.parseType("Ljava/util/Map<+Ljava/lang/Number;-TT;>;");
+        GenericType upper = type.getArguments().get(0);
+        assertEquals('+', upper.getWildcard());
+        assertEquals("Ljava/lang/Number;", upper.getType());
+        assertEquals("+Ljava/lang/Number;", upper.getSignature());
+        GenericType lower = type.getArguments().get(1);
+        assertEquals('-', lower.getWildcard());
+        assertEquals("TT;", lower.getType());
+        assertEquals("-TT;", lower.getSignature());
+        assertTrue(lower.isTypeVariable());
+
+        GenericType bounded = SignatureParser.parseType("+[Ljava/util/List<*>;");
+        assertEquals('+', bounded.getWildcard());
+        assertEquals("[Ljava/util/List;", bounded.getType());
+        assertEquals('*', bounded.getArguments().get(0).getWildcard());
+    }
+
+    @Test
+    public void testInterned() {
+        String sig = "Ljava/util/List<Ljava/lang/String;>;";
+        assertTrue(SignatureParser.parseType(sig) == SignatureParser.parseType(new String(sig)));
+    }
+
+    @Test
+    public void testClass() {
+        ClassSignature sig = SignatureParser.parseClass(
+                "<K:Ljava/lang/Object;V::Ljava/lang/Comparable<TV;>;>Ljava/util/AbstractMap<TK;TV;>;Ljava/io/Serializable;");
+        assertEquals(2, sig.getTypeParameters().size());
+        GenericArgument key = sig.getTypeParameters().get(0);
+        assertEquals("K", key.getName());
+        assertEquals("Ljava/lang/Object;", key.getBound());
+        // only an interface bound
+        GenericArgument value = sig.getTypeParameters().get(1);
+        assertEquals("V", value.getName());
+        assertEquals("Ljava/lang/Comparable<TV;>;", value.getBound());
+        assertEquals("Ljava/util/AbstractMap;", sig.getSuperclass().getType());
+        assertEquals(2, sig.getSuperclass().getArguments().size());
+        assertEquals(1, sig.getInterfaces().size());
+        assertEquals("Ljava/io/Serializable;", sig.getInterfaces().get(0).getType());
+
+        ClassSignature plain = SignatureParser.parseClass("Ljava/lang/Object;");
+        assertTrue(plain.getTypeParameters().isEmpty());
+        assertTrue(plain.getInterfaces().isEmpty());
+    }
+
+    @Test
+    public void testNesting() {
+        int depth = 256;
+        String sig = Strings.repeat("Ljava/util/List<", depth) + "TT;" + Strings.repeat(">;", depth);
+        GenericType type = SignatureParser.parseType(sig);
+        for (int i = 1; i < depth; i++) {
+            type = type.getArguments().get(0);
+        }
+        assertEquals("Ljava/util/List<TT;>;", type.getSignature());
+
+        String deep = Strings.repeat("Ljava/util/List<", depth + 1) + "TT;" + Strings.repeat(">;", depth + 1);
+        assertMalformed(deep, "Type arguments nested too deeply");
+    }
+
+    @Test
+    public void testMalformed() {
+        assertMalformed("", "Unexpected end of signature");
+        assertMalformed("Ljava/lang/String", "Unexpected end of signature");
+        assertMalformed("Ljava/util/List<TT;", "Unexpected end of signature");
+        assertMalformed("TT", "Unterminated type variable");
+        assertMalformed("I", "Unexpected 'I' at 0");
+        assertMalformed("[X", "Unexpected 'X' at 1");
+        assertMalformed("Ljava/lang/String;I", "Unexpected 'I' at 18");
+        assertMalformed("Ljava/util/List<>;;", "Unexpected ';' at 18");
+        try {
+            SignatureParser.parseClass("<TLjava/lang/Object;>Ljava/lang/Object;");
+            fail("Parsed malformed type parameter");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Malformed type parameter"));
+        }
+    }
+
+}
@@ -0,0 +1,333 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.test.ast;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.spongepowered.despector.ast.io.emitter.SourceEmitter;
+import org.spongepowered.despector.ast.io.insn.InstructionTreeBuilder;
+import org.spongepowered.despector.ast.io.insn.StructuringEngine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.List;
+
+/**
+ * Compares the control flow graph structuring engine against the range
+ * engine, and checks the loops which only it can structure.
+ */
+public class StructuringEngineTest {
+
+    private static String emit(Class<?> cls, String method_name, StructuringEngine engine) throws IOException {
+        ClassNode cn = new ClassNode();
+        try (InputStream in = cls.getResourceAsStream(cls.getSimpleName() + ".class")) {
+            new ClassReader(in).accept(cn, 0);
+        }
+        StructuringEngine previous = InstructionTreeBuilder.getEngine();
+        InstructionTreeBuilder.setEngine(engine);
+        try {
+            @SuppressWarnings("unchecked")
+            List<MethodNode> methods = cn.methods;
+            for (MethodNode mn : methods) {
+                if (mn.name.equals(method_name)) {
+                    StringWriter writer = new StringWriter();
+                    new SourceEmitter(writer).emitBody(InstructionTreeBuilder.build(mn));
+                    return writer.toString();
+                }
+            }
+        } finally {
+            InstructionTreeBuilder.setEngine(previous);
+        }
+        throw new IllegalArgumentException("No method " + method_name + " in " + cls.getName());
+    }
+
+    private static void assertSameOutput(Class<?> cls) throws IOException {
+        ClassNode cn = new ClassNode();
+        try (InputStream in = cls.getResourceAsStream(cls.getSimpleName() + ".class")) {
+            new ClassReader(in).accept(cn, 0);
+        }
+        @SuppressWarnings("unchecked")
+        List<MethodNode> methods = cn.methods;
+        for (MethodNode mn : methods) {
+            if (mn.name.startsWith("mth_")) {
+                assertEquals(mn.name, emit(cls, mn.name, StructuringEngine.RANGE), emit(cls, mn.name, StructuringEngine.CFG));
+            }
+        }
+    }
+
+    @Test
+    public void testBranches() throws IOException {
+        assertSameOutput(BranchTest.class);
+    }
+
+    @Test
+    public void testOperators() throws IOException {
+        assertSameOutput(OperatorsTest.class);
+    }
+
+    private void mth_nestedif(boolean a, boolean b) {
+        if (a) {
+            if (b) {
+                System.out.println(b);
+            }
+            System.out.println(a);
+        } else {
+            System.out.println(b);
+        }
+    }
+
+    @Test
+    public void testNestedIf() throws IOException {
+        String good = "if (a) {\n"
+                + "    if (b) {\n"
+                + "        System.out.println(b);\n"
+                + "    }\n"
+                + "    System.out.println(a);\n"
+                + "} else {\n"
+                + "    System.out.println(b);\n"
+                + "}";
+        assertEquals(good, emit(getClass(), "mth_nestedif", StructuringEngine.CFG));
+    }
+
+    private void mth_break(int i) {
+        while (i < 10) {
+            if (i == 5) {
+                break;
+            }
+            i++;
+        }
+        System.out.println(i);
+    }
+
+    @Test
+    public void testBreak() throws IOException {
+        String good = "while (i < 10) {\n"
+                + "    if (i == 5) {\n"
+                + "        break;\n"
+                + "    }\n"
+                + "    i++;\n"
+                + "}\n"
+                + "System.out.println(i);";
+        assertEquals(good, emit(getClass(), "mth_break", StructuringEngine.CFG));
+    }
+
+    private void mth_continue(int i) {
+        while (i < 10) {
+            i++;
+            if (i > 2) {
+                if (i == 5) {
+                    continue;
+                }
+                System.out.println(i);
+            }
+            System.out.println("x");
+        }
+    }
+
+    @Test
+    public void testContinue() throws IOException {
+        String good = "while (i < 10) {\n"
+                + "    i++;\n"
+                + "    if (i > 2) {\n"
+                + "        if (i == 5) {\n"
+                + "            continue;\n"
+                + "        }\n"
+                + "        System.out.println(i);\n"
+                + "    }\n"
+                + "    System.out.println(\"x\");\n"
+                + "}";
+        assertEquals(good, emit(getClass(), "mth_continue", StructuringEngine.CFG));
+    }
+
+    private void mth_forcontinue() {
+        for (int i = 0; i < 10; i++) {
+            if (i > 2) {
+                if (i == 5) {
+                    continue;
+                }
+                System.out.println(i);
+            }
+            System.out.println("x");
+        }
+    }
+
+    @Test
+    public void testForContinue() throws IOException {
+        String good = "for (int i = 0; i < 10; i++) {\n"
+                + "    if (i > 2) {\n"
+                + "        if (i == 5) {\n"
+                + "            continue;\n"
+                + "        }\n"
+                + "        System.out.println(i);\n"
+                + "    }\n"
+                + "    System.out.println(\"x\");\n"
+                + "}";
+        assertEquals(good, emit(getClass(), "mth_forcontinue", StructuringEngine.CFG));
+    }
+
+    private void mth_labelled() {
+        outer: for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < 10; j++) {
+                if (j > 5) {
+                    break outer;
+                }
+                System.out.println(j);
+            }
+        }
+    }
+
+    @Test
+    public void testLabelledBreak() throws IOException {
+        String good = "label0: for (int i = 0; i < 10; i++) {\n"
+                + "    for (int j = 0; j < 10; j++) {\n"
+                + "        if (j > 5) {\n"
+                + "            break label0;\n"
+                + "        }\n"
+                + "        System.out.println(j);\n"
+                + "    }\n"
+                + "}";
+        assertEquals(good, emit(getClass(), "mth_labelled", StructuringEngine.CFG));
+    }
+
+    private void mth_labelledcontinue(int i) {
+        outer: while (i < 10) {
+            i++;
+            for (int j = 0; j < i; j++) {
+                if (j == 3) {
+                    if (i == 4) {
+                        continue outer;
+                    }
+                }
+                System.out.println(j);
+            }
+            System.out.println(i);
+        }
+    }
+
+    @Test
+    public void testLabelledContinue() throws IOException {
+        String good = "label0: while (i < 10) {\n"
+                + "    i++;\n"
+                + "    for (int j = 0; j < i; j++) {\n"
+                + "        if (j == 3 && i == 4) {\n"
+                + "            continue label0;\n"
+                + "        }\n"
+                + "        System.out.println(j);\n"
+                + "    }\n"
+                + "    System.out.println(i);\n"
+                + "}";
+        assertEquals(good, emit(getClass(), "mth_labelledcontinue", StructuringEngine.CFG));
+    }
+
+    private void mth_switchbreak(int i) {
+        while (i < 10) {
+            switch (i) {
+            case 1:
+                if (i > 0) {
+                    break;
+                }
+                System.out.println(i);
+                break;
+            default:
+                i++;
+                continue;
+            }
+            i += 2;
+        }
+    }
+
+    @Test
+    public void testSwitchBreak() throws IOException {
+        String good = "while (i < 10) {\n"
+                + "    switch (i) {\n"
+                + "    case 1:\n"
+                + "        if (i > 0) {\n"
+                + "            break;\n"
+                + "        }\n"
+                + "        System.out.println(i);\n"
+                + "        break;\n"
+                + "\n"
+                + "    default:\n"
+                + "        i++;\n"
+                + "        continue;\n"
+                + "\n"
+                + "    };\n"
+                + "    i += 2;\n"
+                + "}";
+        assertEquals(good, emit(getClass(), "mth_switchbreak", StructuringEngine.CFG));
+    }
+
+    private void mth_infinite(int i) {
+        while (true) {
+            i++;
+            if (i > 10) {
+                break;
+            }
+            System.out.println(i);
+        }
+        System.out.println(i);
+    }
+
+    @Test
+    public void testInfiniteLoop() throws IOException {
+        String good = "while (true) {\n"
+                + "    i++;\n"
+                + "    if (i > 10) {\n"
+                + "        break;\n"
+                + "    }\n"
+                + "    System.out.println(i);\n"
+                + "}\n"
+                + "System.out.println(i);";
+        assertEquals(good, emit(getClass(), "mth_infinite", StructuringEngine.CFG));
+    }
+
+    private void mth_dobreak(int i) {
+        do {
+            if (i == 3) {
+                break;
+            }
+            i++;
+        } while (i < 10);
+        System.out.println(i);
+    }
+
+    @Test
+    public void testDoWhileBreak() throws IOException {
+        String good = "do {\n"
+                + "    if (i == 3) {\n"
+                + "        break;\n"
+                + "    }\n"
+                + "    i++;\n"
+                + "} while (i < 10);\n"
+                + "System.out.println(i);";
+        assertEquals(good, emit(getClass(), "mth_dobreak", StructuringEngine.CFG));
+    }
+
+}
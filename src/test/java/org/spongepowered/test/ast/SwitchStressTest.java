@@ -0,0 +1,149 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.test.ast;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ACC_STATIC;
+import static org.objectweb.asm.Opcodes.F_SAME;
+import static org.objectweb.asm.Opcodes.GOTO;
+import static org.objectweb.asm.Opcodes.ILOAD;
+import static org.objectweb.asm.Opcodes.PUTSTATIC;
+import static org.objectweb.asm.Opcodes.RETURN;
+
+import org.junit.Test;
+import org.objectweb.asm.tree.FieldInsnNode;
+import org.objectweb.asm.tree.FrameNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
+import org.objectweb.asm.tree.VarInsnNode;
+import org.spongepowered.despector.ast.io.insn.InstructionTreeBuilder;
+import org.spongepowered.despector.ast.members.insn.StatementBlock;
+import org.spongepowered.despector.ast.members.insn.branch.TableSwitch;
+import org.spongepowered.despector.ast.members.insn.branch.TableSwitch.Case;
+
+import java.util.Arrays;
+
+/**
+ * Decompiles switches with very large numbers of cases, which must be
+ * structured in time linear to the number of cases.
+ */
+public class SwitchStressTest {
+
+    private static final int CASES = 10000;
+
+    /**
+     * Creates a method switching on its parameter which jumps to the given
+     * labels, each of which is given a body assigning a field and breaking.
+     * The default case is last and does not break.
+     */
+    private static MethodNode createMethod(LabelNode[] targets, LabelNode dflt, boolean table, int[] keys) {
+        MethodNode mn = new MethodNode(ACC_PUBLIC | ACC_STATIC, "sw", "(I)V", null, null);
+        InsnList insns = mn.instructions;
+        LabelNode end = new LabelNode();
+        insns.add(new VarInsnNode(ILOAD, 0));
+        if (table) {
+            insns.add(new TableSwitchInsnNode(keys[0], keys[keys.length - 1], dflt, targets));
+        } else {
+            insns.add(new LookupSwitchInsnNode(dflt, keys, targets));
+        }
+        LabelNode last = null;
+        for (int i = 0; i < targets.length; i++) {
+            if (targets[i] == last) {
+                continue;
+            }
+            last = targets[i];
+            addCase(insns, targets[i], i);
+            insns.add(new JumpInsnNode(GOTO, end));
+        }
+        addCase(insns, dflt, -1);
+        insns.add(end);
+        insns.add(new FrameNode(F_SAME, 0, null, 0, null));
+        insns.add(new InsnNode(RETURN));
+        return mn;
+    }
+
+    private static void addCase(InsnList insns, LabelNode label, int value) {
+        insns.add(label);
+        insns.add(new FrameNode(F_SAME, 0, null, 0, null));
+        insns.add(new LdcInsnNode(value));
+        insns.add(new FieldInsnNode(PUTSTATIC, "Switch", "f", "I"));
+    }
+
+    private static TableSwitch build(MethodNode mn) {
+        StatementBlock block = InstructionTreeBuilder.build(mn);
+        return (TableSwitch) block.getStatements().get(0);
+    }
+
+    @Test
+    public void testTableSwitch() {
+        LabelNode[] targets = new LabelNode[CASES];
+        int[] keys = new int[CASES];
+        for (int i = 0; i < CASES; i++) {
+            targets[i] = new LabelNode();
+            keys[i] = i;
+        }
+        TableSwitch tswitch = build(createMethod(targets, new LabelNode(), true, keys));
+        assertEquals(CASES + 1, tswitch.getCases().size());
+        for (int i = 0; i < CASES; i++) {
+            Case cs = tswitch.getCases().get(i);
+            assertEquals(Arrays.asList(i), cs.getIndices());
+            assertTrue(cs.doesBreak());
+            assertFalse(cs.isDefault());
+            assertEquals(1, cs.getBody().getStatements().size());
+        }
+        Case dflt = tswitch.getCases().get(CASES);
+        assertTrue(dflt.isDefault());
+        assertTrue(dflt.getIndices().isEmpty());
+    }
+
+    @Test
+    public void testSharedLookupSwitch() {
+        // sparse keys, each pair of which share a case
+        LabelNode[] targets = new LabelNode[CASES];
+        int[] keys = new int[CASES];
+        for (int i = 0; i < CASES; i++) {
+            targets[i] = i % 2 == 0 ? new LabelNode() : targets[i - 1];
+            keys[i] = i * 31 - CASES;
+        }
+        TableSwitch tswitch = build(createMethod(targets, new LabelNode(), false, keys));
+        assertEquals(CASES / 2 + 1, tswitch.getCases().size());
+        for (int i = 0; i < CASES / 2; i++) {
+            Case cs = tswitch.getCases().get(i);
+            assertEquals(Arrays.asList(keys[i * 2], keys[i * 2 + 1]), cs.getIndices());
+            assertTrue(cs.doesBreak());
+        }
+        assertTrue(tswitch.getCases().get(CASES / 2).isDefault());
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.test.ast;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.Sets;
+import org.junit.Test;
+import org.spongepowered.despector.ast.SourceSet;
+import org.spongepowered.despector.ast.TypeHierarchy;
+import org.spongepowered.despector.ast.type.ClassEntry;
+import org.spongepowered.despector.ast.type.InterfaceEntry;
+import org.spongepowered.despector.ast.type.TypeEntry;
+
+/**
+ * Checks the sub type queries of the type hierarchy of a source set.
+ */
+public class TypeHierarchyTest {
+
+    private static TypeEntry type(SourceSet src, TypeEntry type, String name, String... interfaces) {
+        type.setName(name);
+        for (String inter : interfaces) {
+            type.addInterface("L" + inter + ";");
+        }
+        src.add(type);
+        return type;
+    }
+
+    private static ClassEntry cls(SourceSet src, String name, String sup, String... interfaces) {
+        ClassEntry cls = new ClassEntry(src);
+        cls.setSuperclass("L" + sup + ";");
+        type(src, cls, name, interfaces);
+        return cls;
+    }
+
+    @Test
+    public void testHierarchy() {
+        SourceSet src = new SourceSet();
+        TypeEntry a = type(src, new InterfaceEntry(src), "test/A", "java/lang/Runnable");
+        TypeEntry b = type(src, new InterfaceEntry(src), "test/B", "test/A");
+        ClassEntry base = cls(src, "test/Base", "java/lang/Object");
+        ClassEntry left = cls(src, "test/Left", "test/Base", "test/B");
+        ClassEntry right = cls(src, "test/Right", "test/Base", "test/A");
+        ClassEntry leaf = cls(src, "test/Leaf", "test/Left");
+        ClassEntry other = cls(src, "test/Other", "java/util/AbstractList");
+
+        TypeHierarchy hierarchy = src.getHierarchy();
+        assertSame(hierarchy, src.getHierarchy());
+        assertTrue(hierarchy.isSubtypeOf("test/Leaf", "test/Base"));
+        assertTrue(hierarchy.isSubtypeOf("test/Leaf", "test/A"));
+        assertTrue(hierarchy.isSubtypeOf("test/Leaf", "java/lang/Runnable"));
+        assertTrue(hierarchy.isSubtypeOf("test/B", "java/lang/Object"));
+        assertTrue(hierarchy.isSubtypeOf("test/Right", "test/Right"));
+        assertFalse(hierarchy.isSubtypeOf("test/Right", "test/B"));
+        assertFalse(hierarchy.isSubtypeOf("test/Base", "test/Left"));
+        assertFalse(hierarchy.isSubtypeOf("test/Other", "java/util/List"));
+        assertFalse(hierarchy.isSubtypeOf("test/Unknown", "java/lang/Object"));
+        assertTrue(hierarchy.getId("test/Base") < hierarchy.getId("test/Leaf"));
+        assertEquals(-1, hierarchy.getId("test/Unknown"));
+
+        assertEquals(Sets.newHashSet(b, left, right, leaf), Sets.newHashSet(hierarchy.getSubtypes("test/A")));
+        assertEquals(Sets.newHashSet(left, right, leaf), Sets.newHashSet(hierarchy.getSubtypes("test/Base")));
+        assertEquals(Sets.newHashSet(a, b, base, left, right, leaf, other), Sets.newHashSet(hierarchy.getSubtypes("java/lang/Object")));
+        assertTrue(hierarchy.getSubtypes("test/Leaf").isEmpty());
+
+        assertEquals("test/Base", hierarchy.getCommonSuperclass("test/Leaf", "test/Right"));
+        assertEquals("test/Left", hierarchy.getCommonSuperclass("test/Leaf", "test/Left"));
+        assertEquals("java/lang/Object", hierarchy.getCommonSuperclass("test/Leaf", "test/Other"));
+        assertEquals("java/lang/Object", hierarchy.getCommonSuperclass("test/Leaf", "test/A"));
+
+        ClassEntry added = cls(src, "test/Added", "test/Right");
+        TypeHierarchy rebuilt = src.getHierarchy();
+        assertTrue(rebuilt != hierarchy);
+        assertTrue(rebuilt.getSubtypes("test/A").contains(added));
+        assertEquals("test/Right", rebuilt.getCommonSuperclass("test/Added", "test/Right"));
+    }
+
+    @Test
+    public void testCycle() {
+        SourceSet src = new SourceSet();
+        cls(src, "test/X", "test/Y");
+        cls(src, "test/Y", "test/X");
+        TypeHierarchy hierarchy = src.getHierarchy();
+        assertEquals(2, hierarchy.getTypeCount());
+        assertTrue(hierarchy.isSubtypeOf("test/X", "test/Y") != hierarchy.isSubtypeOf("test/Y", "test/X"));
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.test.bench;
+
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ACC_STATIC;
+import static org.objectweb.asm.Opcodes.IF_ICMPLE;
+import static org.objectweb.asm.Opcodes.ILOAD;
+import static org.objectweb.asm.Opcodes.PUTSTATIC;
+import static org.objectweb.asm.Opcodes.RETURN;
+
+import org.objectweb.asm.tree.FieldInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.VarInsnNode;
+import org.spongepowered.despector.ast.io.insn.InstructionTreeBuilder;
+import org.spongepowered.despector.ast.members.insn.StatementBlock;
+
+/**
+ * Measures the time to decompile methods made of thousands of consecutive
+ * if blocks, where most of the work is resolving the targets of jumps.
+ *
+ * <p>Usage: {@code LabelResolutionBenchmark [jumps] [iterations]}</p>
+ */
+public class LabelResolutionBenchmark {
+
+    private static final int WARMUP = 20;
+
+    /**
+     * Creates a method of the form {@code if (a > i) { f = i; }} repeated for
+     * each of the given number of jumps.
+     */
+    static MethodNode createMethod(int jumps) {
+        MethodNode mn = new MethodNode(ACC_PUBLIC | ACC_STATIC, "jumps", "(I)V", null, null);
+        InsnList insns = mn.instructions;
+        for (int i = 0; i < jumps; i++) {
+            LabelNode skip = new LabelNode();
+            insns.add(new VarInsnNode(ILOAD, 0));
+            insns.add(new LdcInsnNode(i));
+            insns.add(new JumpInsnNode(IF_ICMPLE, skip));
+            insns.add(new LdcInsnNode(i));
+            insns.add(new FieldInsnNode(PUTSTATIC, "Bench", "f", "I"));
+            insns.add(skip);
+        }
+        insns.add(new InsnNode(RETURN));
+        return mn;
+    }
+
+    public static void main(String[] args) {
+        int jumps = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        MethodNode mn = createMethod(jumps);
+        for (int i = 0; i < WARMUP; i++) {
+            InstructionTreeBuilder.build(mn);
+        }
+        long start = System.nanoTime();
+        StatementBlock block = null;
+        for (int i = 0; i < iterations; i++) {
+            block = InstructionTreeBuilder.build(mn);
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%d jumps, %d statements: %.3f ms per method%n", jumps, block.getStatements().size(),
+                elapsed / 1e6 / iterations);
+    }
+
+}
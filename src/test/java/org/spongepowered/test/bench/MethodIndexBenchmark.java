@@ -0,0 +1,109 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.test.bench;
+
+import org.spongepowered.despector.ast.members.MethodEntry;
+import org.spongepowered.despector.ast.type.ClassEntry;
+import org.spongepowered.despector.ast.type.TypeEntry;
+
+/**
+ * Measures the time to add and look up the methods of a type with tens of
+ * thousands of methods, as found in large generated or obfuscated classes.
+ *
+ * <p>Usage: {@code MethodIndexBenchmark [methods] [iterations]}</p>
+ */
+public class MethodIndexBenchmark {
+
+    private static final int WARMUP = 20;
+    private static final String[] SIGNATURES = {"()V", "(I)V", "(J)V", "(Ljava/lang/String;)V"};
+
+    /**
+     * Creates the given number of methods, half of which are static methods
+     * with unique names and half instance methods overloaded four times by
+     * name.
+     */
+    static MethodEntry[] createMethods(int count) {
+        MethodEntry[] methods = new MethodEntry[count];
+        for (int i = 0; i < count; i++) {
+            MethodEntry m = new MethodEntry(null);
+            boolean is_static = (i & 1) == 0;
+            m.setName(is_static ? "s" + i : "m" + (i / 8));
+            m.setOwner("Bench");
+            m.setSignature(SIGNATURES[(i / 2) % SIGNATURES.length]);
+            m.setStatic(is_static);
+            methods[i] = m;
+        }
+        return methods;
+    }
+
+    static TypeEntry build(MethodEntry[] methods) {
+        TypeEntry type = new ClassEntry(null);
+        type.setName("Bench");
+        for (MethodEntry m : methods) {
+            type.addMethod(m);
+        }
+        return type;
+    }
+
+    static int lookup(TypeEntry type, MethodEntry[] methods) {
+        int found = 0;
+        for (MethodEntry m : methods) {
+            if (m.isStatic()) {
+                if (type.getStaticMethod(m.getName()) == m) {
+                    found++;
+                }
+                if (type.getStaticMethod(m.getName(), m.getSignature()) == m) {
+                    found++;
+                }
+            } else if (type.getMethod(m.getName(), m.getSignature()) == m) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        MethodEntry[] methods = createMethods(count);
+        for (int i = 0; i < WARMUP; i++) {
+            lookup(build(methods), methods);
+        }
+        long build_time = 0;
+        long lookup_time = 0;
+        int found = 0;
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            TypeEntry type = build(methods);
+            long built = System.nanoTime();
+            found = lookup(type, methods);
+            build_time += built - start;
+            lookup_time += System.nanoTime() - built;
+        }
+        System.out.printf("%d methods, %d found: %.3f ms to build, %.3f ms to look up all%n", count, found,
+                build_time / 1e6 / iterations, lookup_time / 1e6 / iterations);
+    }
+
+}
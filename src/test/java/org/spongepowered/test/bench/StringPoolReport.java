@@ -0,0 +1,159 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.test.bench;
+
+import com.google.common.collect.Sets;
+import org.spongepowered.despector.ast.SourceSet;
+import org.spongepowered.despector.ast.io.JarWalker;
+import org.spongepowered.despector.ast.io.SingularClassLoader.LoadMode;
+import org.spongepowered.despector.ast.io.insn.InstructionTreeBuilder;
+import org.spongepowered.despector.ast.io.insn.Locals;
+import org.spongepowered.despector.ast.io.insn.MethodBudget;
+import org.spongepowered.despector.ast.io.insn.StructuringEngine;
+import org.spongepowered.despector.ast.members.FieldEntry;
+import org.spongepowered.despector.ast.members.MethodEntry;
+import org.spongepowered.despector.ast.members.insn.StatementBlock;
+import org.spongepowered.despector.ast.type.TypeEntry;
+
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Reports the heap retained by a fully loaded jar with and without the
+ * string pool of its source set, along with how many copies are held of the
+ * names and descriptors of its types, members and locals.
+ *
+ * <p>Usage: {@code StringPoolReport <jar>}</p>
+ */
+public class StringPoolReport {
+
+    /**
+     * A source set which does not pool its strings, as every type held its
+     * own copies before the pool was added.
+     */
+    static class UnpooledSourceSet extends SourceSet {
+
+        @Override
+        public String intern(String str) {
+            return str;
+        }
+
+    }
+
+    static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    static SourceSet load(String jar, SourceSet src) {
+        JarWalker walker = new JarWalker(Paths.get(jar));
+        walker.setLoadMode(LoadMode.FULL);
+        // module descriptors cannot be read with the asm api used for loading
+        walker.setClassFilter((name, data, length) -> !name.endsWith("module-info"));
+        walker.walk(src);
+        return src;
+    }
+
+    static void add(String str, Set<String> copies, Set<String> distinct, int[] refs) {
+        if (str != null) {
+            copies.add(str);
+            distinct.add(str);
+            refs[0]++;
+        }
+    }
+
+    static void addMethods(Collection<MethodEntry> methods, Set<String> copies, Set<String> distinct, int[] refs) {
+        for (MethodEntry m : methods) {
+            add(m.getName(), copies, distinct, refs);
+            add(m.getOwner(), copies, distinct, refs);
+            add(m.getSignature(), copies, distinct, refs);
+            StatementBlock block = m.getInstructions();
+            if (block == null) {
+                continue;
+            }
+            Locals locals = block.getLocals();
+            for (int i = 0; i < locals.getLocalCount(); i++) {
+                add(locals.getLocal(i).getName(), copies, distinct, refs);
+                add(locals.getLocal(i).getType(), copies, distinct, refs);
+            }
+        }
+    }
+
+    static void addFields(Collection<FieldEntry> fields, Set<String> copies, Set<String> distinct, int[] refs) {
+        for (FieldEntry f : fields) {
+            add(f.getName(), copies, distinct, refs);
+            add(f.getOwner(), copies, distinct, refs);
+            add(f.getType(), copies, distinct, refs);
+        }
+    }
+
+    static String countStrings(SourceSet src) {
+        Set<String> copies = Sets.newIdentityHashSet();
+        Set<String> distinct = Sets.newHashSet();
+        int[] refs = new int[1];
+        for (TypeEntry type : src.getAllClasses()) {
+            add(type.getName(), copies, distinct, refs);
+            for (String inter : type.getInterfaces()) {
+                add(inter, copies, distinct, refs);
+            }
+            addMethods(type.getMethods(), copies, distinct, refs);
+            addMethods(type.getStaticMethods(), copies, distinct, refs);
+            addFields(type.getFields(), copies, distinct, refs);
+            addFields(type.getStaticFields(), copies, distinct, refs);
+        }
+        return String.format("%d references to %d copies of %d distinct strings", refs[0], copies.size(), distinct.size());
+    }
+
+    static void report(String name, String jar, SourceSet src) {
+        long before = usedHeap();
+        load(jar, src);
+        long retained = usedHeap() - before;
+        System.out.printf("%-9s %d types, %.1f KiB retained, %s%n", name, src.getAllClasses().size(), retained / 1024.0,
+                countStrings(src));
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: StringPoolReport <jar>");
+            return;
+        }
+        // methods which the decompiler cannot structure are abandoned rather
+        // than stalling the report
+        InstructionTreeBuilder.setBudget(new MethodBudget(1000, 0, false));
+        InstructionTreeBuilder.setEngine(StructuringEngine.CFG);
+        // loads the jar once first so that the classes of the decompiler are
+        // not counted against the first measurement
+        load(args[0], new UnpooledSourceSet());
+        report("unpooled", args[0], new UnpooledSourceSet());
+        report("pooled", args[0], new SourceSet());
+    }
+
+}
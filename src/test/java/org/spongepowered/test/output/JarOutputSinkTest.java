@@ -0,0 +1,133 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.test.output;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+import org.junit.Test;
+import org.spongepowered.despector.ast.io.MappedJarFile;
+import org.spongepowered.despector.output.JarOutputSink;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Writes jars with a {@link JarOutputSink} and reopens them with the zip
+ * reader of the jdk.
+ */
+public class JarOutputSinkTest {
+
+    private static byte[] read(ZipFile zip, String name) throws IOException {
+        try (InputStream in = zip.getInputStream(zip.getEntry(name))) {
+            return ByteStreams.toByteArray(in);
+        }
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    @Test
+    public void testWrite() throws IOException {
+        Path dir = Files.createTempDirectory("despector");
+        try {
+            Path jar = dir.resolve("out.jar");
+            try (JarOutputSink sink = new JarOutputSink(jar, 4)) {
+                sink.write("b/B.java", "class B {}".getBytes(StandardCharsets.UTF_8));
+                sink.write("a/A.java", "class A {}".getBytes(StandardCharsets.UTF_8));
+                sink.write("a/Empty.java", new byte[0]);
+                sink.write("b/B.java", "class B { int x; }".getBytes(StandardCharsets.UTF_8));
+            }
+            // the staging file is removed once the jar is written
+            try (Stream<Path> files = Files.list(dir)) {
+                assertEquals(1, files.count());
+            }
+            try (ZipFile zip = new ZipFile(jar.toFile())) {
+                List<String> names = Lists.newArrayList();
+                for (Enumeration<? extends ZipEntry> e = zip.entries(); e.hasMoreElements();) {
+                    names.add(e.nextElement().getName());
+                }
+                assertEquals(Lists.newArrayList("a/A.java", "a/Empty.java", "b/B.java"), names);
+                assertArrayEquals("class A {}".getBytes(StandardCharsets.UTF_8), read(zip, "a/A.java"));
+                assertArrayEquals(new byte[0], read(zip, "a/Empty.java"));
+                assertArrayEquals("class B { int x; }".getBytes(StandardCharsets.UTF_8), read(zip, "b/B.java"));
+            }
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void testZip64() throws IOException {
+        // more entries than the end record of a plain zip can count
+        int count = 0x10000;
+        Path dir = Files.createTempDirectory("despector");
+        try {
+            Path jar = dir.resolve("out.jar");
+            try (JarOutputSink sink = new JarOutputSink(jar, 4)) {
+                for (int i = count - 1; i >= 0; i--) {
+                    sink.write(String.format("p/C%05d.java", i), ("class C" + i + " {}").getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            try (ZipFile zip = new ZipFile(jar.toFile())) {
+                assertEquals(count, zip.size());
+                List<? extends ZipEntry> entries = Collections.list(zip.entries());
+                assertEquals("p/C00000.java", entries.get(0).getName());
+                assertEquals(String.format("p/C%05d.java", count - 1), entries.get(count - 1).getName());
+                assertArrayEquals("class C0 {}".getBytes(StandardCharsets.UTF_8), read(zip, "p/C00000.java"));
+                assertArrayEquals(("class C" + (count - 1) + " {}").getBytes(StandardCharsets.UTF_8),
+                        read(zip, String.format("p/C%05d.java", count - 1)));
+            }
+            // and can be read back by the decompiler
+            try (MappedJarFile mapped = new MappedJarFile(jar); MappedJarFile.Reader reader = mapped.newReader()) {
+                assertEquals(count, mapped.getEntries().size());
+                MappedJarFile.Entry last = mapped.getEntry(String.format("p/C%05d.java", count - 1));
+                assertArrayEquals(("class C" + (count - 1) + " {}").getBytes(StandardCharsets.UTF_8),
+                        Arrays.copyOf(reader.read(last), last.getSize()));
+            }
+        } finally {
+            delete(dir);
+        }
+    }
+
+}
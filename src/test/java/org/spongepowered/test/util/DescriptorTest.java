@@ -0,0 +1,165 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.test.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.spongepowered.despector.ast.SourceSet;
+import org.spongepowered.despector.util.MethodDescriptor;
+import org.spongepowered.despector.util.TypeDescriptor;
+
+import java.util.List;
+
+/**
+ * Parses type and method descriptors with {@link TypeDescriptor} and
+ * {@link MethodDescriptor}.
+ */
+public class DescriptorTest {
+
+    private static void assertMalformed(String desc) {
+        try {
+            MethodDescriptor.of(desc);
+        } catch (IllegalArgumentException e) {
+            assertEquals("Malformed method descriptor: " + desc, e.getMessage());
+            return;
+        }
+        fail("Parsed malformed descriptor: " + desc);
+    }
+
+    @Test
+    public void testPrimitive() {
+        String[] descs = {"I", "J", "S", "B", "C", "Z", "F", "D", "V"};
+        String[] names = {"int", "long", "short", "byte", "char", "boolean", "float", "double", "void"};
+        for (int i = 0; i < descs.length; i++) {
+            TypeDescriptor type = TypeDescriptor.of(descs[i]);
+            assertEquals(descs[i], type.getDescriptor());
+            assertEquals(names[i], type.getTypeName());
+            assertTrue(type.isPrimitive());
+            assertFalse(type.isArray());
+            assertEquals(descs[i].equals("V"), type.isVoid());
+        }
+    }
+
+    @Test
+    public void testObject() {
+        TypeDescriptor type = TypeDescriptor.of("Ljava/lang/String;");
+        assertEquals("java/lang/String", type.getTypeName());
+        assertFalse(type.isPrimitive());
+        assertFalse(type.isArray());
+        assertFalse(type.isVoid());
+        assertEquals(0, type.getDimensions());
+        // type variables are not resolved to their bounds
+        assertEquals("java/lang/Object", TypeDescriptor.of("TT;").getTypeName());
+    }
+
+    @Test
+    public void testArray() {
+        TypeDescriptor prim = TypeDescriptor.of("[[I");
+        assertEquals("int[][]", prim.getTypeName());
+        assertEquals(2, prim.getDimensions());
+        assertTrue(prim.isArray());
+        assertTrue(prim.isPrimitive());
+
+        TypeDescriptor obj = TypeDescriptor.of("[Ljava/lang/Object;");
+        assertEquals("java/lang/Object[]", obj.getTypeName());
+        assertEquals(1, obj.getDimensions());
+        assertFalse(obj.isPrimitive());
+    }
+
+    @Test
+    public void testInterned() {
+        String desc = "[Ljava/lang/String;";
+        assertSame(TypeDescriptor.of(desc), TypeDescriptor.of(new String(desc)));
+        String method = "(I)V";
+        assertSame(MethodDescriptor.of(method), MethodDescriptor.of(new String(method)));
+        assertSame(TypeDescriptor.of("I"), MethodDescriptor.of(method).getParamTypes().get(0));
+
+        SourceSet src = new SourceSet();
+        MethodDescriptor held = src.getMethodDescriptor(method);
+        assertSame(held, src.getMethodDescriptor(new String(method)));
+        assertSame(held, MethodDescriptor.of(method));
+    }
+
+    @Test
+    public void testMalformedType() {
+        // unknown descriptors are passed through as their own name
+        TypeDescriptor name = TypeDescriptor.of("java/lang/String");
+        assertEquals("java/lang/String", name.getTypeName());
+        assertFalse(name.isPrimitive());
+        assertEquals("Ljava/lang/String", TypeDescriptor.of("Ljava/lang/String").getTypeName());
+        assertEquals("Q[]", TypeDescriptor.of("[Q").getTypeName());
+        assertEquals("", TypeDescriptor.of("").getTypeName());
+        assertEquals("[]", TypeDescriptor.of("[").getTypeName());
+    }
+
+    @Test
+    public void testMethod() {
+        MethodDescriptor method = MethodDescriptor.of("(I[JLjava/lang/String;[[Ljava/lang/Object;ZTT;[D)[Ljava/lang/String;");
+        List<TypeDescriptor> params = method.getParamTypes();
+        assertEquals(7, method.getParamCount());
+        assertEquals("I", params.get(0).getDescriptor());
+        assertEquals("[J", params.get(1).getDescriptor());
+        assertEquals("Ljava/lang/String;", params.get(2).getDescriptor());
+        assertEquals("[[Ljava/lang/Object;", params.get(3).getDescriptor());
+        assertEquals("Z", params.get(4).getDescriptor());
+        assertEquals("TT;", params.get(5).getDescriptor());
+        assertEquals("[D", params.get(6).getDescriptor());
+        assertEquals("[Ljava/lang/String;", method.getReturnType().getDescriptor());
+
+        MethodDescriptor empty = MethodDescriptor.of("()V");
+        assertEquals(0, empty.getParamCount());
+        assertTrue(empty.getReturnType().isVoid());
+    }
+
+    @Test
+    public void testSignature() {
+        MethodDescriptor method = MethodDescriptor.of(
+                "<T:Ljava/lang/Object;>(Ljava/util/Map<TT;Ljava/util/List<+TT;>;>;[Ljava/util/List<*>;I)Ljava/util/List<TT;>;");
+        List<TypeDescriptor> params = method.getParamTypes();
+        assertEquals(3, params.size());
+        assertEquals("Ljava/util/Map;", params.get(0).getDescriptor());
+        assertEquals("[Ljava/util/List;", params.get(1).getDescriptor());
+        assertEquals("I", params.get(2).getDescriptor());
+        // the return type is kept as written
+        assertEquals("Ljava/util/List<TT;>;", method.getReturnType().getDescriptor());
+    }
+
+    @Test
+    public void testMalformedMethod() {
+        assertMalformed("(Ljava/lang/String");
+        assertMalformed("([");
+        assertMalformed("(I[");
+        assertMalformed("(Ljava/util/List<TT;)V");
+        // a missing return type is read as void
+        assertTrue(MethodDescriptor.of("(I").getReturnType().isVoid());
+        assertEquals(1, MethodDescriptor.of("(I").getParamCount());
+    }
+
+}